@@ -3,15 +3,16 @@ package com.app.missednotificationsreminder.service
 import android.accessibilityservice.AccessibilityService
 import android.app.Notification
 import android.os.SystemClock
-import android.text.TextUtils
 import android.view.accessibility.AccessibilityEvent
 import android.view.accessibility.AccessibilityNodeInfo
 import androidx.lifecycle.lifecycleScope
+import com.app.missednotificationsreminder.service.ReminderNotificationListenerServiceInterface.Companion.NOTIFICATION_EVENTS_BATCH_WINDOW
 import com.app.missednotificationsreminder.service.data.model.NotificationData
 import com.app.missednotificationsreminder.service.util.NotificationParser
 import com.app.missednotificationsreminder.service.util.StatusBarWindowUtils
+import com.app.missednotificationsreminder.util.coroutines.BatchingEventsQueue
 import com.app.missednotificationsreminder.util.coroutines.debounce
-import kotlinx.coroutines.launch
+import com.app.missednotificationsreminder.util.logging.Logger
 import timber.log.Timber
 import java.util.*
 
@@ -29,15 +30,18 @@ abstract class AbstractReminderNotificationListenerService : AccessibilityServic
      */
     private val statusBarWindowUtils by lazy { StatusBarWindowUtils(packageManager) }
 
+    /**
+     * Queue to coalesce notification events bursts into ordered batches
+     */
+    private val notificationEvents = BatchingEventsQueue<NotificationEvent>(NOTIFICATION_EVENTS_BATCH_WINDOW)
+
     val statusBarContentChangedRemovedNotification: (List<NotificationData>) -> Unit by lazy {
         debounce<List<NotificationData>>(
                 1000L,
                 lifecycleScope) { notificationData ->
-            lifecycleScope.launch {
-                for (data in notificationData) {
-                    if (!createDismissNotification || ignoredNotificationsData.contains(data)) {
-                        onNotificationRemoved(data)
-                    }
+            for (data in notificationData) {
+                if (!createDismissNotification || ignoredNotificationsData.contains(data)) {
+                    notificationEvents.submit(NotificationEvent(data, posted = false))
                 }
             }
         }
@@ -45,6 +49,18 @@ abstract class AbstractReminderNotificationListenerService : AccessibilityServic
 
     override fun onCreate() {
         super.onCreate()
+        notificationEvents.launchIn(lifecycleScope) { events ->
+            Timber.d("Apply notification events batch of size %d", events.size)
+            applyNotificationsBatch {
+                for (event in events) {
+                    if (event.posted) {
+                        onNotificationPosted(event.data)
+                    } else {
+                        onNotificationRemoved(event.data)
+                    }
+                }
+            }
+        }
         onReady()
     }
 
@@ -53,38 +69,36 @@ abstract class AbstractReminderNotificationListenerService : AccessibilityServic
     }
 
     override fun onAccessibilityEvent(accessibilityEvent: AccessibilityEvent) {
-        Timber.d("onAccessibilityEvent: received, windowid: %1\$d; type: %2\$s", accessibilityEvent.windowId, AccessibilityEvent.eventTypeToString(accessibilityEvent.eventType))
+        Logger.d { "onAccessibilityEvent: received, windowid: ${accessibilityEvent.windowId}; type: ${AccessibilityEvent.eventTypeToString(accessibilityEvent.eventType)}" }
         when (accessibilityEvent.eventType) {
             AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED -> {
-                Timber.d("onAccessibilityEvent: notification state changed")
+                Logger.d { "onAccessibilityEvent: notification state changed" }
                 if (accessibilityEvent.parcelableData != null &&
                         accessibilityEvent.parcelableData is Notification) {
                     val n = accessibilityEvent.parcelableData as Notification
                     val packageName = accessibilityEvent.packageName.toString()
-                    Timber.d("onAccessibilityEvent: notification posted package: %1\$s; notification: %2\$s", packageName, n)
-                    lifecycleScope.launch {
-                        // fire event
-                        onNotificationPosted(ExtendedNotificationData(
-                                notificationParser.getNotificationTitle(n, packageName),
-                                packageName,
-                                SystemClock.elapsedRealtime(),
-                                n.flags))
-                    }
+                    Logger.d { "onAccessibilityEvent: notification posted package: $packageName; notification: $n" }
+                    // fire event
+                    notificationEvents.submit(NotificationEvent(ExtendedNotificationData(
+                            notificationParser.getNotificationTitle(n, packageName),
+                            packageName,
+                            SystemClock.elapsedRealtime(),
+                            n.flags), posted = true))
                 }
             }
             AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED -> {
                 // auto clear notifications for launched application (TYPE_WINDOW_CONTENT_CHANGED not always generated
                 // when app is clicked or cleared)
-                Timber.d("onAccessibilityEvent: window state changed")
+                Logger.d { "onAccessibilityEvent: window state changed" }
                 if (accessibilityEvent.packageName != null) {
                     val packageName = accessibilityEvent.packageName.toString()
-                    Timber.d("onAccessibilityEvent: window state has been changed for package %1\$s", packageName)
+                    Logger.d { "onAccessibilityEvent: window state has been changed for package $packageName" }
                     removeNotificationsFor(packageName)
                 }
             }
             AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED ->                 // auto clear notifications when cleared from notifications bar (old api, Android < 4.3)
                 if (statusBarWindowUtils.isStatusBarWindowEvent(accessibilityEvent)) {
-                    Timber.d("onAccessibilityEvent: status bar content changed")
+                    Logger.d { "onAccessibilityEvent: status bar content changed" }
                     statusBarContentChangedRemovedNotification(getRemovedNotifications(accessibilityEvent))
                 }
             AccessibilityEvent.TYPE_VIEW_CLICKED -> {
@@ -92,16 +106,14 @@ abstract class AbstractReminderNotificationListenerService : AccessibilityServic
                 // when this event occurs so need to handle this manually
                 //
                 // also handle notification clicked event
-                Timber.d("onAccessibilityEvent: view clicked")
+                Logger.d { "onAccessibilityEvent: view clicked" }
                 if (statusBarWindowUtils.isStatusBarWindowEvent(accessibilityEvent)) {
-                    Timber.d("onAccessibilityEvent: status bar content clicked")
+                    Logger.d { "onAccessibilityEvent: status bar content clicked" }
                     if (statusBarWindowUtils.isClearNotificationsButtonEvent(accessibilityEvent)) {
                         // if clicked image view element with the clear button name content description
-                        lifecycleScope.launch {
-                            Timber.d("onAccessibilityEvent: clear notifications button clicked")
-                            for (data in notificationsData) {
-                                onNotificationRemoved(data)
-                            }
+                        Logger.d { "onAccessibilityEvent: clear notifications button clicked" }
+                        for (data in notificationsData) {
+                            notificationEvents.submit(NotificationEvent(data, posted = false))
                         }
                     } else {
                         // update notifications if another view is clicked
@@ -143,13 +155,9 @@ abstract class AbstractReminderNotificationListenerService : AccessibilityServic
      * @param packageName
      */
     private fun removeNotificationsFor(packageName: String) {
-        lifecycleScope.launch {
-            Timber.d("removeNotificationsFor: %1\$s", packageName)
-            for (data in notificationsData) {
-                if (TextUtils.equals(packageName, data.packageName)) {
-                    onNotificationRemoved(data)
-                }
-            }
+        Logger.d { "removeNotificationsFor: $packageName" }
+        for (data in notificationsDataFor(packageName)) {
+            notificationEvents.submit(NotificationEvent(data, posted = false))
         }
     }
 
@@ -173,6 +181,11 @@ abstract class AbstractReminderNotificationListenerService : AccessibilityServic
         return strings
     }
 
+    /**
+     * The notification event waiting in the batching queue
+     */
+    private class NotificationEvent(val data: NotificationData, val posted: Boolean)
+
     /**
      * Simple notification information holder
      */
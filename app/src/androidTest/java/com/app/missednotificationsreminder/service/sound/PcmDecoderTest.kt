@@ -0,0 +1,73 @@
+package com.app.missednotificationsreminder.service.sound
+
+import android.net.Uri
+import androidx.test.filters.SdkSuppress
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+@RunWith(AndroidJUnit4::class)
+@SdkSuppress(minSdkVersion = 21)
+class PcmDecoderTest {
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private val file = File(context.cacheDir, "decoder_test.wav")
+
+    @After
+    fun tearDown() {
+        file.delete()
+    }
+
+    @Test
+    fun testWaveSoundIsDecoded() {
+        val samples = ShortArray(SAMPLE_RATE / 2 * 2) { (it * 37).toShort() }
+        writeWave(samples, channelCount = 2)
+        val sound = PcmDecoder(MAX_SIZE).decode(context, Uri.fromFile(file))
+        assertEquals(SAMPLE_RATE, sound.sampleRate)
+        assertEquals(2, sound.channelCount)
+        assertEquals(samples.size / 2, sound.frames)
+        assertEquals(500, sound.duration)
+    }
+
+    @Test(expected = IOException::class)
+    fun testTooLongSoundIsRejected() {
+        writeWave(ShortArray(SAMPLE_RATE), channelCount = 1)
+        PcmDecoder(SAMPLE_RATE).decode(context, Uri.fromFile(file))
+    }
+
+    @Test(expected = IOException::class)
+    fun testNotSoundIsRejected() {
+        file.writeText("not a sound")
+        PcmDecoder(MAX_SIZE).decode(context, Uri.fromFile(file))
+    }
+
+    /**
+     * Write the 16 bit PCM WAVE file
+     */
+    private fun writeWave(samples: ShortArray, channelCount: Int) {
+        val data = ByteBuffer.allocate(samples.size * 2).order(ByteOrder.LITTLE_ENDIAN)
+        samples.forEach { data.putShort(it) }
+        val header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN)
+                .put("RIFF".toByteArray()).putInt(36 + data.capacity()).put("WAVE".toByteArray())
+                .put("fmt ".toByteArray()).putInt(16).putShort(1).putShort(channelCount.toShort())
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * channelCount * 2).putShort((channelCount * 2).toShort())
+                .putShort(16)
+                .put("data".toByteArray()).putInt(data.capacity())
+        DataOutputStream(file.outputStream()).use {
+            it.write(header.array())
+            it.write(data.array())
+        }
+    }
+
+    companion object {
+        private const val SAMPLE_RATE = 8_000
+        private const val MAX_SIZE = 1024 * 1024
+    }
+}
@@ -0,0 +1,55 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data.model.util
+
+import android.graphics.Bitmap
+import android.net.Uri
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.squareup.picasso.Picasso
+import com.squareup.picasso.Request
+import org.junit.Assert.*
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class ApplicationIconHandlerTest {
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private val handler = ApplicationIconHandler(context.packageManager, ApplicationIconCache(context))
+
+    @Test
+    fun testIconIsRenderedAtTargetSizeAndCached() {
+        val icon = context.packageManager.getApplicationIcon(context.packageName)
+        val expected = IconRasterization.renderSize(icon.intrinsicWidth, icon.intrinsicHeight, SIZE, SIZE)
+        val request = Request.Builder(Uri.Builder()
+                .scheme(ApplicationIconHandler.SCHEME)
+                .authority(context.packageName)
+                // the unique version so the icon is not cached yet
+                .appendQueryParameter(ApplicationIconHandler.VERSION_PARAMETER, "0.${System.nanoTime()}")
+                .build())
+                .resize(SIZE, SIZE)
+                .build()
+
+        val rendered = handler.load(request, 0)!!
+        assertEquals(Picasso.LoadedFrom.DISK, rendered.loadedFrom)
+        val bitmap = rendered.bitmap!!
+        assertEquals(expected.width, bitmap.width)
+        assertEquals(expected.height, bitmap.height)
+        val pixels = IntArray(bitmap.width * bitmap.height)
+        bitmap.getPixels(pixels, 0, bitmap.width, 0, 0, bitmap.width, bitmap.height)
+        // only the opaque icons use the reduced config
+        assertEquals(if (IconRasterization.isOpaque(pixels, pixels.size)) Bitmap.Config.RGB_565 else Bitmap.Config.ARGB_8888,
+                bitmap.config)
+
+        val cached = handler.load(request, 0)!!
+        assertEquals(Picasso.LoadedFrom.DISK, cached.loadedFrom)
+        assertEquals(bitmap.width, cached.bitmap!!.width)
+        assertEquals(bitmap.height, cached.bitmap!!.height)
+        assertEquals(bitmap.config, cached.bitmap!!.config)
+    }
+
+    companion object {
+        /**
+         * 40dp icon row on the xxhdpi screen
+         */
+        private const val SIZE = 120
+    }
+}
@@ -4,6 +4,7 @@ import android.animation.ValueAnimator;
 import android.app.Application;
 import android.content.Context;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.view.ContextThemeWrapper;
@@ -17,6 +18,12 @@ import com.app.missednotificationsreminder.BuildConfig;
 import com.app.missednotificationsreminder.R;
 import com.app.missednotificationsreminder.databinding.DebugViewContentBinding;
 import com.app.missednotificationsreminder.di.Injector;
+import com.app.missednotificationsreminder.service.data.RestartCoalescer;
+import com.app.missednotificationsreminder.service.data.WakeAccounting;
+import com.app.missednotificationsreminder.service.data.model.WakeStrategy;
+import com.app.missednotificationsreminder.service.scheduler.ReminderScheduler;
+import com.app.missednotificationsreminder.settings.applicationselection.data.model.util.ApplicationIconCache;
+import com.app.missednotificationsreminder.settings.di.qualifiers.AdaptiveWake;
 import com.jakewharton.u2020.data.AnimationSpeed;
 import com.jakewharton.u2020.data.LumberYard;
 import com.jakewharton.u2020.data.PicassoDebugging;
@@ -36,6 +43,7 @@ import org.threeten.bp.temporal.TemporalAccessor;
 
 import java.lang.reflect.Method;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -61,6 +69,11 @@ public final class DebugView extends FrameLayout implements LifecycleOwner {
     @Inject @PixelRatioEnabled Preference<Boolean> pixelRatioEnabled;
     @Inject @ScalpelEnabled Preference<Boolean> scalpelEnabled;
     @Inject @ScalpelWireframeEnabled Preference<Boolean> scalpelWireframeEnabled;
+    @Inject @AdaptiveWake Preference<Boolean> adaptiveWake;
+    @Inject WakeAccounting wakeAccounting;
+    @Inject ReminderScheduler reminderScheduler;
+    @Inject RestartCoalescer restartCoalescer;
+    @Inject ApplicationIconCache applicationIconCache;
     @Inject Application app;
 
     public DebugView(Context context) {
@@ -77,10 +90,12 @@ public final class DebugView extends FrameLayout implements LifecycleOwner {
         setupUserInterfaceSection();
         setupBuildSection();
         setupDeviceSection();
+        setupWakeSection();
         setupPicassoSection();
     }
 
     public void onDrawerOpened() {
+        refreshWakeStats();
         refreshPicassoStats();
     }
 
@@ -159,6 +174,33 @@ public final class DebugView extends FrameLayout implements LifecycleOwner {
         mBinding.debugDeviceApi.setText(String.valueOf(Build.VERSION.SDK_INT));
     }
 
+    private void setupWakeSection() {
+        mBinding.debugWakeAdaptive.setChecked(adaptiveWake.get());
+        mBinding.debugWakeAdaptive.setOnCheckedChangeListener((button, isChecked) -> {
+            Timber.d("Setting adaptive wake enabled to %s", isChecked);
+            adaptiveWake.set(isChecked);
+        });
+
+        refreshWakeStats();
+    }
+
+    private void refreshWakeStats() {
+        WakeAccounting.Snapshot snapshot = wakeAccounting.snapshot(SystemClock.elapsedRealtime());
+        WakeAccounting.StrategySnapshot wakeLock = snapshot.getStrategies().get(WakeStrategy.WAKE_LOCK);
+        WakeAccounting.StrategySnapshot system = snapshot.getStrategies().get(WakeStrategy.SYSTEM);
+        mBinding.debugWakeLockHeld.setText(getDurationString(snapshot.getWakeLockHeld()));
+        mBinding.debugWakeLockAcquisitions.setText(String.valueOf(snapshot.getWakeLockAcquisitions()));
+        mBinding.debugWakeLockThreshold.setText(getDurationString(snapshot.getWakeLockIntervalThreshold()));
+        mBinding.debugWakeLockTicks.setText(String.valueOf(wakeLock.getTicks()));
+        mBinding.debugWakeLockDrift.setText(getDriftString(wakeLock));
+        mBinding.debugWakeSystemTicks.setText(String.valueOf(system.getTicks()));
+        mBinding.debugWakeSystemDrift.setText(getDriftString(system));
+        mBinding.debugWakeAvoidedWrites.setText(reminderScheduler.getAvoidedDatabaseWrites()
+                + " (" + reminderScheduler.getAvoidedDatabaseWritesPerHour() + "/h)");
+        mBinding.debugWakeAvoidedRestarts.setText(restartCoalescer.getAvoided()
+                + " of " + restartCoalescer.getRequested());
+    }
+
     private void setupPicassoSection() {
         boolean picassoDebuggingValue = picassoDebugging.get();
         picasso.setIndicatorsEnabled(picassoDebuggingValue);
@@ -180,6 +222,8 @@ public final class DebugView extends FrameLayout implements LifecycleOwner {
         mBinding.debugPicassoCacheSize.setText(size + " / " + total + " (" + percentage + "%)");
         mBinding.debugPicassoCacheHit.setText(String.valueOf(snapshot.cacheHits));
         mBinding.debugPicassoCacheMiss.setText(String.valueOf(snapshot.cacheMisses));
+        ApplicationIconCache.Stats iconStats = applicationIconCache.getStats();
+        mBinding.debugPicassoIconDiskCache.setText(iconStats.getHits() + " / " + iconStats.getMisses());
         mBinding.debugPicassoDecoded.setText(String.valueOf(snapshot.originalBitmapCount));
         mBinding.debugPicassoDecodedTotal.setText(getSizeString(snapshot.totalOriginalBitmapSize));
         mBinding.debugPicassoDecodedAvg.setText(getSizeString(snapshot.averageOriginalBitmapSize));
@@ -218,6 +262,17 @@ public final class DebugView extends FrameLayout implements LifecycleOwner {
         }
     }
 
+    private static String getDriftString(WakeAccounting.StrategySnapshot snapshot) {
+        return snapshot.getAverageDrift() + "ms avg / " + snapshot.getMaxDrift() + "ms max";
+    }
+
+    private static String getDurationString(long millis) {
+        long hours = TimeUnit.MILLISECONDS.toHours(millis);
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(millis) % 60;
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(millis) % 60;
+        return String.format(Locale.US, "%d:%02d:%02d", hours, minutes, seconds);
+    }
+
     private static String getSizeString(long bytes) {
         String[] units = new String[]{"B", "KB", "MB", "GB"};
         int unit = 0;
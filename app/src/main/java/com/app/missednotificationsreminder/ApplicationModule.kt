@@ -10,6 +10,7 @@ import com.app.missednotificationsreminder.di.qualifiers.ForApplication
 import com.app.missednotificationsreminder.payment.di.PurchaseDataModule
 import com.app.missednotificationsreminder.service.RemindJob
 import com.app.missednotificationsreminder.service.ReminderNotificationListenerService
+import com.app.missednotificationsreminder.service.scheduler.ReminderAlarmReceiver
 import com.app.missednotificationsreminder.settings.MainActivity
 import com.app.missednotificationsreminder.ui.UiModule
 import dagger.Module
@@ -25,6 +26,7 @@ import javax.inject.Singleton
     MainActivity.Module::class,
     ReminderNotificationListenerService.Module::class,
     RemindJob.Module::class,
+    ReminderAlarmReceiver.Module::class,
     ApplicationModuleExt::class])
 class ApplicationModule {
     @Provides
@@ -6,6 +6,7 @@ import androidx.multidex.MultiDex
 import androidx.work.Configuration
 import com.app.missednotificationsreminder.ui.ActivityHierarchyServer
 import com.app.missednotificationsreminder.ui.activity.common.CommonActivityLifecycleCallback
+import com.app.missednotificationsreminder.util.logging.Logger
 import com.jakewharton.threetenabp.AndroidThreeTen
 import com.jakewharton.u2020.data.LumberYard
 import dagger.android.support.DaggerApplication
@@ -33,7 +34,8 @@ abstract class CustomApplicationBase : DaggerApplication(), Configuration.Provid
     override fun onCreate() {
         AndroidThreeTen.init(this)
         super.onCreate()
-        // initialize logging
+        // initialize logging, release builds keep only warnings and errors
+        Logger.configure(if (BuildConfig.DEBUG) Log.VERBOSE else Log.WARN)
         if (BuildConfig.DEBUG) {
             Timber.plant(DebugTree())
         } else {
@@ -45,18 +47,18 @@ abstract class CustomApplicationBase : DaggerApplication(), Configuration.Provid
         registerActivityLifecycleCallbacks(CommonActivityLifecycleCallback())
     }
 
+    override fun onTerminate() {
+        lumberYard.close()
+        super.onTerminate()
+    }
+
     override fun getWorkManagerConfiguration() =
             Configuration.Builder()
                     .setMinimumLoggingLevel(if (BuildConfig.DEBUG) Log.VERBOSE else Log.WARN)
                     .build()
 
     private class CrashReportingTree : DebugTree() {
-        override fun log(priority: Int, tag: String?, message: String, t: Throwable?) {
-            if (priority == Log.VERBOSE || priority == Log.DEBUG) {
-                // skip debug and verbose messages
-                return
-            }
-            super.log(priority, tag, message, t)
-        }
+        // skip debug and verbose messages before they are formatted
+        override fun isLoggable(tag: String?, priority: Int) = priority >= Log.WARN
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import android.content.SharedPreferences
 import android.content.pm.PackageManager
 import com.app.missednotificationsreminder.data.source.DefaultResourceDataSource
 import com.app.missednotificationsreminder.data.source.ResourceDataSource
+import com.app.missednotificationsreminder.settings.applicationselection.data.model.util.ApplicationIconCache
 import com.app.missednotificationsreminder.settings.applicationselection.data.model.util.ApplicationIconHandler
 import com.app.missednotificationsreminder.util.event.FlowEventBus
 import com.squareup.moshi.JsonAdapter
@@ -47,9 +48,9 @@ class DataModule {
 
     @Provides
     @Singleton
-    fun providePicasso(app: Application, packageManager: PackageManager): Picasso {
+    fun providePicasso(app: Application, packageManager: PackageManager, iconCache: ApplicationIconCache): Picasso {
         return Picasso.Builder(app)
-                .addRequestHandler(ApplicationIconHandler(packageManager))
+                .addRequestHandler(ApplicationIconHandler(packageManager, iconCache))
                 .listener { _, uri, e -> Timber.e(e, "Failed to load image: %s", uri) }
                 .build()
     }
@@ -0,0 +1,62 @@
+package com.app.missednotificationsreminder.data
+
+import android.content.SharedPreferences
+import com.tfcporciuncula.flow.Preference
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicLong
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The dispatcher of the shared preferences changes. It keeps the single [SharedPreferences] listener and routes
+ * the changed keys to the handlers registered for them, so only the changed preference is read.
+ */
+@Singleton
+class PreferenceChangeDispatcher @Inject constructor(private val sharedPreferences: SharedPreferences) {
+    private val handlers = ConcurrentHashMap<String, CopyOnWriteArrayList<() -> Unit>>()
+
+    private val dispatchedCount = AtomicLong()
+
+    /**
+     * The number of the changes routed to the handlers
+     */
+    val dispatched: Long
+        get() = dispatchedCount.get()
+
+    /**
+     * The preferences listener, the strong reference is required as the [SharedPreferences] keeps the weak one
+     */
+    private val listener = SharedPreferences.OnSharedPreferenceChangeListener { _, key ->
+        handlers[key]?.let { keyHandlers ->
+            dispatchedCount.incrementAndGet()
+            keyHandlers.forEach { it() }
+        }
+    }
+
+    init {
+        sharedPreferences.registerOnSharedPreferenceChangeListener(listener)
+    }
+
+    /**
+     * Register the handler of the preference changes. The handler is called on the thread the preference is
+     * changed at with the new preference value
+     *
+     * @param preference the preference to handle changes of
+     * @param handler    the handler of the new preference value
+     */
+    fun <T> register(preference: Preference<T>, handler: (T) -> Unit) {
+        register(preference.key) { handler(preference.get()) }
+    }
+
+    /**
+     * Register the handler of the preference changes which doesn't need the new value. The handler is called on the
+     * thread the preference is changed at
+     *
+     * @param key     the key of the preference to handle changes of
+     * @param handler the handler of the change
+     */
+    fun register(key: String, handler: () -> Unit) {
+        handlers.getOrPut(key) { CopyOnWriteArrayList() }.add(handler)
+    }
+}
@@ -1,5 +1,6 @@
 package com.app.missednotificationsreminder.payment.di
 
+import com.app.missednotificationsreminder.data.PreferenceChangeDispatcher
 import com.app.missednotificationsreminder.payment.model.Purchase
 import com.app.missednotificationsreminder.util.moshi.MoshiPreferenceWrapper
 import com.squareup.moshi.Moshi
@@ -15,12 +16,15 @@ class PurchaseDataModule {
 
     @Provides
     @Singleton
-    fun providePurchases(prefs: FlowSharedPreferences, moshi: Moshi): Preference<List<Purchase>> {
+    fun providePurchases(prefs: FlowSharedPreferences,
+                         moshi: Moshi,
+                         dispatcher: PreferenceChangeDispatcher): Preference<List<Purchase>> {
         return MoshiPreferenceWrapper(
                 prefs,
                 "PURCHASES",
                 emptyList(),
-                moshi.adapter(Types.newParameterizedType(List::class.java, Purchase::class.java))
+                moshi.adapter(Types.newParameterizedType(List::class.java, Purchase::class.java)),
+                dispatcher
         )
     }
 }
@@ -6,17 +6,18 @@ import androidx.work.WorkerParameters
 import com.app.missednotificationsreminder.di.Injector.Companion.obtain
 import com.app.missednotificationsreminder.service.event.RemindEvents
 import com.app.missednotificationsreminder.util.event.FlowEventBus
+import com.app.missednotificationsreminder.util.event.toFlow
 import dagger.android.AndroidInjector
 import dagger.android.ContributesAndroidInjector
-import kotlinx.coroutines.ExperimentalCoroutinesApi
-import kotlinx.coroutines.FlowPreview
-import kotlinx.coroutines.coroutineScope
-import kotlinx.coroutines.flow.*
+import kotlinx.coroutines.*
+import kotlinx.coroutines.flow.first
 import timber.log.Timber
 import javax.inject.Inject
 
 /**
- * The remind job
+ * The remind job. The reminders are scheduled with the
+ * [ReminderScheduler][com.app.missednotificationsreminder.service.scheduler.ReminderScheduler] now, the job only
+ * relays the work enqueued by the previous versions until it is cancelled
  */
 @OptIn(FlowPreview::class, ExperimentalCoroutinesApi::class)
 class RemindJob(context: Context, params: WorkerParameters)
@@ -34,10 +35,13 @@ class RemindJob(context: Context, params: WorkerParameters)
 
     override suspend fun doWork(): Result = coroutineScope {
         Timber.d("doWork() called")
-        mEventBus.toFlow()
-                .filter { event -> event === RemindEvents.REMINDER_COMPLETED }
-                .onStart {  mEventBus.send(RemindEvents.REMIND)  }
-                .first()
+        // subscribe before the remind event is sent to not miss the fast completion
+        val completed = async(start = CoroutineStart.UNDISPATCHED) {
+            mEventBus.toFlow<RemindEvents>()
+                    .first { event -> event === RemindEvents.REMINDER_COMPLETED }
+        }
+        mEventBus.emit(RemindEvents.REMIND)
+        completed.await()
         Timber.d("doWork() done")
         Result.success()
     }
@@ -20,7 +20,6 @@ import android.net.Uri
 import android.os.*
 import android.os.PowerManager.WakeLock
 import android.provider.Settings
-import android.text.TextUtils
 import android.util.Log
 import android.view.Display
 import androidx.annotation.CallSuper
@@ -32,23 +31,33 @@ import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.ServiceLifecycleDispatcher
 import androidx.lifecycle.lifecycleScope
 import androidx.navigation.NavDeepLinkBuilder
-import androidx.work.ExistingWorkPolicy
-import androidx.work.OneTimeWorkRequest
 import androidx.work.WorkManager
-import androidx.work.await
 import com.app.missednotificationsreminder.R
 import com.app.missednotificationsreminder.di.Injector.Companion.obtain
 import com.app.missednotificationsreminder.payment.model.Purchase
+import com.app.missednotificationsreminder.service.data.NotificationDataStore
+import com.app.missednotificationsreminder.service.data.ReminderConfigProvider
+import com.app.missednotificationsreminder.service.data.RestartCoalescer
+import com.app.missednotificationsreminder.service.data.WakeAccounting
 import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.data.model.NotificationsSnapshot
+import com.app.missednotificationsreminder.service.data.model.ReminderConfig
+import com.app.missednotificationsreminder.service.data.model.WakeStrategy
+import com.app.missednotificationsreminder.service.engine.ReminderEngine
+import com.app.missednotificationsreminder.service.engine.model.*
 import com.app.missednotificationsreminder.service.event.NotificationsUpdatedEvent
 import com.app.missednotificationsreminder.service.event.RemindEvents
+import com.app.missednotificationsreminder.service.scheduler.ReminderScheduler
+import com.app.missednotificationsreminder.service.sound.ReminderSoundPlayer
 import com.app.missednotificationsreminder.service.util.PhoneStateUtils
 import com.app.missednotificationsreminder.settings.SettingsFragment
 import com.app.missednotificationsreminder.settings.di.qualifiers.*
 import com.app.missednotificationsreminder.util.TimeUtils
-import com.app.missednotificationsreminder.util.event.Event
 import com.app.missednotificationsreminder.util.event.FlowEventBus
+import com.app.missednotificationsreminder.util.event.toFlow
 import com.app.missednotificationsreminder.util.flow.ambWith
+import com.app.missednotificationsreminder.util.logging.Logger
+import com.app.missednotificationsreminder.util.vibration.VibrationWaveform
 import com.tfcporciuncula.flow.Preference
 import dagger.android.AndroidInjector
 import dagger.android.ContributesAndroidInjector
@@ -57,9 +66,6 @@ import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.flow.*
 import timber.log.Timber
 import java.util.*
-import java.util.concurrent.ConcurrentLinkedQueue
-import java.util.concurrent.TimeUnit
-import java.util.concurrent.atomic.AtomicBoolean
 import javax.inject.Inject
 
 /**
@@ -70,10 +76,6 @@ import javax.inject.Inject
 class ReminderNotificationListenerService : AbstractReminderNotificationListenerService() {
     private val mDispatcher = ServiceLifecycleDispatcher(this)
 
-    @Inject
-    @ReminderEnabled
-    lateinit var reminderEnabled: Preference<Boolean>
-
     @JvmField
     @field:[Inject ReminderIntervalMin]
     var reminderIntervalMinimum: Int = 0
@@ -82,101 +84,68 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
     @ReminderInterval
     lateinit var reminderInterval: Preference<Int>
 
+    /**
+     * The provider of the reminder preferences snapshot
+     */
     @Inject
-    @ReminderRepeats
-    lateinit var reminderRepeats: Preference<Int>
-
-    @Inject
-    @LimitReminderRepeats
-    lateinit var limitReminderRepeats: Preference<Boolean>
+    lateinit var reminderConfigProvider: ReminderConfigProvider
 
-    @Inject
-    @CreateDismissNotification
-    lateinit var createDismissNotificationPref: Preference<Boolean>
+    /**
+     * The current reminder preferences snapshot, reading it doesn't touch the shared preferences
+     */
+    private val config: ReminderConfig
+        get() = reminderConfigProvider.config.value
 
     override val createDismissNotification: Boolean
-        get() = createDismissNotificationPref.get()
-
-    @Inject
-    @CreateDismissNotificationImmediately
-    lateinit var createDismissNotificationImmediately: Preference<Boolean>
-
-    @Inject
-    @ForceWakeLock
-    lateinit var forceWakeLock: Preference<Boolean>
-
-    @Inject
-    @SelectedApplications
-    lateinit var selectedApplications: Preference<Set<String>>
-
-    @Inject
-    @IgnorePersistentNotifications
-    lateinit var ignorePersistentNotifications: Preference<Boolean>
-
-    @Inject
-    @RespectPhoneCalls
-    lateinit var respectPhoneCalls: Preference<Boolean>
-
-    @Inject
-    @RespectRingerMode
-    lateinit var respectRingerMode: Preference<Boolean>
-
-    @Inject
-    @RemindWhenScreenIsOn
-    lateinit var remindWhenScreenIsOn: Preference<Boolean>
-
-    @Inject
-    @SchedulerEnabled
-    lateinit var schedulerEnabled: Preference<Boolean>
-
-    @Inject
-    @SchedulerMode
-    lateinit var schedulerMode: Preference<Boolean>
-
-    @Inject
-    @SchedulerRangeBegin
-    lateinit var schedulerRangeBegin: Preference<Int>
+        get() = config.createDismissNotification
 
     @Inject
-    @SchedulerRangeEnd
-    lateinit var schedulerRangeEnd: Preference<Int>
+    lateinit var purchases: Preference<List<Purchase>>
 
     @Inject
-    @ReminderRingtone
-    lateinit var reminderRingtone: Preference<String>
+    @RateAppClicked
+    lateinit var rateAppClicked: Preference<Boolean>
 
     @Inject
-    @Vibrate
-    lateinit var vibrate: Preference<Boolean>
+    @LegacyRemindersCancelled
+    lateinit var legacyRemindersCancelled: Preference<Boolean>
 
     @Inject
-    @VibrationPattern
-    lateinit var vibrationPattern: Preference<String>
+    @ReminderSessionsCount
+    lateinit var reminderSessionsCount: Preference<Int>
 
     @Inject
-    lateinit var purchases: Preference<List<Purchase>>
+    lateinit var mEventBus: FlowEventBus
 
+    /**
+     * The player of the prepared reminder sound
+     */
     @Inject
-    @RateAppClicked
-    lateinit var rateAppClicked: Preference<Boolean>
+    lateinit var soundPlayer: ReminderSoundPlayer
 
+    /**
+     * The accounting of the wake lock usage and the reminder ticks drift
+     */
     @Inject
-    @ReminderSessionsCount
-    lateinit var reminderSessionsCount: Preference<Int>
+    lateinit var wakeAccounting: WakeAccounting
 
+    /**
+     * The scheduler of the reminder ticks
+     */
     @Inject
-    lateinit var mEventBus: FlowEventBus
+    lateinit var reminderScheduler: ReminderScheduler
 
     /**
-     * List to store currently active notifications data
+     * Store for currently active notifications data and their ignored state
      */
-    private val availableNotifications = ConcurrentLinkedQueue<NotificationData>()
+    @Inject
+    lateinit var notificationsStore: NotificationDataStore
 
     /**
-     * List of notification data entries that are ignored. This list must contain same objects as
-     * mAvailableNotifications above.
+     * The reminder restart requests, coalesced before the restart
      */
-    private val ignoredNotifications = ConcurrentLinkedQueue<NotificationData>()
+    @Inject
+    lateinit var restartCoalescer: RestartCoalescer
 
     /**
      * The power manager to acquire wake locks for the reminder
@@ -249,16 +218,6 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
      */
     private var startedInForeground: Boolean = false
 
-    /**
-     * Number of remaining reminder repetitions.
-     */
-    private var remainingRepeats = 0
-
-    /**
-     * Whether the reminder occurs for the first time in the session
-     */
-    private var firstTimeSessionReminder = false
-
     /**
      * Notification manager for creating/removing dismiss notification.
      */
@@ -270,14 +229,9 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
     }
 
     /**
-     * The flag to indicate periodical notification active state
-     */
-    private val active = AtomicBoolean()
-
-    /**
-     * Field used to store reference to the timer subscription used when the wake lock option is specified
+     * The reminder state machine, the service executes its commands
      */
-    private var timerJob: Job? = null
+    private lateinit var engine: ReminderEngine
 
     /**
      * Receiver used to handle actions from the pending intent used for periodical alarms
@@ -318,6 +272,13 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
         StopRemindersReceiver()
     }
 
+    /**
+     * Receiver used to handle time zone changes
+     */
+    private val timeZoneChangedReceiver by lazy {
+        TimeZoneChangedReceiver()
+    }
+
     /**
      * The notification large icon cache
      */
@@ -331,11 +292,19 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
     @Volatile
     private var initializing = true
 
-    override val notificationsData: List<NotificationData>
-        get() = Collections.unmodifiableList(ArrayList(availableNotifications))
+    /**
+     * The notifications data changes accumulated by the currently applying batch if any
+     */
+    private var pendingNotificationsUpdate: PendingNotificationsUpdate? = null
+
+    override val notificationsSnapshot: NotificationsSnapshot
+        get() = notificationsStore.snapshot
+
+    override fun findNotificationData(id: String, packageName: String): NotificationData? =
+            notificationsStore.find(id, packageName)
 
-    override val ignoredNotificationsData: List<NotificationData>
-        get() = Collections.unmodifiableList(ArrayList(ignoredNotifications))
+    override fun notificationsDataFor(packageName: String): List<NotificationData> =
+            notificationsStore.forPackage(packageName)
 
 
     @CallSuper
@@ -387,6 +356,11 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
         if (reminderInterval.get() < reminderIntervalMinimum) {
             reminderInterval.set(TimeUtils.minutesToSeconds(reminderInterval.get().toDouble()))
         }
+        if (!legacyRemindersCancelled.get()) {
+            // the reminders enqueued by the previous versions, the ReminderScheduler doesn't use the WorkManager
+            workManager.cancelAllWorkByTag(RemindJob.TAG)
+            legacyRemindersCancelled.set(true)
+        }
 
         // initialize broadcast receiver
         registerReceiver(ringerModeChangedReceiver, IntentFilter(
@@ -401,168 +375,76 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
 
         // initialize dismiss notification service and receiver
         registerReceiver(stopRemindersReceiver, IntentFilter(STOP_REMINDERS_INTENT_ACTION))
+        // the schedule is compiled for the current time zone
+        registerReceiver(timeZoneChangedReceiver, IntentFilter(Intent.ACTION_TIMEZONE_CHANGED))
+
+        updateEligibilityFilter()
 
+        engine = ReminderEngine(config, deviceState(ringerMode.value, dndEnabled.value),
+                clock = System::currentTimeMillis,
+                hasEligibleNotifications = ::checkNotificationForAtLeastOnePackageExists,
+                commands = ::execute)
         // initialize preferences changes listeners
-        reminderEnabled
-                .asFlow()
-                .drop(1) // skip initial value emitted right after the subscription
-                .filter { it } // if reminder enabled
-                .filter { ready.value }
-                .onEach { checkWakingConditions() }
+        var previousConfig = config
+        reminderConfigProvider.config
+                .filter { it != previousConfig }
+                .onEach {
+                    onConfigChanged(previousConfig, it)
+                    previousConfig = it
+                }
                 .launchIn(lifecycleScope)
-
-        reminderEnabled
-                .asFlow()
-                .drop(1) // skip initial value emitted right after the subscription
-                .filter { !it } // if reminder disabled
-                .onEach { stopWaking() }
+        combine(ringerMode, dndEnabled) { ringerMode, dndEnabled -> deviceState(ringerMode, dndEnabled) }
+                .onEach { state -> Timber.d("Device state changed to %s", state) }
+                .onEach { state -> engine.handle(ReminderEvent.DeviceStateChanged(state)) }
                 .launchIn(lifecycleScope)
-        flowOf(
-                reminderInterval.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Reminder interval changed") }
-                        .map { true },
-                limitReminderRepeats.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Limit reminder repeats changed") }
-                        .map { true },
-                createDismissNotificationPref.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Create dismiss notification changed") }
-                        .map { true },
-                createDismissNotificationImmediately.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Create dismiss notification immediately changed") }
-                        .map { true },
-                reminderRepeats.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Reminder repeats changed") }
-                        .map { true },
-                forceWakeLock.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Force WakeLock changed") }
-                        .map { true },
-                selectedApplications.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Selected applications changed") }
-                        .map { true },
-                ignorePersistentNotifications.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Ignore persistent notifications changed") }
-                        .map { true },
-                respectPhoneCalls.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Respect phone calls changed") },
-                respectRingerMode.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Respect ringer mode changed") },
-                remindWhenScreenIsOn.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Remind when screen is on changed") },
-                schedulerEnabled.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Scheduler enabled changed") }
-                        .map { true },
-                schedulerMode.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Scheduler mode changed") }
-                        .map { true },
-                schedulerRangeBegin.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Scheduler range begin changed") }
-                        .map { true },
-                schedulerRangeEnd.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Scheduler range end changed") }
-                        .map { true },
-                vibrate.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Vibrate changed") },
-                vibrationPattern.asFlow()
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { Timber.d("Vibration pattern changed") },
-                ringerMode
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { v -> Timber.d("Ringer mode changed to %d", v) }
-                        .filter { respectRingerMode.get() }
-                        .map { true },
-                dndEnabled
-                        .drop(1) // skip initial value emitted right after the subscription
-                        .onEach { v -> Timber.d("DND mode changed to %b", v) }
-                        .filter { respectRingerMode.get() })
-                // increase number to the value which is greature than merged flows count
-                .flattenMerge(20)
-                .filter { ready.value }
+        // the bursts of changes cause the single restart
+        restartCoalescer.restarts(RESTART_COALESCE_DELAY) { ready.value }
                 .onEach {
+                    Timber.d("Restarting reminder, %d of %d restart requests coalesced",
+                            restartCoalescer.avoided, restartCoalescer.requested)
                     // restart alarm with new conditions if necessary
-                    stopWaking()
-                    checkWakingConditions()
+                    engine.handle(ReminderEvent.Restart)
                 }
                 .launchIn(lifecycleScope)
         // await for the service become ready event to send check waking conditions command
         ready
                 .filter { it }
                 .onEach {
-                    checkWakingConditions()
+                    engine.handle(ReminderEvent.Ready)
                     actualizeNotificationData()
                 }
                 .launchIn(lifecycleScope)
         // monitor for the remind events sent via event bus
-        mEventBus.toFlow()
+        mEventBus.toFlow<RemindEvents>()
                 .filter { event -> event === RemindEvents.REMIND }
                 .onEach { remindJobHandler.remind() }
                 .launchIn(lifecycleScope)
-        mEventBus.toFlow()
-                .filter { event: Event -> event === RemindEvents.GET_CURRENT_NOTIFICATIONS_DATA }
-                .onEach { mEventBus.send(NotificationsUpdatedEvent(notificationsData)) }
-                .launchIn(lifecycleScope)
         initializing = false
     }
 
     /**
-     * Check whether the waking alarm should be scheduled or no
+     * Apply the reminder config changes
+     *
+     * @param previous the previous config
+     * @param config   the new config
      */
-    private fun checkWakingConditions() {
-        Timber.d("checkWakingConditions() called %s", Thread.currentThread().name)
-        try {
-            if (active.get()) {
-                Timber.d("checkWakingConditions: already active, skipping")
-                return
-            }
-            if (!reminderEnabled.get()) {
-                Timber.d("checkWakingConditions: disabled, skipping")
-                return
-            }
-            if (respectRingerMode.get()) {
-                // if ringer mode should be respected
-                if (ringerMode.value == AudioManager.RINGER_MODE_SILENT) {
-                    Timber.d("checkWakingConditions: respecting silent mode, skipping")
-                    return
-                }
-                if (dndEnabled.value) {
-                    Timber.d("checkWakingConditions: respecting DND mode, skipping")
-                    return
-                }
-                if (ringerMode.value == AudioManager.RINGER_MODE_VIBRATE && !vibrate.get()) {
-                    Timber.d("checkWakingConditions: respecting vibrate mode while vibration is not enabled, skipping")
-                    return
-                }
-            }
-            val schedule = checkNotificationForAtLeastOnePackageExists(selectedApplications.get(), ignorePersistentNotifications.get())
-            if (schedule) {
-                Timber.d("checkWakingConditions: there are notifications from selected applications. Scheduling reminder")
-                // remember active state
-                active.set(true)
-                if (limitReminderRepeats.get()) {
-                    remainingRepeats = reminderRepeats.get()
-                }
-                scheduleNextWakeup(repeating = false)
-            } else {
-                Timber.d("checkWakingConditions: there are no notifications from selected applications to periodically remind")
-            }
-        } catch (t: Throwable) {
-            Timber.e(t, "Unexpected failure")
+    private fun onConfigChanged(previous: ReminderConfig, config: ReminderConfig) {
+        Timber.d("onConfigChanged() called")
+        if (config.eligibilityChanged(previous)) {
+            updateEligibilityFilter()
         }
+        engine.handle(ReminderEvent.ConfigChanged(config))
+    }
+
+    /**
+     * Request the reminder restart to apply the changed settings. The requests submitted within the
+     * [RESTART_COALESCE_DELAY] are coalesced into the single restart
+     *
+     * @param reason the restart reason for logging
+     */
+    private fun requestRestart(reason: String) {
+        Timber.d("requestRestart() called with: reason = %s", reason)
+        restartCoalescer.request()
     }
 
     /**
@@ -616,115 +498,121 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
         }
     }
 
-    private fun foregroundAllowed() = forceWakeLock.get() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+    private fun foregroundAllowed() = wakeStrategy() == WakeStrategy.WAKE_LOCK &&
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
 
     /**
-     * Schedule wakeup alarm for the sound notification pending intent
+     * Get the strategy to wake the device for the reminder after the regular reminder interval
      */
-    @SuppressLint("TimberArgCount")
-    private fun scheduleNextWakeup(repeating: Boolean, skipped: Boolean = false) {
-        Timber.d("scheduleNextWakeup() called with: repeating = $repeating, skipped = $skipped")
-        var scheduledTime: Long = 0
-        if (!skipped) {
-            if (limitReminderRepeats.get() && remainingRepeats-- <= 0) {
-                Timber.d("scheduleNextWakeup: ran out of reminder repeats, stopping")
-                stopWaking()
-                return
+    private fun wakeStrategy(): WakeStrategy = when {
+        config.adaptiveWake -> wakeAccounting.adaptiveStrategy(
+                config.reminderInterval * TimeUtils.MILLIS_IN_SECOND.toLong())
+        config.forceWakeLock -> WakeStrategy.WAKE_LOCK
+        else -> WakeStrategy.SYSTEM
+    }
+
+    /**
+     * Get the device state for the ringer mode and DND mode values
+     */
+    private fun deviceState(ringerMode: Int, dndEnabled: Boolean) = DeviceState(when (ringerMode) {
+        AudioManager.RINGER_MODE_SILENT -> RingerMode.SILENT
+        AudioManager.RINGER_MODE_VIBRATE -> RingerMode.VIBRATE
+        else -> RingerMode.NORMAL
+    }, dndEnabled)
+
+    /**
+     * Execute the reminder engine command
+     */
+    private fun execute(command: ReminderCommand) {
+        Timber.d("execute() called with: command = %s", command)
+        when (command) {
+            is ReminderCommand.ScheduleTick -> scheduleTick(command)
+            ReminderCommand.CancelTick -> cancelTick()
+            is ReminderCommand.PlayReminder -> remindJobHandler.play(command)
+            is ReminderCommand.ReminderFinished -> remindJobHandler.finished(command)
+            is ReminderCommand.ShowDismissNotification -> showDismissNotification(command)
+            ReminderCommand.HideDismissNotification -> {
+                cancelDismissNotification()
+                if (startedInForeground) {
+                    startedInForeground = false
+                    stopForeground(true)
+                }
             }
-            firstTimeSessionReminder = !repeating
-        }
-        if (schedulerEnabled.get()) {
-            // if custom scheduler is enabled
-            scheduledTime = TimeUtils.getScheduledTime(
-                    if (schedulerMode.get()) TimeUtils.SchedulerMode.WORKING_PERIOD else TimeUtils.SchedulerMode.NON_WORKING_PERIOD,
-                    schedulerRangeBegin.get(), schedulerRangeEnd.get(),
-                    System.currentTimeMillis() + reminderInterval.get() * TimeUtils.MILLIS_IN_SECOND)
+            is ReminderCommand.RequestRestart -> requestRestart(command.reason)
         }
-        if (createDismissNotificationPref.get() && (repeating || createDismissNotificationImmediately.get())) {
-            val notification = createDismissNotification()
-            if (!repeating && foregroundAllowed() && scheduledTime == 0L) {
-                Timber.d("Starting foreground")
-                startedInForeground = true
-                startForeground(DISMISS_NOTIFICATION_ID, notification.apply {
+    }
+
+    /**
+     * Show the dismiss notification, the service is started in foreground for the session held with the wake lock
+     */
+    private fun showDismissNotification(command: ReminderCommand.ShowDismissNotification) {
+        val notification = createDismissNotification()
+        if (command.firstInSession && foregroundAllowed() && !command.postponed) {
+            Timber.d("Starting foreground")
+            startedInForeground = true
+            startForeground(DISMISS_NOTIFICATION_ID, notification.apply {
+                flags = flags or NotificationCompat.FLAG_FOREGROUND_SERVICE
+            })
+        } else {
+            if (startedInForeground && command.postponed) {
+                stopForeground(true)
+                startedInForeground = false
+            }
+            notificationManager.notify(DISMISS_NOTIFICATION_ID, notification.apply {
+                if (startedInForeground) {
                     flags = flags or NotificationCompat.FLAG_FOREGROUND_SERVICE
-                })
-            } else {
-                if (startedInForeground && scheduledTime != 0L) {
-                    stopForeground(true)
-                    startedInForeground = false
                 }
-                notificationManager.notify(DISMISS_NOTIFICATION_ID, notification.apply {
-                    if (startedInForeground) {
-                        flags = flags or NotificationCompat.FLAG_FOREGROUND_SERVICE
-                    }
-                })
-            }
+            })
         }
-        if (scheduledTime == 0L) {
-            Timber.d("scheduleNextWakup: Schedule reminder for %1\$d seconds",
-                    reminderInterval.get())
-            if (forceWakeLock.get() && wakeLock == null) {
+    }
+
+    /**
+     * Schedule the next reminder tick with the wake strategy suitable for it
+     */
+    @SuppressLint("TimberArgCount")
+    private fun scheduleTick(command: ReminderCommand.ScheduleTick) {
+        var offset = command.offset
+        if (command.interval) {
+            Timber.d("scheduleTick: Schedule reminder for %1\$d seconds",
+                    config.reminderInterval)
+            val strategy = wakeStrategy()
+            if (strategy == WakeStrategy.WAKE_LOCK && wakeLock == null) {
                 // if wakelock workaround should be used
-                Timber.d("scheduleNextWakup: force wake lock")
+                Timber.d("scheduleTick: force wake lock")
                 wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
                         ReminderNotificationListenerService::class.java.simpleName)
                         .apply { acquire() }
+                wakeAccounting.wakeLockAcquired(SystemClock.elapsedRealtime())
+            } else if (strategy == WakeStrategy.SYSTEM) {
+                // the adaptive strategy may switch to the system scheduling when the interval grows
+                releaseWakeLockIfRequired()
+            }
+            if (command.firstInSession) {
+                // continue the interval interrupted by the process death if any
+                offset = reminderScheduler.restoredOffset(offset,
+                        reminderIntervalMinimum * TimeUtils.MILLIS_IN_SECOND.toLong()) ?: offset
             }
-            scheduleNextWakeupForOffset(reminderInterval.get() * TimeUtils.MILLIS_IN_SECOND.toLong())
         } else {
-            Timber.d("scheduleNextWakup: Schedule reminder for time %1\$tY-%1\$tm-%1\$td %1\$tH:%1\$tM:%1\$tS",
-                    Date(scheduledTime))
+            Timber.d("scheduleTick: Schedule reminder for time %1\$tY-%1\$tm-%1\$td %1\$tH:%1\$tM:%1\$tS",
+                    Date(System.currentTimeMillis() + offset))
             releaseWakeLockIfRequired()
-            scheduleNextWakeupForOffset(scheduledTime - System.currentTimeMillis())
         }
+        // use the in-process timer while the wake lock keeps the device awake and the system alarm otherwise
+        val strategy = if (wakeLock != null) WakeStrategy.WAKE_LOCK else WakeStrategy.SYSTEM
+        wakeAccounting.scheduled(strategy, SystemClock.elapsedRealtime() + offset)
+        reminderScheduler.schedule(lifecycleScope, strategy, offset) { remindJobHandler.remind() }
     }
 
     /**
-     * Schedule wakeup alarm for the sound notification pending intent
-     *
-     * @time the next wakeup time offset
+     * Cancel the scheduled reminder tick and interrupt the playing reminder
      */
-    private fun scheduleNextWakeupForOffset(timeOffset: Long) {
-        Timber.d("scheduleNextWakup: called")
-        timerJob = lifecycleScope.launch {
-            if (wakeLock != null) {
-                // use the manual timer action to trigger pending intent receiver instead instead of alarm manager
-                delay(timeOffset)
-                Timber.d("Wake from subscription")
-                remindJobHandler.remind()
-            } else {
-                workManager.beginUniqueWork(
-                        RemindJob.TAG,
-                        ExistingWorkPolicy.REPLACE,
-                        OneTimeWorkRequest.Builder(RemindJob::class.java)
-                                .setInitialDelay(timeOffset, TimeUnit.MILLISECONDS)
-                                .addTag(RemindJob.TAG)
-                                .build())
-                        .enqueue()
-                        .await()
-            }
-        }
-    }
-
-    /**
-     * Stop scheduled wakeup alarm for the periodical sound notification
-     */
-    private fun stopWaking() {
-        Timber.d("stopWaking() called")
-        stopWaking(false)
-        timerJob?.run {
-            cancel()
-            timerJob = null
-        }
-        // cancel any pending remind jobs
-        workManager.cancelAllWorkByTag(RemindJob.TAG)
+    private fun cancelTick() {
+        Timber.d("cancelTick() called")
+        // cancel any pending reminder ticks
+        reminderScheduler.cancel()
+        wakeAccounting.cancelled()
         remindJobHandler.interruptReminderIfActive()
         releaseWakeLockIfRequired()
-        cancelDismissNotification()
-        if (startedInForeground) {
-            startedInForeground = false
-            stopForeground(true)
-        }
     }
 
     /**
@@ -741,30 +629,20 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
                 Timber.e(ex)
             }
             wakeLock = null
+            wakeAccounting.wakeLockReleased(SystemClock.elapsedRealtime())
         }
     }
 
-    /**
-     * Stop scheduled wakeup alarm for the periodical sound notification
-     *
-     * @param force whether to do force cancel independently of the active flag value. Needed for active development
-     * when the pending intent may be changed or action scheduled by previous app run.
-     */
-    private fun stopWaking(force: Boolean) {
-        Timber.d("stopWaking")
-        if (active.compareAndSet(true, false) || force) {
-            Timber.d("stopWaking: cancel reminder")
-        }
-    }
-
-
     @CallSuper
     override fun onDestroy() {
         mDispatcher.onServicePreSuperOnDestroy()
         super.onDestroy()
         Timber.d("onDestroy")
-        // stop any scheduled alarms
-        stopWaking()
+        // stop any scheduled alarms, the engine is missing if the service is destroyed before the initialization
+        if (::engine.isInitialized) {
+            engine.handle(ReminderEvent.Destroyed)
+        }
+        soundPlayer.release()
         // unregister ringer mode changed receiver
         unregisterReceiver(ringerModeChangedReceiver)
         // unregister zen mode changed observer
@@ -775,59 +653,73 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
         }
         // unregister dismiss notification receiver
         unregisterReceiver(stopRemindersReceiver)
+        unregisterReceiver(timeZoneChangedReceiver)
+        // the store is shared, the data is actual only while the service is running
+        notificationsStore.clear()
     }
 
     override suspend fun onNotificationPosted(notificationData: NotificationData) {
         Timber.d("onNotificationPosted: %s", notificationData)
-        val existingElement = existingElement(notificationData)
+        val update = pendingNotificationsUpdate ?: PendingNotificationsUpdate(notificationsStore.version)
+        val existingElement = notificationsStore.put(notificationData)
         if (existingElement != null) {
-            Timber.d("onNotificationPosted: removing previous %s", existingElement)
-            availableNotifications.remove(existingElement)
+            Timber.d("onNotificationPosted: replaced previous %s", existingElement)
+            update.removed.add(existingElement)
         }
-        availableNotifications.add(notificationData)
-        if (!initializing) {
-            mEventBus.send(NotificationsUpdatedEvent(notificationsData))
-        }
-        if (!initializing && ready.value && selectedApplications.get().contains(notificationData.packageName)) {
-            // check waking conditions only if notification has been posted for the monitored application to prevent
-            // mRemainingRepeats overcome in case reminder is already stopped but new notification arrived from any not
-            // monitored app
-            if (limitReminderRepeats.get()) {
-                // reset reminder repeats such as new important notification has arrived
-                remainingRepeats = reminderRepeats.get()
-            }
-            if (!initializing) {
-                checkWakingConditions()
-            }
-        }
-    }
-
-    private fun existingElement(notificationData: NotificationData): NotificationData? {
-        var result: NotificationData? = null
-        for (item in notificationsData) {
-            if (TextUtils.equals(item.id, notificationData.id) &&
-                    TextUtils.equals(item.packageName, notificationData.packageName)) {
-                result = item
-                break
-            }
+        update.added.add(notificationData)
+        // check waking conditions only if notification has been posted for the monitored application to prevent
+        // mRemainingRepeats overcome in case reminder is already stopped but new notification arrived from any not
+        // monitored app
+        update.monitoredPosted = update.monitoredPosted || config.selectedApplications.contains(notificationData.packageName)
+        if (pendingNotificationsUpdate == null) {
+            dispatchNotificationsUpdate(update)
         }
-        return result
     }
 
     override suspend fun onNotificationRemoved(notificationData: NotificationData) {
         Timber.d("onNotificationRemoved: %s", notificationData)
-        if (!availableNotifications.remove(notificationData)) {
+        val update = pendingNotificationsUpdate ?: PendingNotificationsUpdate(notificationsStore.version)
+        if (notificationsStore.remove(notificationData)) {
+            update.removed.add(notificationData)
+        } else {
             Timber.w("onNotificationRemoved: removal failed")
         }
-        if (!initializing) {
-            mEventBus.send(NotificationsUpdatedEvent(notificationsData))
+        if (pendingNotificationsUpdate == null) {
+            dispatchNotificationsUpdate(update)
         }
-        if (active.get() && !checkNotificationForAtLeastOnePackageExists(selectedApplications.get(), ignorePersistentNotifications.get())) {
-            // stop alarm if there are no more notifications to update
-            stopWaking()
+    }
+
+    override suspend fun applyNotificationsBatch(block: suspend () -> Unit) {
+        if (pendingNotificationsUpdate != null) {
+            // nested batch, the outer one dispatches the update
+            block()
+            return
+        }
+        val update = PendingNotificationsUpdate(notificationsStore.version)
+        pendingNotificationsUpdate = update
+        try {
+            block()
+        } finally {
+            pendingNotificationsUpdate = null
+            dispatchNotificationsUpdate(update)
         }
     }
 
+    /**
+     * Notify listeners about notifications data changes and evaluate the reminder conditions
+     *
+     * @param update the accumulated notifications data changes
+     */
+    private suspend fun dispatchNotificationsUpdate(update: PendingNotificationsUpdate) {
+        if (update.added.isEmpty() && update.removed.isEmpty() || initializing) {
+            return
+        }
+        // subscribers which missed the event resynchronize using the store snapshot
+        mEventBus.emit(NotificationsUpdatedEvent(update.fromVersion, notificationsStore.version,
+                update.added, update.removed))
+        engine.handle(ReminderEvent.NotificationsChanged(update.removed.isNotEmpty(), update.monitoredPosted))
+    }
+
     override fun onReady() {
         Timber.d("onReady")
         ready.value = true
@@ -838,47 +730,28 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
      * false unless there are new notifications created after this call.
      */
     fun ignoreAllCurrentNotifications() {
-        ignoredNotifications.clear()
-        ignoredNotifications.addAll(availableNotifications)
+        notificationsStore.ignoreAll()
     }
 
     /**
-     * Check whether the at least one notification for specified packages is present in the status bar
+     * Check whether the at least one not ignored notification for the selected applications is present in the
+     * status bar. The ongoing notifications are skipped if the corresponding preference is set.
      *
-     * @param packages      the collection of packages to check
-     * @param ignoreOngoing whether the ongoing notifications should be ignored
      * @return true if notification for at least one package is found, false otherwise
      */
-    private fun checkNotificationForAtLeastOnePackageExists(packages: Collection<String>, ignoreOngoing: Boolean): Boolean {
-        // Remove notifications that were already cancelled to avoid memory leaks.
-        val copy: List<NotificationData> = ArrayList(ignoredNotifications)
-        for (ignoredNotification in copy) {
-            if (!notificationsData.contains(ignoredNotification)) {
-                ignoredNotifications.remove(ignoredNotification)
-            }
-        }
-        var result = false
-        for (notificationData in notificationsData) {
-            val packageName = notificationData.packageName
-            Timber.d("checkNotificationForAtLeastOnePackageExists: checking package %1\$s", packageName)
-            val contains = packages.contains(packageName)
-            if (contains && ignoreOngoing && notificationData.flags and Notification.FLAG_ONGOING_EVENT == Notification.FLAG_ONGOING_EVENT) {
-                Timber.d("checkNotificationForAtLeastOnePackageExists: found ongoing match which is requested to be skipped")
-                continue
-            }
-            if (ignoredNotifications.contains(notificationData)) {
-                Timber.d("checkNotificationForAtLeastOnePackageExists: notification ignored")
-                continue
-            }
-            result = result or contains
-            if (result) {
-                Timber.d("checkNotificationForAtLeastOnePackageExists: found match for package %1\$s", packageName)
-                break
-            }
-        }
+    private fun checkNotificationForAtLeastOnePackageExists(): Boolean {
+        val result = notificationsStore.hasEligibleNotifications
+        Logger.d { "checkNotificationForAtLeastOnePackageExists: $result" }
         return result
     }
 
+    /**
+     * Update the notifications store eligibility filter with the current preference values
+     */
+    private fun updateEligibilityFilter() {
+        notificationsStore.updateEligibilityFilter(config.selectedApplications, config.ignorePersistentNotifications)
+    }
+
     /**
      * The broadcast receiver for ringer mode changed events
      */
@@ -984,66 +857,67 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
          */
         var vibrationWakeLock: WakeLock? = null
 
-        suspend fun remind() = coroutineScope {
-            reminderJob = launch {
-                Timber.d("onReceive: current thread %1\$s", Thread.currentThread().name)
-                if (!active.get()) {
-                    Timber.w("onReceive: Invalid service activity state, stopping reminder")
-                    stopWaking(true)
-                    return@launch
-                }
-                if (!remindWhenScreenIsOn.get() && isScreenOn(applicationContext)) {
-                    Timber.d("onReceive: The screen is on and remind when screen is on is not specified, skip notification")
-                    reminderSkipped()
-                } else if (PhoneStateUtils.isCallActive(applicationContext) && respectPhoneCalls.get()) {
-                    Timber.d("onReceive: The phone call is active and respect phone calls setting is specified, skip notification")
-                    reminderSkipped()
-                } else {
-                    try {
-                        Timber.d("onReceive: The screen is off, notify")
-                        interruptReminderIfActive()
-                        val playbackCompleted = async { playReminder() }
-                        // Start without a delay
-                        // Each element then alternates between vibrate, sleep, vibrate, sleep...
-                        val vibrationCompletedAtLeastOnce = if (vibrate.get() && (!respectRingerMode.get() || ringerMode.value != AudioManager.RINGER_MODE_SILENT)) {
-                            // if vibration is turned on and phone is not in silent mode or respect ringer mode option is disabled
-                            async { vibrateAtLeastOnce(vibrationPattern.get()) }
-                        } else {
-                            async {}
-                        }
-                        // await for both playback and minimum vibration duration to complete
-                        playbackCompleted.await()
-                        vibrationCompletedAtLeastOnce.await()
-                        reminderCompleted()
-                        Timber.d("Reminder completed")
-                    } finally {
-                        if (coroutineContext[Job]?.isCancelled != false) {
-                            cancelVibrator()
-                        }
+        /**
+         * Handle the fired reminder tick
+         */
+        fun remind() {
+            wakeAccounting.fired(SystemClock.elapsedRealtime())?.let { drift ->
+                Timber.d("remind: fired %d ms late", drift)
+            }
+            if (!engine.active) {
+                Timber.w("remind: Invalid service activity state, skipping")
+                // the stale alarm or timer of the stopped reminder
+                execute(ReminderCommand.CancelTick)
+                return
+            }
+            engine.handle(ReminderEvent.Tick(
+                    screenOn = isScreenOn(applicationContext),
+                    callActive = PhoneStateUtils.isCallActive(applicationContext)))
+        }
+
+        /**
+         * Play the reminder sound and vibrate
+         */
+        fun play(command: ReminderCommand.PlayReminder) {
+            interruptReminderIfActive()
+            reminderJob = lifecycleScope.launch {
+                try {
+                    Timber.d("play: notify")
+                    val playbackCompleted = async { command.sound?.let { playReminder(it) } }
+                    // Start without a delay
+                    // Each element then alternates between vibrate, sleep, vibrate, sleep...
+                    val vibrationCompletedAtLeastOnce = async { command.vibration?.let { vibrateAtLeastOnce(it) } }
+                    // await for both playback and minimum vibration duration to complete
+                    playbackCompleted.await()
+                    vibrationCompletedAtLeastOnce.await()
+                    actualizeNotificationData()
+                    cancelVibrator()
+                    Timber.d("Reminder completed")
+                    engine.handle(ReminderEvent.ReminderCompleted)
+                } finally {
+                    if (coroutineContext[Job]?.isCancelled != false) {
+                        cancelVibrator()
                     }
                 }
             }
         }
 
-        private suspend fun reminderCompleted() {
-            Timber.d("reminderCompleted() called")
-            actualizeNotificationData()
-            cancelVibrator()
-            // notify listeners about reminder completion
-            mEventBus.send(RemindEvents.REMINDER_COMPLETED)
-            if (firstTimeSessionReminder) {
+        /**
+         * Notify the listeners the reminder tick has been handled
+         */
+        fun finished(command: ReminderCommand.ReminderFinished) {
+            if (command.sessionReminder) {
                 reminderSessionsCount.run { set(get() + 1) }
             }
-            scheduleNextWakeup(repeating = true)
-        }
-
-        private suspend fun reminderSkipped() {
-            Timber.d("reminderSkipped() called")
-            actualizeNotificationData()
-            // notify listeners about reminder completion
-            mEventBus.send(RemindEvents.REMINDER_COMPLETED)
-            scheduleNextWakeup(repeating = true, skipped = true)
-
+            lifecycleScope.launch {
+                if (!command.played) {
+                    Timber.d("finished: the reminder has been skipped")
+                    actualizeNotificationData()
+                }
+                // notify listeners about reminder completion. It is emitted outside of the remind events collector
+                // which would deadlock on the full topic buffer
+                mEventBus.emit(RemindEvents.REMINDER_COMPLETED)
+            }
         }
 
         private fun cancelVibrator() {
@@ -1061,21 +935,12 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
             }
         }
 
-        private suspend fun vibrateAtLeastOnce(rawPattern: String) {
+        private suspend fun vibrateAtLeastOnce(waveform: VibrationWaveform) {
             try {
-                var vibrationDuration: Long = 0
-                val pattern = parseVibrationPattern(rawPattern)
-                for (step in pattern) {
-                    vibrationDuration += step
-                }
+                val vibrationDuration = waveform.duration
                 vibrationWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
                         "MissedNotificationsReminder:VIBRATOR_LOCK").apply { acquire(2 * vibrationDuration) }
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    vibrator.vibrate(VibrationEffect.createWaveform(pattern, 0))
-                } else {
-                    @Suppress("DEPRECATION")
-                    vibrator.vibrate(pattern, 0)
-                }
+                waveform.vibrate(vibrator, repeating = true)
                 Timber.d("Minimum vibration duration: %d", vibrationDuration)
                 delay(vibrationDuration)
                 Timber.d("Minimum vibration completed")
@@ -1084,12 +949,20 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
             }
         }
 
-        private suspend fun playReminder() {
+        private suspend fun playReminder(sound: ReminderSound) {
+            val streamType = if (sound.alarmStream) AudioManager.STREAM_ALARM else AudioManager.STREAM_NOTIFICATION
+            if (!soundPlayer.play(sound.ringtone, streamType, sound.muted)) {
+                playReminderWithMediaPlayer(sound.ringtone, streamType, sound.muted)
+            }
+        }
+
+        /**
+         * Play the reminder ringtone which is not prepared by the [soundPlayer]
+         */
+        private suspend fun playReminderWithMediaPlayer(ringtone: String, streamType: Int, muted: Boolean) {
             callbackFlow<Any> {
                 try {
                     mediaPlayer.reset()
-                    // use alternative stream if respect ringer mode is disabled
-                    val streamType = if (respectRingerMode.get()) AudioManager.STREAM_NOTIFICATION else AudioManager.STREAM_ALARM
                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
                         mediaPlayer.setAudioAttributes(AudioAttributes.Builder()
                                 .setLegacyStreamType(streamType)
@@ -1098,8 +971,7 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
                         @Suppress("DEPRECATION")
                         mediaPlayer.setAudioStreamType(streamType)
                     }
-                    if (respectRingerMode.get() && (ringerMode.value == AudioManager.RINGER_MODE_VIBRATE || ringerMode.value == AudioManager.RINGER_MODE_SILENT)) {
-                        // mute sound explicitly for silent ringer modes because some user claims that sound is not muted on their devices in such cases
+                    if (muted) {
                         mediaPlayer.setVolume(0f, 0f)
                     } else {
                         mediaPlayer.setVolume(1f, 1f)
@@ -1113,22 +985,15 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
                         Timber.d("completion")
                         close()
                     }
-                    // get the selected notification sound URI
-                    val ringtone = reminderRingtone.get()
-                    if (TextUtils.isEmpty(ringtone)) {
-                        Timber.w("The reminder ringtone is not specified. Skip playing")
-                        close()
-                    } else {
-                        Timber.d("onReceive: ringtone %1\$s", ringtone)
-                        val notification = Uri.parse(ringtone)
-                        mediaPlayer.setOnPreparedListener {
-                            Timber.d("MediaPlayer prepared")
-                            mediaPlayer.start()
-                            offer(notification)
-                        }
-                        mediaPlayer.setDataSource(applicationContext, notification)
-                        mediaPlayer.prepareAsync()
+                    Timber.d("onReceive: ringtone %1\$s", ringtone)
+                    val notification = Uri.parse(ringtone)
+                    mediaPlayer.setOnPreparedListener {
+                        Timber.d("MediaPlayer prepared")
+                        mediaPlayer.start()
+                        offer(notification)
                     }
+                    mediaPlayer.setDataSource(applicationContext, notification)
+                    mediaPlayer.prepareAsync()
                 } catch (ex: Exception) {
                     Timber.e(ex)
                     close(ex)
@@ -1195,11 +1060,48 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
             lifecycleScope.launch {
                 Timber.d("dismiss notification cancelled")
                 ignoreAllCurrentNotifications()
-                stopWaking()
+                engine.handle(ReminderEvent.Dismissed)
+            }
+        }
+    }
+
+    /**
+     * The broadcast receiver for time zone changed events
+     */
+    internal inner class TimeZoneChangedReceiver : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            Timber.d("onReceive: %s", intent)
+            // recompile for the new time zone on the next use
+            if (::engine.isInitialized) {
+                engine.handle(ReminderEvent.TimeZoneChanged)
             }
         }
     }
 
+    /**
+     * The notifications data changes accumulated while applying the notification updates
+     */
+    private class PendingNotificationsUpdate(
+            /**
+             * The notifications store version before the update
+             */
+            val fromVersion: Long) {
+        /**
+         * The added notifications data
+         */
+        val added = mutableListOf<NotificationData>()
+
+        /**
+         * The removed notifications data
+         */
+        val removed = mutableListOf<NotificationData>()
+
+        /**
+         * Whether any notification has been posted for the monitored application
+         */
+        var monitoredPosted = false
+    }
+
     @dagger.Module
     abstract class Module {
         @ContributesAndroidInjector
@@ -1218,14 +1120,9 @@ class ReminderNotificationListenerService : AbstractReminderNotificationListener
          */
         const val DISMISS_NOTIFICATION_ID = 42
 
-        fun parseVibrationPattern(rawPattern: String): LongArray {
-            // This code assumes the pattern string matches regexp \d+(\s*,\s*\d+)*
-            val components = rawPattern.split("\\s*,\\s*".toRegex()).toTypedArray()
-            val parsedPattern = LongArray(components.size)
-            for (i in components.indices) {
-                parsedPattern[i] = components[i].toLong()
-            }
-            return parsedPattern
-        }
+        /**
+         * The delay in milliseconds after the last settings restart request before the reminder is restarted
+         */
+        private const val RESTART_COALESCE_DELAY = 500L
     }
 }
@@ -2,6 +2,7 @@ package com.app.missednotificationsreminder.service
 
 import androidx.lifecycle.LifecycleOwner
 import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.data.model.NotificationsSnapshot
 
 /**
  * The reminder service interface for basic notification handling functionality
@@ -21,23 +22,57 @@ interface ReminderNotificationListenerServiceInterface : LifecycleOwner{
      */
     suspend fun onNotificationRemoved(notificationData: NotificationData)
 
+    /**
+     * Apply the batch of notification updates. The notification updates performed within the [block] via
+     * [onNotificationPosted] and [onNotificationRemoved] are applied to the notifications data immediately, but the
+     * notifications updated event and the reminder conditions evaluation are performed only once after the whole
+     * batch is applied
+     *
+     * @param block the block which posts and removes notifications
+     */
+    suspend fun applyNotificationsBatch(block: suspend () -> Unit)
+
     /**
      * The method which should be called when a notification listener service is ready
      */
     fun onReady()
 
+    /**
+     * Get the immutable snapshot of the currently showing and ignoring notification data
+     */
+    val notificationsSnapshot: NotificationsSnapshot
+
     /**
      * Get the currently showing notification data
      *
      * @return
      */
     val notificationsData: List<NotificationData>
+        get() = notificationsSnapshot.notifications
 
     /**
      * Get the currently ignoring notification data
      * @return
      */
     val ignoredNotificationsData: List<NotificationData>
+        get() = notificationsSnapshot.ignoredNotifications
+
+    /**
+     * Find the currently showing notification data
+     *
+     * @param id          the notification id
+     * @param packageName the notification package name
+     * @return found notification data or null
+     */
+    fun findNotificationData(id: String, packageName: String): NotificationData?
+
+    /**
+     * Get the currently showing notification data posted by the package
+     *
+     * @param packageName the notifications package name
+     * @return the notification data of the package
+     */
+    fun notificationsDataFor(packageName: String): List<NotificationData>
 
     val createDismissNotification: Boolean
 
@@ -45,4 +80,11 @@ interface ReminderNotificationListenerServiceInterface : LifecycleOwner{
      * Actualize the notification date
      */
     suspend fun actualizeNotificationData()
-}
\ No newline at end of file
+
+    companion object {
+        /**
+         * The window in milliseconds used to coalesce notification events bursts into a single batch
+         */
+        const val NOTIFICATION_EVENTS_BATCH_WINDOW = 100L
+    }
+}
@@ -0,0 +1,67 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.service.data.model.NotificationsSnapshot
+import com.app.missednotificationsreminder.service.event.NotificationsUpdatedEvent
+
+/**
+ * Tracker of the per package active notifications number. It is initialized from the [NotificationsSnapshot] and
+ * then updated by the [NotificationsUpdatedEvent] deltas in time proportional to the number of changes
+ */
+class NotificationCountsTracker {
+    private val counts = HashMap<String, Int>()
+
+    /**
+     * The version of the notifications snapshot the current counts correspond to
+     */
+    var version = NOT_INITIALIZED
+        private set
+
+    /**
+     * Reset the counts to match the snapshot
+     *
+     * @param snapshot the notifications snapshot
+     * @return the copy of the counts for all the packages with the active notifications
+     */
+    fun reset(snapshot: NotificationsSnapshot): Map<String, Int> {
+        counts.clear()
+        for (data in snapshot.notifications) {
+            counts[data.packageName] = (counts[data.packageName] ?: 0) + 1
+        }
+        version = snapshot.version
+        return HashMap(counts)
+    }
+
+    /**
+     * Apply the notifications data changes
+     *
+     * @param event the event with the changes
+     * @return the current counts of the changed packages, 0 for the packages without active notifications anymore,
+     * or null if the event doesn't follow the current version and the tracker should be [reset]
+     */
+    fun apply(event: NotificationsUpdatedEvent): Map<String, Int>? {
+        if (version != NOT_INITIALIZED && event.version <= version) {
+            // changes are already included
+            return emptyMap()
+        }
+        if (event.fromVersion != version) {
+            return null
+        }
+        val changes = event.countChanges
+        val result = HashMap<String, Int>(changes.size)
+        for ((packageName, change) in changes) {
+            val count = (counts[packageName] ?: 0) + change
+            if (count > 0) {
+                counts[packageName] = count
+            } else {
+                counts.remove(packageName)
+            }
+            result[packageName] = count.coerceAtLeast(0)
+        }
+        version = event.version
+        return result
+    }
+
+    companion object {
+        private const val NOT_INITIALIZED = -1L
+    }
+}
@@ -0,0 +1,294 @@
+package com.app.missednotificationsreminder.service.data
+
+import android.app.Notification
+import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.data.model.NotificationsSnapshot
+import java.util.*
+import java.util.concurrent.atomic.AtomicLong
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The store for the currently active notifications data. Entries are keyed by the notification id and package name
+ * pair so the post, removal and lookup operations are performed in constant time. Additionally the store maintains
+ * per package index, the ignored state of each entry and per package counters of the eligible entries.
+ *
+ * The entry is eligible for the reminder if it belongs to the monitored package, is not ignored and is not an
+ * ongoing one while the ongoing notifications should be ignored. See [updateEligibilityFilter].
+ *
+ * Readers get the immutable [snapshot] which is shared between all of them. Modifications only change the [version],
+ * the snapshot is rebuilt lazily on the first read after them, so the post and removal stay constant time operations.
+ * The store is owned by the reminder service, other components use it only to read the [snapshot].
+ */
+@Singleton
+class NotificationDataStore @Inject constructor() {
+    /**
+     * Active notifications data entries in the insertion order
+     */
+    private val entries = LinkedHashMap<Key, Entry>()
+
+    /**
+     * Secondary index: package name to the notification id to entry map
+     */
+    private val packages = HashMap<String, PackageEntries>()
+
+    /**
+     * Number of the active entries which are marked as ignored
+     */
+    private var ignoredCount = 0
+
+    /**
+     * Number of the active entries which are eligible for the reminder
+     */
+    private var eligibleCount = 0
+
+    /**
+     * Packages the eligible entries may belong to
+     */
+    private var monitoredPackages: Set<String> = emptySet()
+
+    /**
+     * Whether the ongoing entries are not eligible
+     */
+    private var ignoreOngoing = false
+
+    /**
+     * The version of the current store content, changed on each modification
+     */
+    var version = 0L
+        @Synchronized get
+        private set
+
+    /**
+     * The last built snapshot
+     */
+    private var cachedSnapshot = NotificationsSnapshot.EMPTY
+
+    /**
+     * Number of the snapshots built so far
+     */
+    var snapshotsBuilt = 0L
+        @Synchronized get
+        private set
+
+    /**
+     * Number of the currently active notifications
+     */
+    val size: Int
+        @Synchronized get() = entries.size
+
+    /**
+     * Get the immutable snapshot of the current store content. The snapshot is rebuilt only if the store has been
+     * modified since the previous call
+     */
+    val snapshot: NotificationsSnapshot
+        @Synchronized get() {
+            if (cachedSnapshot.version != version) {
+                snapshotsBuilt++
+                cachedSnapshot = NotificationsSnapshot(version,
+                        entries.values.mapTo(ArrayList(entries.size)) { it.data },
+                        entries.values
+                                .filter { it.ignored }
+                                .mapTo(ArrayList(ignoredCount)) { it.data })
+            }
+            return cachedSnapshot
+        }
+
+    /**
+     * Get the currently active notifications data in the insertion order
+     */
+    val notifications: List<NotificationData>
+        get() = snapshot.notifications
+
+    /**
+     * Get the currently ignored notifications data in the insertion order
+     */
+    val ignoredNotifications: List<NotificationData>
+        get() = snapshot.ignoredNotifications
+
+    /**
+     * Whether at least one eligible notification is present. This is constant time check
+     */
+    val hasEligibleNotifications: Boolean
+        @Synchronized get() = eligibleCount > 0
+
+    /**
+     * Put the notification data to the store. Previous entry with the same id and package name is replaced. The
+     * ignored state is kept only if the previous entry is equal to the new one (notification is re-posted)
+     *
+     * @param notificationData the notification data to store
+     * @return the replaced notification data if any
+     */
+    @Synchronized
+    fun put(notificationData: NotificationData): NotificationData? {
+        val previous = removeEntry(notificationData.packageName, notificationData.id)
+        val entry = Entry(notificationData)
+        if (previous != null && previous.ignored && previous.data == notificationData) {
+            entry.ignored = true
+            ignoredCount++
+        }
+        entries[Key(notificationData.id, notificationData.packageName)] = entry
+        val packageEntries = packages.getOrPut(notificationData.packageName) { PackageEntries() }
+        packageEntries.entries[notificationData.id] = entry
+        if (isEligible(entry)) {
+            packageEntries.eligibleCount++
+            eligibleCount++
+        }
+        modified()
+        return previous?.data
+    }
+
+    /**
+     * Remove the notification data from the store. Nothing is removed if the store contains different notification
+     * data for the same id and package name
+     *
+     * @param notificationData the notification data to remove
+     * @return true if the notification data was removed, false otherwise
+     */
+    @Synchronized
+    fun remove(notificationData: NotificationData): Boolean {
+        val entry = packages[notificationData.packageName]?.entries?.get(notificationData.id)
+        if (entry == null || entry.data != notificationData) {
+            return false
+        }
+        removeEntry(notificationData.packageName, notificationData.id)
+        modified()
+        return true
+    }
+
+    /**
+     * Find the stored notification data
+     *
+     * @param id          the notification id
+     * @param packageName the notification package name
+     * @return found notification data or null
+     */
+    @Synchronized
+    fun find(id: String, packageName: String): NotificationData? = packages[packageName]?.entries?.get(id)?.data
+
+    /**
+     * Check whether the store contains the notification data
+     *
+     * @param notificationData the notification data to check
+     */
+    @Synchronized
+    operator fun contains(notificationData: NotificationData): Boolean =
+            find(notificationData.id, notificationData.packageName) == notificationData
+
+    /**
+     * Get the copy of the notifications data posted by the specified package
+     *
+     * @param packageName the package name to get the notifications data for
+     */
+    @Synchronized
+    fun forPackage(packageName: String): List<NotificationData> =
+            packages[packageName]?.entries?.values?.map { it.data } ?: emptyList()
+
+    /**
+     * Get the number of the eligible notifications posted by the specified package
+     *
+     * @param packageName the package name to get the number of eligible notifications for
+     */
+    @Synchronized
+    fun eligibleCount(packageName: String): Int = packages[packageName]?.eligibleCount ?: 0
+
+    /**
+     * Update the conditions the eligible entries should match and recalculate the eligible entries counters
+     *
+     * @param packages      the packages the eligible entries may belong to
+     * @param ignoreOngoing whether the ongoing entries are not eligible
+     */
+    @Synchronized
+    fun updateEligibilityFilter(packages: Collection<String>, ignoreOngoing: Boolean) {
+        monitoredPackages = HashSet(packages)
+        this.ignoreOngoing = ignoreOngoing
+        eligibleCount = 0
+        for (packageEntries in this.packages.values) {
+            packageEntries.eligibleCount = packageEntries.entries.values.count { isEligible(it) }
+            eligibleCount += packageEntries.eligibleCount
+        }
+    }
+
+    /**
+     * Check whether the notification data is stored and marked as ignored
+     *
+     * @param notificationData the notification data to check
+     */
+    @Synchronized
+    fun isIgnored(notificationData: NotificationData): Boolean =
+            packages[notificationData.packageName]?.entries?.get(notificationData.id)
+                    ?.takeIf { it.data == notificationData }
+                    ?.ignored ?: false
+
+    /**
+     * Mark all currently stored notifications data as ignored. Entries posted after this call are not ignored
+     */
+    @Synchronized
+    fun ignoreAll() {
+        for (entry in entries.values) {
+            entry.ignored = true
+        }
+        for (packageEntries in packages.values) {
+            packageEntries.eligibleCount = 0
+        }
+        ignoredCount = entries.size
+        eligibleCount = 0
+        modified()
+    }
+
+    /**
+     * Remove all the notifications data from the store
+     */
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        packages.clear()
+        ignoredCount = 0
+        eligibleCount = 0
+        modified()
+    }
+
+    private fun modified() {
+        version = versions.incrementAndGet()
+    }
+
+    private fun removeEntry(packageName: String, id: String): Entry? {
+        val packageEntries = packages[packageName] ?: return null
+        val entry = packageEntries.entries.remove(id) ?: return null
+        if (isEligible(entry)) {
+            packageEntries.eligibleCount--
+            eligibleCount--
+        }
+        if (packageEntries.entries.isEmpty()) {
+            packages.remove(packageName)
+        }
+        entries.remove(Key(id, packageName))
+        if (entry.ignored) {
+            ignoredCount--
+        }
+        return entry
+    }
+
+    private fun isEligible(entry: Entry): Boolean =
+            !entry.ignored &&
+                    monitoredPackages.contains(entry.data.packageName) &&
+                    !(ignoreOngoing && entry.data.flags and Notification.FLAG_ONGOING_EVENT == Notification.FLAG_ONGOING_EVENT)
+
+    private data class Key(val id: String, val packageName: String)
+
+    private class Entry(val data: NotificationData) {
+        var ignored = false
+    }
+
+    private class PackageEntries {
+        val entries = LinkedHashMap<String, Entry>()
+        var eligibleCount = 0
+    }
+
+    companion object {
+        /**
+         * Process wide version sequence so the snapshots of different store instances never share the version
+         */
+        private val versions = AtomicLong()
+    }
+}
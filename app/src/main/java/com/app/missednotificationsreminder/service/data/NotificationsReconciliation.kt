@@ -0,0 +1,45 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.service.data.model.NotificationData
+import java.util.*
+
+/**
+ * The result of the reconciliation between the currently active system notifications and the known notifications
+ * data
+ *
+ * @param T the type of the active system notification
+ * @property added the active system notifications which are absent in the known notifications data
+ * @property removed the known notifications data which are absent in the active system notifications
+ */
+class NotificationsReconciliation<T>(
+        val added: List<T>,
+        val removed: List<NotificationData>) {
+    companion object {
+        /**
+         * Perform a single pass reconciliation between the currently active system notifications and the known
+         * notifications data. Both collections are matched by the keys using hashing so the reconciliation takes
+         * O(n + m) time
+         *
+         * @param active    the currently active system notifications
+         * @param known     the known notifications data
+         * @param activeKey the function to get the matching key for the active system notification
+         * @param knownKey  the function to get the matching key for the known notification data
+         */
+        inline fun <T, K> reconcile(active: Iterable<T>,
+                                    known: Collection<NotificationData>,
+                                    activeKey: (T) -> K,
+                                    knownKey: (NotificationData) -> K): NotificationsReconciliation<T> {
+            val remaining = LinkedHashMap<K, NotificationData>(known.size * 4 / 3 + 1)
+            for (notificationData in known) {
+                remaining[knownKey(notificationData)] = notificationData
+            }
+            val added = mutableListOf<T>()
+            for (notification in active) {
+                if (remaining.remove(activeKey(notification)) == null) {
+                    added.add(notification)
+                }
+            }
+            return NotificationsReconciliation(added, ArrayList(remaining.values))
+        }
+    }
+}
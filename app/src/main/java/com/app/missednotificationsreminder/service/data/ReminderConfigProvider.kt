@@ -0,0 +1,117 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.data.PreferenceChangeDispatcher
+import com.app.missednotificationsreminder.service.data.model.ReminderConfig
+import com.app.missednotificationsreminder.settings.di.qualifiers.*
+import com.app.missednotificationsreminder.util.vibration.VibrationWaveform
+import com.tfcporciuncula.flow.Preference
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import timber.log.Timber
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The provider of the current [ReminderConfig]. The config is read from the preferences once and only the changed
+ * field is updated when any of the backing preferences changes, so reading the [config] value never touches the
+ * shared preferences.
+ */
+@Singleton
+class ReminderConfigProvider @Inject constructor(
+        dispatcher: PreferenceChangeDispatcher,
+        @param:ReminderEnabled private val reminderEnabled: Preference<Boolean>,
+        @param:ReminderInterval private val reminderInterval: Preference<Int>,
+        @param:LimitReminderRepeats private val limitReminderRepeats: Preference<Boolean>,
+        @param:ReminderRepeats private val reminderRepeats: Preference<Int>,
+        @param:CreateDismissNotification private val createDismissNotification: Preference<Boolean>,
+        @param:CreateDismissNotificationImmediately private val createDismissNotificationImmediately: Preference<Boolean>,
+        @param:ForceWakeLock private val forceWakeLock: Preference<Boolean>,
+        @param:AdaptiveWake private val adaptiveWake: Preference<Boolean>,
+        @param:SelectedApplications private val selectedApplications: Preference<Set<String>>,
+        @param:IgnorePersistentNotifications private val ignorePersistentNotifications: Preference<Boolean>,
+        @param:RespectPhoneCalls private val respectPhoneCalls: Preference<Boolean>,
+        @param:RespectRingerMode private val respectRingerMode: Preference<Boolean>,
+        @param:RemindWhenScreenIsOn private val remindWhenScreenIsOn: Preference<Boolean>,
+        @param:SchedulerEnabled private val schedulerEnabled: Preference<Boolean>,
+        @param:SchedulerMode private val schedulerMode: Preference<Boolean>,
+        @param:SchedulerRangeBegin private val schedulerRangeBegin: Preference<Int>,
+        @param:SchedulerRangeEnd private val schedulerRangeEnd: Preference<Int>,
+        @param:ReminderRingtone private val reminderRingtone: Preference<String>,
+        @param:Vibrate private val vibrate: Preference<Boolean>,
+        @param:VibrationPattern private val vibrationPattern: Preference<String>) {
+
+    private val _config = MutableStateFlow(read())
+
+    /**
+     * The current reminder config
+     */
+    val config: StateFlow<ReminderConfig> = _config
+
+    init {
+        with(dispatcher) {
+            route(reminderEnabled) { copy(reminderEnabled = it) }
+            route(reminderInterval) { copy(reminderInterval = it) }
+            route(limitReminderRepeats) { copy(limitReminderRepeats = it) }
+            route(reminderRepeats) { copy(reminderRepeats = it) }
+            route(createDismissNotification) { copy(createDismissNotification = it) }
+            route(createDismissNotificationImmediately) { copy(createDismissNotificationImmediately = it) }
+            route(forceWakeLock) { copy(forceWakeLock = it) }
+            route(adaptiveWake) { copy(adaptiveWake = it) }
+            route(selectedApplications) { copy(selectedApplications = it) }
+            route(ignorePersistentNotifications) { copy(ignorePersistentNotifications = it) }
+            route(respectPhoneCalls) { copy(respectPhoneCalls = it) }
+            route(respectRingerMode) { copy(respectRingerMode = it) }
+            route(remindWhenScreenIsOn) { copy(remindWhenScreenIsOn = it) }
+            route(schedulerEnabled) { copy(schedulerEnabled = it) }
+            route(schedulerMode) { copy(schedulerWorkingPeriod = it) }
+            route(schedulerRangeBegin) { copy(schedulerRangeBegin = it) }
+            route(schedulerRangeEnd) { copy(schedulerRangeEnd = it) }
+            route(reminderRingtone) { copy(reminderRingtone = it) }
+            route(vibrate) { copy(vibrate = it) }
+            route(vibrationPattern) { copy(vibrationWaveform = parseVibrationPattern(it)) }
+        }
+    }
+
+    /**
+     * Route the preference changes to the config field update
+     *
+     * @param preference the preference backing the config field
+     * @param update     the function to copy the config with the new field value
+     */
+    private fun <T> PreferenceChangeDispatcher.route(preference: Preference<T>,
+                                                     update: ReminderConfig.(T) -> ReminderConfig) {
+        register(preference) { value ->
+            _config.value = _config.value.update(value)
+            Timber.d("Reminder config changed by %s", preference.key)
+        }
+    }
+
+    private fun read() = ReminderConfig(
+            reminderEnabled = reminderEnabled.get(),
+            reminderInterval = reminderInterval.get(),
+            limitReminderRepeats = limitReminderRepeats.get(),
+            reminderRepeats = reminderRepeats.get(),
+            createDismissNotification = createDismissNotification.get(),
+            createDismissNotificationImmediately = createDismissNotificationImmediately.get(),
+            forceWakeLock = forceWakeLock.get(),
+            adaptiveWake = adaptiveWake.get(),
+            selectedApplications = selectedApplications.get(),
+            ignorePersistentNotifications = ignorePersistentNotifications.get(),
+            respectPhoneCalls = respectPhoneCalls.get(),
+            respectRingerMode = respectRingerMode.get(),
+            remindWhenScreenIsOn = remindWhenScreenIsOn.get(),
+            schedulerEnabled = schedulerEnabled.get(),
+            schedulerWorkingPeriod = schedulerMode.get(),
+            schedulerRangeBegin = schedulerRangeBegin.get(),
+            schedulerRangeEnd = schedulerRangeEnd.get(),
+            reminderRingtone = reminderRingtone.get(),
+            vibrate = vibrate.get(),
+            vibrationWaveform = parseVibrationPattern(vibrationPattern.get()))
+
+    private fun parseVibrationPattern(pattern: String): VibrationWaveform? =
+            VibrationWaveform.parse(pattern).also {
+                if (it == null) {
+                    Timber.w("Invalid vibration pattern %s", pattern)
+                }
+            }
+}
@@ -0,0 +1,58 @@
+package com.app.missednotificationsreminder.service.data
+
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.*
+import java.util.concurrent.atomic.AtomicLong
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The coalescer of the reminder restart requests. Settings change in bursts while the user edits them, so the requests
+ * submitted within the coalescing delay cause the single restart. The difference of the [requested] and [performed]
+ * restarts is the number of the restarts avoided by coalescing.
+ */
+@Singleton
+class RestartCoalescer @Inject constructor() {
+    private val requests = Channel<Unit>(Channel.CONFLATED)
+
+    private val requestedCount = AtomicLong()
+    private val performedCount = AtomicLong()
+
+    /**
+     * The number of the requested restarts
+     */
+    val requested: Long
+        get() = requestedCount.get()
+
+    /**
+     * The number of the performed restarts
+     */
+    val performed: Long
+        get() = performedCount.get()
+
+    /**
+     * The number of the restarts avoided by coalescing
+     */
+    val avoided: Long
+        get() = requested - performed
+
+    /**
+     * Request the restart
+     */
+    fun request() {
+        requestedCount.incrementAndGet()
+        requests.offer(Unit)
+    }
+
+    /**
+     * Get the flow of the coalesced restarts, it should have the single collector at a time
+     *
+     * @param delay   the delay in milliseconds after the last request before the restart
+     * @param allowed whether the restart may be performed now, the skipped restarts are not counted as performed
+     */
+    fun restarts(delay: Long, allowed: () -> Boolean = { true }): Flow<Unit> = requests
+            .receiveAsFlow()
+            .debounce(delay)
+            .filter { allowed() }
+            .onEach { performedCount.incrementAndGet() }
+}
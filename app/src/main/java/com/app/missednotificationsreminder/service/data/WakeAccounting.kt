@@ -0,0 +1,187 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.service.data.model.WakeStrategy
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The accounting of the reminder wakeups: how long the wake lock is held, how many reminder ticks fired with each
+ * [WakeStrategy] and how late they fired compared to the scheduled time. The measured drift of the system
+ * scheduling is used to pick the [adaptiveStrategy] for the reminder interval.
+ *
+ * All the times are the elapsed realtime in milliseconds passed by the caller, so the wall clock changes don't
+ * affect the measured drift.
+ */
+@Singleton
+class WakeAccounting @Inject constructor() {
+    private val stats = WakeStrategy.values().associateWith { StrategyStats() }
+
+    private var wakeLockAcquiredAt = NOT_HELD
+    private var wakeLockHeld = 0L
+    private var wakeLockAcquisitions = 0
+
+    private var pendingStrategy: WakeStrategy? = null
+    private var pendingFireTime = 0L
+
+    /**
+     * Record the wake lock acquisition
+     *
+     * @param time the elapsed realtime
+     */
+    @Synchronized
+    fun wakeLockAcquired(time: Long) {
+        if (wakeLockAcquiredAt == NOT_HELD) {
+            wakeLockAcquiredAt = time
+            wakeLockAcquisitions++
+        }
+    }
+
+    /**
+     * Record the wake lock release
+     *
+     * @param time the elapsed realtime
+     */
+    @Synchronized
+    fun wakeLockReleased(time: Long) {
+        if (wakeLockAcquiredAt != NOT_HELD) {
+            wakeLockHeld += (time - wakeLockAcquiredAt).coerceAtLeast(0)
+            wakeLockAcquiredAt = NOT_HELD
+        }
+    }
+
+    /**
+     * Record the scheduled reminder tick, replaces the previously scheduled one if it didn't fire
+     *
+     * @param strategy the strategy the tick is scheduled with
+     * @param fireTime the elapsed realtime the tick is expected to fire at
+     */
+    @Synchronized
+    fun scheduled(strategy: WakeStrategy, fireTime: Long) {
+        pendingStrategy = strategy
+        pendingFireTime = fireTime
+    }
+
+    /**
+     * Forget the scheduled reminder tick, it is not going to fire
+     */
+    @Synchronized
+    fun cancelled() {
+        pendingStrategy = null
+    }
+
+    /**
+     * Record the fired reminder tick
+     *
+     * @param time the elapsed realtime
+     * @return the drift of the tick in milliseconds or null if there was no tick scheduled
+     */
+    @Synchronized
+    fun fired(time: Long): Long? {
+        val strategy = pendingStrategy ?: return null
+        pendingStrategy = null
+        // the early ticks are not penalized, only the lateness matters
+        val drift = (time - pendingFireTime).coerceAtLeast(0)
+        stats.getValue(strategy).add(drift)
+        return drift
+    }
+
+    /**
+     * Get the strategy to use for the reminder interval: the wake lock is held only when the interval is short
+     * enough for the measured system scheduling drift to delay the reminder noticeably
+     *
+     * @param interval the reminder interval in milliseconds
+     */
+    fun adaptiveStrategy(interval: Long): WakeStrategy =
+            if (interval <= wakeLockIntervalThreshold()) WakeStrategy.WAKE_LOCK else WakeStrategy.SYSTEM
+
+    /**
+     * Get the maximum reminder interval in milliseconds the [adaptiveStrategy] holds the wake lock for
+     */
+    @Synchronized
+    fun wakeLockIntervalThreshold(): Long {
+        val system = stats.getValue(WakeStrategy.SYSTEM)
+        if (system.ticks < MIN_SAMPLES) {
+            return DEFAULT_WAKE_LOCK_INTERVAL
+        }
+        return (system.averageDrift * 100 / MAX_DRIFT_PERCENT)
+                .coerceIn(DEFAULT_WAKE_LOCK_INTERVAL, MAX_WAKE_LOCK_INTERVAL)
+    }
+
+    /**
+     * Get the current accounting data
+     *
+     * @param time the elapsed realtime to count the currently held wake lock up to
+     */
+    @Synchronized
+    fun snapshot(time: Long) = Snapshot(
+            wakeLockHeld = wakeLockHeld +
+                    if (wakeLockAcquiredAt == NOT_HELD) 0 else (time - wakeLockAcquiredAt).coerceAtLeast(0),
+            wakeLockAcquisitions = wakeLockAcquisitions,
+            wakeLockIntervalThreshold = wakeLockIntervalThreshold(),
+            strategies = stats.mapValues { (_, it) -> StrategySnapshot(it.ticks, it.averageDrift, it.maxDrift) })
+
+    /**
+     * The accounting data
+     *
+     * @property wakeLockHeld              the total wake lock hold time in milliseconds
+     * @property wakeLockAcquisitions      the number of the wake lock acquisitions
+     * @property wakeLockIntervalThreshold the current [WakeAccounting.wakeLockIntervalThreshold]
+     * @property strategies                the reminder ticks data per strategy
+     */
+    data class Snapshot(
+            val wakeLockHeld: Long,
+            val wakeLockAcquisitions: Int,
+            val wakeLockIntervalThreshold: Long,
+            val strategies: Map<WakeStrategy, StrategySnapshot>)
+
+    /**
+     * The reminder ticks data of the single strategy
+     *
+     * @property ticks        the number of the fired ticks
+     * @property averageDrift the moving average of the tick drift in milliseconds
+     * @property maxDrift     the maximum tick drift in milliseconds
+     */
+    data class StrategySnapshot(val ticks: Int, val averageDrift: Long, val maxDrift: Long)
+
+    private class StrategyStats {
+        var ticks = 0
+        var averageDrift = 0L
+        var maxDrift = 0L
+
+        fun add(drift: Long) {
+            // exponential moving average, the first sample is taken as is
+            averageDrift = if (ticks == 0) drift else averageDrift + (drift - averageDrift) / DRIFT_AVERAGE_WEIGHT
+            maxDrift = maxOf(maxDrift, drift)
+            ticks++
+        }
+    }
+
+    companion object {
+        private const val NOT_HELD = -1L
+
+        /**
+         * The weight of the previous drift average relative to the new sample
+         */
+        private const val DRIFT_AVERAGE_WEIGHT = 8
+
+        /**
+         * The number of the system ticks required to trust the measured drift
+         */
+        const val MIN_SAMPLES = 3
+
+        /**
+         * The maximum tolerated system scheduling drift in percents of the reminder interval
+         */
+        const val MAX_DRIFT_PERCENT = 10
+
+        /**
+         * The interval the wake lock is held for until the system drift is measured
+         */
+        const val DEFAULT_WAKE_LOCK_INTERVAL = 60 * 1000L
+
+        /**
+         * The longest interval the wake lock is ever held for
+         */
+        const val MAX_WAKE_LOCK_INTERVAL = 5 * 60 * 1000L
+    }
+}
@@ -0,0 +1,10 @@
+package com.app.missednotificationsreminder.service.data.model
+
+/**
+ * The update of the per package active notifications number
+ *
+ * @property counts the current active notifications number for the changed packages
+ * @property full whether the [counts] contain all the packages with the active notifications. Packages absent in the
+ * full update have no active notifications
+ */
+data class NotificationCountsUpdate(val counts: Map<String, Int>, val full: Boolean)
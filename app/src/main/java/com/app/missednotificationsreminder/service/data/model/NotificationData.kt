@@ -35,6 +35,13 @@ open class NotificationData(
         return true
     }
 
+    override fun hashCode(): Int {
+        var result = id.hashCode()
+        result = 31 * result + packageName.hashCode()
+        result = 31 * result + foundAtTime.hashCode()
+        result = 31 * result + flags
+        return result
+    }
 
     override fun toString(): String {
         return StringBuilder()
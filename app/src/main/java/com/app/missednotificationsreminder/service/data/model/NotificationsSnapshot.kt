@@ -0,0 +1,38 @@
+package com.app.missednotificationsreminder.service.data.model
+
+import java.util.*
+
+/**
+ * The immutable snapshot of the currently active notifications data
+ */
+class NotificationsSnapshot(
+        /**
+         * The snapshot version. Versions are increased monotonically with each notifications data modification so the
+         * equal versions mean the same notifications data
+         */
+        val version: Long,
+        /**
+         * The currently active notifications data
+         */
+        notifications: List<NotificationData>,
+        /**
+         * The currently ignored notifications data
+         */
+        ignoredNotifications: List<NotificationData>) {
+
+    val notifications: List<NotificationData> = Collections.unmodifiableList(notifications)
+
+    val ignoredNotifications: List<NotificationData> = Collections.unmodifiableList(ignoredNotifications)
+
+    override fun toString(): String {
+        return "NotificationsSnapshot{version=$version, notifications=${notifications.size}, ignoredNotifications=${ignoredNotifications.size}}"
+    }
+
+    companion object {
+        /**
+         * The snapshot without any notifications data
+         */
+        @JvmField
+        val EMPTY = NotificationsSnapshot(0, emptyList(), emptyList())
+    }
+}
@@ -0,0 +1,88 @@
+package com.app.missednotificationsreminder.service.data.model
+
+import com.app.missednotificationsreminder.util.vibration.VibrationWaveform
+
+/**
+ * The immutable snapshot of the reminder preferences
+ *
+ * @property reminderEnabled                      whether the reminder is enabled
+ * @property reminderInterval                     the reminder interval in seconds
+ * @property limitReminderRepeats                 whether the number of the reminder repeats is limited
+ * @property reminderRepeats                      the maximum number of the reminder repeats
+ * @property createDismissNotification            whether the dismiss notification should be shown
+ * @property createDismissNotificationImmediately whether the dismiss notification should be shown with the first
+ * reminder
+ * @property forceWakeLock                        whether the wake lock should be used instead of the alarms
+ * @property adaptiveWake                         whether the wake lock should be used only for the short intervals,
+ * overrides the [forceWakeLock]
+ * @property selectedApplications                 the packages of the applications to remind about
+ * @property ignorePersistentNotifications        whether the ongoing notifications should be ignored
+ * @property respectPhoneCalls                    whether the reminder should be silent during the phone calls
+ * @property respectRingerMode                    whether the reminder should follow the ringer mode
+ * @property remindWhenScreenIsOn                 whether the reminder should play when the screen is on
+ * @property schedulerEnabled                     whether the scheduler is enabled
+ * @property schedulerWorkingPeriod               whether the scheduler range is the working period, the non working
+ * one otherwise
+ * @property schedulerRangeBegin                  the scheduler range begin minute of day
+ * @property schedulerRangeEnd                    the scheduler range end minute of day
+ * @property reminderRingtone                     the reminder ringtone URI
+ * @property vibrate                              whether the reminder should vibrate
+ * @property vibrationWaveform                    the vibration waveform, null if the stored pattern is invalid
+ */
+data class ReminderConfig(
+        val reminderEnabled: Boolean,
+        val reminderInterval: Int,
+        val limitReminderRepeats: Boolean,
+        val reminderRepeats: Int,
+        val createDismissNotification: Boolean,
+        val createDismissNotificationImmediately: Boolean,
+        val forceWakeLock: Boolean,
+        val adaptiveWake: Boolean,
+        val selectedApplications: Set<String>,
+        val ignorePersistentNotifications: Boolean,
+        val respectPhoneCalls: Boolean,
+        val respectRingerMode: Boolean,
+        val remindWhenScreenIsOn: Boolean,
+        val schedulerEnabled: Boolean,
+        val schedulerWorkingPeriod: Boolean,
+        val schedulerRangeBegin: Int,
+        val schedulerRangeEnd: Int,
+        val reminderRingtone: String,
+        val vibrate: Boolean,
+        val vibrationWaveform: VibrationWaveform?) {
+
+    /**
+     * Check whether the active reminder should be restarted to apply the changes from the previous config
+     *
+     * @param previous the previous config
+     */
+    fun requiresRestart(previous: ReminderConfig): Boolean =
+            withoutPassiveFields() != previous.withoutPassiveFields()
+
+    /**
+     * Check whether the scheduler settings differ from the previous config
+     *
+     * @param previous the previous config
+     */
+    fun schedulerChanged(previous: ReminderConfig): Boolean =
+            schedulerEnabled != previous.schedulerEnabled ||
+                    schedulerWorkingPeriod != previous.schedulerWorkingPeriod ||
+                    schedulerRangeBegin != previous.schedulerRangeBegin ||
+                    schedulerRangeEnd != previous.schedulerRangeEnd
+
+    /**
+     * Check whether the notifications eligibility settings differ from the previous config
+     *
+     * @param previous the previous config
+     */
+    fun eligibilityChanged(previous: ReminderConfig): Boolean =
+            selectedApplications != previous.selectedApplications ||
+                    ignorePersistentNotifications != previous.ignorePersistentNotifications
+
+    /**
+     * Get the copy without the fields which are applied on their next use or handled separately
+     */
+    private fun withoutPassiveFields() = copy(
+            reminderEnabled = false,
+            reminderRingtone = "")
+}
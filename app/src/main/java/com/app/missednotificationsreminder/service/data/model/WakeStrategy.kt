@@ -0,0 +1,16 @@
+package com.app.missednotificationsreminder.service.data.model
+
+/**
+ * The way the device is woken up for the next reminder
+ */
+enum class WakeStrategy {
+    /**
+     * The partial wake lock is held and the in-process timer is used
+     */
+    WAKE_LOCK,
+
+    /**
+     * The reminder job is scheduled with the system and the device may sleep until it fires
+     */
+    SYSTEM
+}
@@ -0,0 +1,240 @@
+package com.app.missednotificationsreminder.service.engine
+
+import com.app.missednotificationsreminder.service.data.model.ReminderConfig
+import com.app.missednotificationsreminder.service.engine.model.*
+import com.app.missednotificationsreminder.service.engine.model.ReminderCommand.*
+import com.app.missednotificationsreminder.service.engine.model.ReminderEvent.*
+import com.app.missednotificationsreminder.util.TimeUtils
+import com.app.missednotificationsreminder.util.schedule.WeeklySchedule
+
+/**
+ * The reminder state machine. It reacts to the [ReminderEvent]s with the [ReminderCommand]s and doesn't depend on
+ * the Android framework, so the reminder decisions can be replayed on the JVM.
+ *
+ * The engine is not thread safe, the events should be handled on the single thread.
+ *
+ * @param config                   the initial reminder config
+ * @param deviceState              the initial device state
+ * @param clock                    the wall clock time source in milliseconds
+ * @param hasEligibleNotifications the check whether there are notifications to remind about
+ * @param commands                 the receiver of the emitted commands
+ */
+class ReminderEngine(
+        config: ReminderConfig,
+        deviceState: DeviceState,
+        private val clock: () -> Long,
+        private val hasEligibleNotifications: () -> Boolean,
+        private val commands: (ReminderCommand) -> Unit) {
+
+    /**
+     * The current reminder config
+     */
+    var config = config
+        private set
+
+    /**
+     * The current device state
+     */
+    var deviceState = deviceState
+        private set
+
+    /**
+     * Whether the notifications are available
+     */
+    var ready = false
+        private set
+
+    /**
+     * Whether the reminder session is active
+     */
+    var active = false
+        private set
+
+    /**
+     * Number of remaining reminder repetitions
+     */
+    private var remainingRepeats = 0
+
+    /**
+     * Whether the reminder occurs for the first time in the session
+     */
+    private var firstTimeSessionReminder = false
+
+    /**
+     * The compiled scheduler schedule, reset when the scheduler preferences or the time zone change
+     */
+    private var schedule: WeeklySchedule? = null
+
+    /**
+     * Handle the event
+     *
+     * @param event the event
+     */
+    fun handle(event: ReminderEvent) {
+        when (event) {
+            Ready -> {
+                ready = true
+                checkWakingConditions()
+            }
+            is NotificationsChanged -> onNotificationsChanged(event)
+            is ConfigChanged -> onConfigChanged(event.config)
+            is DeviceStateChanged -> onDeviceStateChanged(event.state)
+            is Tick -> onTick(event)
+            ReminderCompleted -> {
+                emit(ReminderFinished(played = true, sessionReminder = firstTimeSessionReminder))
+                scheduleNextWakeup(repeating = true)
+            }
+            Restart -> restart()
+            Dismissed, Destroyed -> stopWaking()
+            TimeZoneChanged -> schedule = null
+        }
+    }
+
+    private fun onNotificationsChanged(event: NotificationsChanged) {
+        if (event.removed && active && !hasEligibleNotifications()) {
+            // stop alarm if there are no more notifications to update
+            stopWaking()
+        }
+        if (event.monitoredPosted && ready) {
+            if (config.limitReminderRepeats) {
+                // reset reminder repeats such as new important notification has arrived
+                remainingRepeats = config.reminderRepeats
+            }
+            checkWakingConditions()
+        }
+    }
+
+    private fun onConfigChanged(config: ReminderConfig) {
+        val previous = this.config
+        if (config == previous) {
+            return
+        }
+        this.config = config
+        if (config.schedulerChanged(previous)) {
+            schedule = null
+        }
+        when {
+            !config.reminderEnabled -> if (previous.reminderEnabled) stopWaking()
+            !ready -> Unit
+            !previous.reminderEnabled -> checkWakingConditions()
+            config.requiresRestart(previous) -> emit(RequestRestart("config"))
+        }
+    }
+
+    private fun onDeviceStateChanged(state: DeviceState) {
+        val previous = deviceState
+        deviceState = state
+        if (!config.respectRingerMode) {
+            return
+        }
+        // the device state changes are not bursty, the reminder should follow them without delay
+        if (state.ringerMode != previous.ringerMode || state.dndEnabled != previous.dndEnabled) {
+            restart()
+        }
+    }
+
+    private fun restart() {
+        if (ready) {
+            stopWaking()
+            checkWakingConditions()
+        }
+    }
+
+    private fun onTick(event: Tick) {
+        if (!active) {
+            // the tick scheduled before the reminder has been stopped
+            return
+        }
+        if (!config.remindWhenScreenIsOn && event.screenOn || config.respectPhoneCalls && event.callActive) {
+            emit(ReminderFinished(played = false, sessionReminder = false))
+            scheduleNextWakeup(repeating = true, skipped = true)
+            return
+        }
+        val silent = deviceState.ringerMode == RingerMode.SILENT
+        val sound = config.reminderRingtone.takeIf { it.isNotEmpty() }?.let {
+            ReminderSound(it,
+                    // use alternative stream if respect ringer mode is disabled
+                    alarmStream = !config.respectRingerMode,
+                    // mute sound explicitly for silent ringer modes because some user claims that sound is not
+                    // muted on their devices in such cases
+                    muted = config.respectRingerMode && (silent || deviceState.ringerMode == RingerMode.VIBRATE))
+        }
+        val vibration = config.vibrationWaveform
+                ?.takeIf { config.vibrate && (!config.respectRingerMode || !silent) }
+        emit(PlayReminder(sound, vibration))
+    }
+
+    /**
+     * Check whether the reminder session should be started
+     */
+    private fun checkWakingConditions() {
+        if (active || !config.reminderEnabled) {
+            return
+        }
+        if (config.respectRingerMode && (deviceState.ringerMode == RingerMode.SILENT || deviceState.dndEnabled ||
+                        deviceState.ringerMode == RingerMode.VIBRATE && !config.vibrate)) {
+            return
+        }
+        if (hasEligibleNotifications()) {
+            active = true
+            if (config.limitReminderRepeats) {
+                remainingRepeats = config.reminderRepeats
+            }
+            scheduleNextWakeup(repeating = false)
+        }
+    }
+
+    /**
+     * Schedule the next reminder tick
+     */
+    private fun scheduleNextWakeup(repeating: Boolean, skipped: Boolean = false) {
+        var scheduledTime = 0L
+        if (!skipped) {
+            if (config.limitReminderRepeats && remainingRepeats-- <= 0) {
+                // ran out of reminder repeats
+                stopWaking()
+                return
+            }
+            firstTimeSessionReminder = !repeating
+        }
+        val interval = config.reminderInterval * TimeUtils.MILLIS_IN_SECOND.toLong()
+        val now = clock()
+        if (config.schedulerEnabled) {
+            scheduledTime = schedule().getScheduledTime(now + interval)
+            if (scheduledTime == WeeklySchedule.NO_TIME) {
+                // the scheduler doesn't allow any time
+                stopWaking()
+                return
+            }
+        }
+        if (config.createDismissNotification && (repeating || config.createDismissNotificationImmediately)) {
+            emit(ShowDismissNotification(firstInSession = !repeating, postponed = scheduledTime != 0L))
+        }
+        emit(if (scheduledTime == 0L) {
+            ScheduleTick(interval, interval = true, firstInSession = !repeating)
+        } else {
+            ScheduleTick(scheduledTime - now, interval = false, firstInSession = !repeating)
+        })
+    }
+
+    /**
+     * Stop the reminder session
+     */
+    private fun stopWaking() {
+        active = false
+        emit(CancelTick)
+        emit(HideDismissNotification)
+    }
+
+    /**
+     * Get the schedule compiled from the current scheduler preferences
+     */
+    private fun schedule(): WeeklySchedule = schedule ?: WeeklySchedule.daily(
+            if (config.schedulerWorkingPeriod) TimeUtils.SchedulerMode.WORKING_PERIOD else TimeUtils.SchedulerMode.NON_WORKING_PERIOD,
+            config.schedulerRangeBegin, config.schedulerRangeEnd)
+            .also { schedule = it }
+
+    private fun emit(command: ReminderCommand) {
+        commands(command)
+    }
+}
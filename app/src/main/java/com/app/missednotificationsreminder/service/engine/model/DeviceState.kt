@@ -0,0 +1,18 @@
+package com.app.missednotificationsreminder.service.engine.model
+
+/**
+ * The device state the reminder depends on
+ *
+ * @property ringerMode the ringer mode
+ * @property dndEnabled whether the do not disturb mode is enabled
+ */
+data class DeviceState(val ringerMode: RingerMode, val dndEnabled: Boolean)
+
+/**
+ * The ringer mode
+ */
+enum class RingerMode {
+    NORMAL,
+    VIBRATE,
+    SILENT
+}
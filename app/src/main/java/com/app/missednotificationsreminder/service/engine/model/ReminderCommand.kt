@@ -0,0 +1,70 @@
+package com.app.missednotificationsreminder.service.engine.model
+
+import com.app.missednotificationsreminder.util.vibration.VibrationWaveform
+
+/**
+ * The commands the [ReminderEngine][com.app.missednotificationsreminder.service.engine.ReminderEngine] emits
+ */
+sealed class ReminderCommand {
+    /**
+     * Schedule the next reminder [ReminderEvent.Tick]
+     *
+     * @property offset         the tick time offset in milliseconds
+     * @property interval       whether the tick follows the regular reminder interval, false if it is postponed by
+     * the scheduler
+     * @property firstInSession whether it is the first tick of the reminder session
+     */
+    data class ScheduleTick(val offset: Long, val interval: Boolean, val firstInSession: Boolean) : ReminderCommand()
+
+    /**
+     * Cancel the scheduled tick and interrupt the playing reminder
+     */
+    object CancelTick : ReminderCommand()
+
+    /**
+     * Play the reminder and send the [ReminderEvent.ReminderCompleted] when both the sound and the single
+     * vibration complete
+     *
+     * @property sound     the sound to play or null if the ringtone is not specified
+     * @property vibration the waveform to vibrate with or null if the reminder shouldn't vibrate
+     */
+    data class PlayReminder(val sound: ReminderSound?, val vibration: VibrationWaveform?) : ReminderCommand()
+
+    /**
+     * The reminder tick has been handled
+     *
+     * @property played          whether the reminder has been played, false if it was skipped
+     * @property sessionReminder whether the first reminder of the session has been played
+     */
+    data class ReminderFinished(val played: Boolean, val sessionReminder: Boolean) : ReminderCommand()
+
+    /**
+     * Show the dismiss notification
+     *
+     * @property firstInSession whether it is shown for the first tick of the reminder session
+     * @property postponed      whether the next tick is postponed by the scheduler
+     */
+    data class ShowDismissNotification(val firstInSession: Boolean, val postponed: Boolean) : ReminderCommand()
+
+    /**
+     * Hide the dismiss notification
+     */
+    object HideDismissNotification : ReminderCommand()
+
+    /**
+     * Request the reminder restart after the settings change. Settings change in bursts while the user edits them,
+     * so the requests should be coalesced into the single [ReminderEvent.Restart]
+     *
+     * @property reason the restart reason for logging
+     */
+    data class RequestRestart(val reason: String) : ReminderCommand()
+}
+
+/**
+ * The reminder sound
+ *
+ * @property ringtone    the ringtone URI
+ * @property alarmStream whether the sound should be played at the alarm stream, the notification one otherwise
+ * @property muted       whether the sound should be muted
+ */
+data class ReminderSound(val ringtone: String, val alarmStream: Boolean, val muted: Boolean)
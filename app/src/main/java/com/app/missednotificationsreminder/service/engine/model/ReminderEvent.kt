@@ -0,0 +1,68 @@
+package com.app.missednotificationsreminder.service.engine.model
+
+import com.app.missednotificationsreminder.service.data.model.ReminderConfig
+
+/**
+ * The events the [ReminderEngine][com.app.missednotificationsreminder.service.engine.ReminderEngine] reacts to
+ */
+sealed class ReminderEvent {
+    /**
+     * The notifications are available, the reminder may start
+     */
+    object Ready : ReminderEvent()
+
+    /**
+     * The notifications have been posted or removed
+     *
+     * @property removed         whether any notification has been removed
+     * @property monitoredPosted whether any notification of the selected applications has been posted
+     */
+    data class NotificationsChanged(val removed: Boolean, val monitoredPosted: Boolean) : ReminderEvent()
+
+    /**
+     * The reminder config has changed
+     *
+     * @property config the new config
+     */
+    data class ConfigChanged(val config: ReminderConfig) : ReminderEvent()
+
+    /**
+     * The device state has changed
+     *
+     * @property state the new device state
+     */
+    data class DeviceStateChanged(val state: DeviceState) : ReminderEvent()
+
+    /**
+     * The scheduled reminder tick has fired
+     *
+     * @property screenOn   whether the screen is on
+     * @property callActive whether the phone call is active
+     */
+    data class Tick(val screenOn: Boolean, val callActive: Boolean) : ReminderEvent()
+
+    /**
+     * The reminder requested with the [ReminderCommand.PlayReminder] has completed
+     */
+    object ReminderCompleted : ReminderEvent()
+
+    /**
+     * The coalesced restart requested with the [ReminderCommand.RequestRestart]
+     */
+    object Restart : ReminderEvent()
+
+    /**
+     * The user has dismissed the reminder
+     */
+    object Dismissed : ReminderEvent()
+
+    /**
+     * The time zone has changed
+     */
+    object TimeZoneChanged : ReminderEvent()
+
+    /**
+     * The reminder is shutting down
+     */
+    object Destroyed : ReminderEvent()
+}
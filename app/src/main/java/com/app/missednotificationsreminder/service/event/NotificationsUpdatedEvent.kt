@@ -1,6 +1,38 @@
 package com.app.missednotificationsreminder.service.event
 
 import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.data.model.NotificationsSnapshot
 import com.app.missednotificationsreminder.util.event.Event
 
-data class NotificationsUpdatedEvent(val notifications: List<NotificationData>) : Event
\ No newline at end of file
+/**
+ * The event sent when the active notifications data is updated. The event contains only the changes made since the
+ * previous event, subscribers should use the current [NotificationsSnapshot] as the starting point and apply the
+ * changes only if the [fromVersion] matches the version they already have
+ *
+ * @property fromVersion the version of the notifications snapshot the changes are applied to
+ * @property version the version of the notifications snapshot after the changes, see [NotificationsSnapshot.version]
+ * @property added the notifications data added to the snapshot in the order of addition
+ * @property removed the notifications data removed from the snapshot in the order of removal. Replaced
+ * notifications data is reported as removed and added one
+ */
+data class NotificationsUpdatedEvent(
+        val fromVersion: Long,
+        val version: Long,
+        val added: List<NotificationData>,
+        val removed: List<NotificationData>) : Event {
+
+    /**
+     * The per package changes of the active notifications number. Packages with no changes are omitted
+     */
+    val countChanges: Map<String, Int> by lazy {
+        HashMap<String, Int>().apply {
+            for (data in added) {
+                this[data.packageName] = (this[data.packageName] ?: 0) + 1
+            }
+            for (data in removed) {
+                this[data.packageName] = (this[data.packageName] ?: 0) - 1
+            }
+            values.removeAll { it == 0 }
+        }
+    }
+}
@@ -14,9 +14,5 @@ public enum RemindEvents implements Event {
     /**
      * The reminder completed notification event
      */
-    REMINDER_COMPLETED,
-    /**
-     * Request current notification data information via {@link NotificationsUpdatedEvent}
-     */
-    GET_CURRENT_NOTIFICATIONS_DATA
+    REMINDER_COMPLETED
 }
@@ -0,0 +1,64 @@
+package com.app.missednotificationsreminder.service.scheduler
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import com.app.missednotificationsreminder.di.Injector.Companion.obtain
+import com.app.missednotificationsreminder.service.event.RemindEvents
+import com.app.missednotificationsreminder.util.event.FlowEventBus
+import com.app.missednotificationsreminder.util.event.toFlow
+import dagger.android.AndroidInjector
+import dagger.android.ContributesAndroidInjector
+import kotlinx.coroutines.*
+import kotlinx.coroutines.flow.first
+import timber.log.Timber
+import javax.inject.Inject
+
+/**
+ * The receiver of the reminder alarms scheduled by the [ReminderScheduler]. It relays the alarm to the service as
+ * the remind event and keeps the broadcast pending until the reminder completes
+ */
+class ReminderAlarmReceiver : BroadcastReceiver() {
+    @Inject
+    lateinit var mEventBus: FlowEventBus
+
+    @Inject
+    lateinit var scheduler: ReminderScheduler
+
+    override fun onReceive(context: Context, intent: Intent) {
+        Timber.d("onReceive() called")
+        // inject dependencies
+        val appGraph: AndroidInjector<Any>? = obtain(context.applicationContext)
+        appGraph!!.inject(this)
+        scheduler.alarmFired()
+        val result = goAsync()
+        scheduler.scope.launch(Dispatchers.Main) {
+            try {
+                withTimeoutOrNull(COMPLETION_TIMEOUT) {
+                    // subscribe before the remind event is sent to not miss the fast completion
+                    val completed = async(start = CoroutineStart.UNDISPATCHED) {
+                        mEventBus.toFlow<RemindEvents>()
+                                .first { event -> event === RemindEvents.REMINDER_COMPLETED }
+                    }
+                    mEventBus.emit(RemindEvents.REMIND)
+                    completed.await()
+                } ?: Timber.w("onReceive: the reminder hasn't completed in time")
+            } finally {
+                result.finish()
+            }
+        }
+    }
+
+    @dagger.Module
+    abstract class Module {
+        @ContributesAndroidInjector
+        abstract fun contribute(): ReminderAlarmReceiver
+    }
+
+    companion object {
+        /**
+         * The maximum time to keep the broadcast pending, the system limits it to 10 seconds
+         */
+        private const val COMPLETION_TIMEOUT = 9_000L
+    }
+}
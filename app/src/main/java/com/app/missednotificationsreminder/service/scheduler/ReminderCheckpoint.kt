@@ -0,0 +1,96 @@
+package com.app.missednotificationsreminder.service.scheduler
+
+import java.io.*
+
+/**
+ * The persistent checkpoint of the next reminder deadline. It lets the reminder continue with the remaining time
+ * instead of the full interval when the process is restarted. The deadline is the elapsed realtime, so the checkpoint
+ * also keeps the device boot time and is valid only during the same boot. The file is replaced atomically so the
+ * partially written checkpoint is never read
+ *
+ * @param file the checkpoint file
+ */
+class ReminderCheckpoint(private val file: File) {
+
+    /**
+     * Write the deadline
+     *
+     * @param deadline the elapsed realtime of the next reminder in milliseconds
+     * @param bootTime the wall clock time of the device boot in milliseconds
+     */
+    @Throws(IOException::class)
+    fun write(deadline: Long, bootTime: Long) {
+        val temp = File(file.parentFile, file.name + ".tmp")
+        DataOutputStream(FileOutputStream(temp)).use { output ->
+            output.writeInt(MAGIC)
+            output.writeLong(bootTime)
+            output.writeLong(deadline)
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete()
+            throw IOException("Failed to rename $temp")
+        }
+    }
+
+    /**
+     * Read the deadline previously written with the [write] method
+     *
+     * @param bootTime the current wall clock time of the device boot in milliseconds
+     * @return the deadline or null if there is no valid checkpoint of the current boot
+     */
+    @Throws(IOException::class)
+    fun read(bootTime: Long): Long? {
+        if (file.length() != SIZE) {
+            return null
+        }
+        return DataInputStream(FileInputStream(file)).use { input ->
+            when {
+                input.readInt() != MAGIC -> null
+                // the boot time estimate moves with the wall clock adjustments
+                Math.abs(input.readLong() - bootTime) > BOOT_TIME_TOLERANCE -> null
+                else -> input.readLong()
+            }
+        }
+    }
+
+    /**
+     * Remove the checkpoint, the reminder is not scheduled anymore
+     */
+    fun clear() {
+        file.delete()
+    }
+
+    companion object {
+        private const val MAGIC = 0x524D4332
+
+        /**
+         * The size of the checkpoint file: magic, boot time and deadline
+         */
+        private const val SIZE = 4L + 8L + 8L
+
+        /**
+         * The maximum difference of the boot times of the same boot in milliseconds
+         */
+        private const val BOOT_TIME_TOLERANCE = 60_000L
+
+        /**
+         * Get the offset to continue the interrupted reminder interval with
+         *
+         * @param deadline the checkpoint deadline
+         * @param now      the current elapsed realtime in milliseconds
+         * @param interval the current reminder interval in milliseconds
+         * @param minimum  the minimum offset in milliseconds
+         * @return the remaining time to the deadline but not less than the minimum, the minimum if the deadline has
+         * been missed less than the interval ago, or null if the deadline doesn't belong to the current interval
+         */
+        @JvmStatic
+        fun remaining(deadline: Long, now: Long, interval: Long, minimum: Long): Long? {
+            val remaining = deadline - now
+            return when {
+                remaining > interval -> null
+                -remaining < interval -> remaining.coerceAtLeast(minimum)
+                else -> null
+            }
+        }
+    }
+}
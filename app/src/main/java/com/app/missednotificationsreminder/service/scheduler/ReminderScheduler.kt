@@ -0,0 +1,223 @@
+package com.app.missednotificationsreminder.service.scheduler
+
+import android.app.AlarmManager
+import android.app.Application
+import android.app.PendingIntent
+import android.content.Context
+import android.content.Intent
+import android.os.Build
+import android.os.SystemClock
+import com.app.missednotificationsreminder.service.data.model.WakeStrategy
+import kotlinx.coroutines.*
+import timber.log.Timber
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The scheduler of the reminder ticks. The [WakeStrategy.WAKE_LOCK] ticks use the in-process timer while the
+ * [WakeStrategy.SYSTEM] ones use the single exact alarm delivered to the [ReminderAlarmReceiver]. Neither touches
+ * the WorkManager database, the next deadline is kept in the tiny [ReminderCheckpoint] instead so it survives the
+ * process death.
+ */
+@Singleton
+class ReminderScheduler @Inject constructor(private val app: Application) {
+
+    private val alarmManager by lazy { app.getSystemService(Context.ALARM_SERVICE) as AlarmManager }
+
+    private val alarmIntent by lazy {
+        PendingIntent.getBroadcast(app, 0, Intent(app, ReminderAlarmReceiver::class.java),
+                PendingIntent.FLAG_UPDATE_CURRENT)
+    }
+
+    private val checkpoint by lazy { ReminderCheckpoint(File(app.filesDir, CHECKPOINT_FILE)) }
+
+    /**
+     * The dispatcher the checkpoint is written on, it keeps the writes order
+     */
+    private val checkpointDispatcher = Executors
+            .newSingleThreadExecutor { runnable -> Thread(runnable, "ReminderCheckpoint").apply { isDaemon = true } }
+            .asCoroutineDispatcher()
+
+    /**
+     * The scope of the work outliving the scheduling calls: the checkpoint writes and the alarm deliveries
+     */
+    val scope = CoroutineScope(SupervisorJob())
+
+    /**
+     * Whether the checkpoint left by the previous process has been consumed
+     */
+    private var restored = false
+
+    /**
+     * The in-process timer subscription
+     */
+    private var timerJob: Job? = null
+
+    /**
+     * Whether the alarm may be pending, the alarms scheduled by the previous process survive its death
+     */
+    private var alarmScheduled = true
+
+    /**
+     * Whether the alarm scheduled by this process is pending, the WorkManager used to have the work enqueued then
+     */
+    private var alarmEnqueued = false
+
+    private val createdAt = SystemClock.elapsedRealtime()
+
+    private val inProcessTicksCount = AtomicInteger()
+    private val alarmTicksCount = AtomicInteger()
+    private val avoidedDatabaseWritesCount = AtomicInteger()
+
+    /**
+     * The number of the ticks scheduled with the in-process timer
+     */
+    val inProcessTicks: Int
+        get() = inProcessTicksCount.get()
+
+    /**
+     * The number of the delivered alarms
+     */
+    val alarmTicks: Int
+        get() = alarmTicksCount.get()
+
+    /**
+     * The number of the WorkManager operations the scheduling used to do which would have changed the database:
+     * every enqueued alarm and every cancel of the pending one
+     */
+    val avoidedDatabaseWrites: Int
+        get() = avoidedDatabaseWritesCount.get()
+
+    /**
+     * The [avoidedDatabaseWrites] rate since the scheduler creation
+     */
+    val avoidedDatabaseWritesPerHour: Long
+        get() = avoidedDatabaseWrites * TimeUnit.HOURS.toMillis(1) /
+                (SystemClock.elapsedRealtime() - createdAt).coerceAtLeast(TimeUnit.MINUTES.toMillis(1))
+
+    /**
+     * Get the offset to continue the reminder interrupted by the process death with. Only the first call after the
+     * process start may return the offset
+     *
+     * @param interval the current reminder interval in milliseconds
+     * @param minimum  the minimum offset in milliseconds, the missed deadline fires after it
+     * @return the remaining time of the interrupted interval or null if there is nothing to continue
+     */
+    fun restoredOffset(interval: Long, minimum: Long): Long? {
+        if (restored) {
+            return null
+        }
+        restored = true
+        val deadline = try {
+            checkpoint.read(bootTime())
+        } catch (e: IOException) {
+            Timber.w(e, "Failed to read the reminder checkpoint")
+            null
+        } ?: return null
+        return ReminderCheckpoint.remaining(deadline, SystemClock.elapsedRealtime(), interval, minimum)
+                .also { Timber.d("restoredOffset: deadline %d, offset %s", deadline, it) }
+    }
+
+    /**
+     * Schedule the reminder tick
+     *
+     * @param scope    the scope to run the in-process timer in
+     * @param strategy the strategy to wake the device with
+     * @param offset   the tick time offset in milliseconds
+     * @param fire     the tick action for the in-process timer, the alarm is delivered to the [ReminderAlarmReceiver]
+     */
+    fun schedule(scope: CoroutineScope, strategy: WakeStrategy, offset: Long, fire: suspend () -> Unit) {
+        restored = true
+        persist(SystemClock.elapsedRealtime() + offset)
+        when (strategy) {
+            WakeStrategy.WAKE_LOCK -> {
+                cancelAlarm()
+                inProcessTicksCount.incrementAndGet()
+                timerJob = scope.launch {
+                    delay(offset)
+                    Timber.d("Wake from the in-process timer")
+                    fire()
+                }
+            }
+            WakeStrategy.SYSTEM -> {
+                val triggerAt = SystemClock.elapsedRealtime() + offset
+                when {
+                    Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ->
+                        alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, alarmIntent)
+                    Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ->
+                        alarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, alarmIntent)
+                    else ->
+                        alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, alarmIntent)
+                }
+                alarmScheduled = true
+                alarmEnqueued = true
+                avoidedDatabaseWritesCount.incrementAndGet()
+            }
+        }
+    }
+
+    /**
+     * Cancel the scheduled reminder tick
+     */
+    fun cancel() {
+        restored = true
+        timerJob?.run {
+            cancel()
+            timerJob = null
+        }
+        cancelAlarm()
+        persist(null)
+        Timber.d("cancel: in-process ticks %d, alarm ticks %d, avoided database writes %d (%d per hour)",
+                inProcessTicks, alarmTicks, avoidedDatabaseWrites, avoidedDatabaseWritesPerHour)
+    }
+
+    /**
+     * Record the delivered alarm
+     */
+    fun alarmFired() {
+        alarmScheduled = false
+        alarmEnqueued = false
+        alarmTicksCount.incrementAndGet()
+    }
+
+    private fun cancelAlarm() {
+        if (alarmScheduled) {
+            alarmManager.cancel(alarmIntent)
+            alarmScheduled = false
+        }
+        if (alarmEnqueued) {
+            alarmEnqueued = false
+            avoidedDatabaseWritesCount.incrementAndGet()
+        }
+    }
+
+    /**
+     * Get the wall clock time of the device boot, it tells the checkpoints of the previous boots apart
+     */
+    private fun bootTime() = System.currentTimeMillis() - SystemClock.elapsedRealtime()
+
+    /**
+     * Write the deadline checkpoint in background
+     *
+     * @param deadline the deadline or null to clear the checkpoint
+     */
+    private fun persist(deadline: Long?) {
+        val bootTime = bootTime()
+        scope.launch(checkpointDispatcher) {
+            try {
+                if (deadline == null) checkpoint.clear() else checkpoint.write(deadline, bootTime)
+            } catch (e: IOException) {
+                Timber.w(e, "Failed to write the reminder checkpoint")
+            }
+        }
+    }
+
+    companion object {
+        private const val CHECKPOINT_FILE = "reminder_checkpoint"
+    }
+}
@@ -0,0 +1,123 @@
+package com.app.missednotificationsreminder.service.sound
+
+import android.content.Context
+import android.media.AudioFormat
+import android.media.MediaCodec
+import android.media.MediaExtractor
+import android.media.MediaFormat
+import android.net.Uri
+import android.os.Build
+import android.os.SystemClock
+import androidx.annotation.RequiresApi
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+
+/**
+ * The decoder of the sounds to the 16 bit PCM
+ *
+ * @param maxSize the maximum size of the decoded sound in bytes
+ * @param timeout the maximum decoding time in milliseconds, the codec which stops producing the output doesn't block
+ * the decoding thread forever
+ */
+@RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+class PcmDecoder(private val maxSize: Int, private val timeout: Long = DEFAULT_TIMEOUT) {
+
+    /**
+     * Decode the sound
+     *
+     * @param context the context to resolve the [uri] with
+     * @param uri     the sound URI
+     * @return the decoded sound
+     * @throws IOException if the sound can't be read or decoded, exceeds the maximum size or isn't decoded in time
+     */
+    @Throws(IOException::class)
+    fun decode(context: Context, uri: Uri): PcmSound {
+        val extractor = MediaExtractor()
+        try {
+            extractor.setDataSource(context, uri, null)
+            val track = (0 until extractor.trackCount).firstOrNull {
+                extractor.getTrackFormat(it).getString(MediaFormat.KEY_MIME)?.startsWith("audio/") == true
+            } ?: throw IOException("No audio track in $uri")
+            extractor.selectTrack(track)
+            val format = extractor.getTrackFormat(track)
+            val codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME)!!)
+            try {
+                codec.configure(format, null, null, 0)
+                codec.start()
+                return decode(extractor, codec, format)
+            } finally {
+                codec.release()
+            }
+        } catch (e: IllegalStateException) {
+            throw IOException("Failed to decode $uri", e)
+        } catch (e: IllegalArgumentException) {
+            throw IOException("Failed to decode $uri", e)
+        } finally {
+            extractor.release()
+        }
+    }
+
+    private fun decode(extractor: MediaExtractor, codec: MediaCodec, inputFormat: MediaFormat): PcmSound {
+        val output = ByteArrayOutputStream()
+        val info = MediaCodec.BufferInfo()
+        var outputFormat = inputFormat
+        var inputDone = false
+        val deadline = SystemClock.elapsedRealtime() + timeout
+        while (true) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                throw IOException("The sound isn't decoded in $timeout ms")
+            }
+            if (!inputDone) {
+                val index = codec.dequeueInputBuffer(TIMEOUT_US)
+                if (index >= 0) {
+                    val size = extractor.readSampleData(codec.getInputBuffer(index)!!, 0)
+                    if (size < 0) {
+                        codec.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM)
+                        inputDone = true
+                    } else {
+                        codec.queueInputBuffer(index, 0, size, extractor.sampleTime, 0)
+                        extractor.advance()
+                    }
+                }
+            }
+            val index = codec.dequeueOutputBuffer(info, TIMEOUT_US)
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                outputFormat = codec.outputFormat
+            } else if (index >= 0) {
+                if (output.size() + info.size > maxSize) {
+                    throw IOException("The decoded sound exceeds $maxSize bytes")
+                }
+                val buffer = codec.getOutputBuffer(index)!!
+                val chunk = ByteArray(info.size)
+                buffer.position(info.offset)
+                buffer.get(chunk)
+                output.write(chunk)
+                codec.releaseOutputBuffer(index, false)
+                if (info.flags and MediaCodec.BUFFER_FLAG_END_OF_STREAM != 0) {
+                    break
+                }
+            }
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N &&
+                outputFormat.containsKey(MediaFormat.KEY_PCM_ENCODING) &&
+                outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING) != AudioFormat.ENCODING_PCM_16BIT) {
+            throw IOException("Unsupported PCM encoding ${outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING)}")
+        }
+        return PcmSound(
+                outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT),
+                output.toByteArray())
+    }
+
+    companion object {
+        /**
+         * The codec buffers dequeue timeout in microseconds
+         */
+        private const val TIMEOUT_US = 10_000L
+
+        /**
+         * The default maximum decoding time in milliseconds
+         */
+        const val DEFAULT_TIMEOUT = 10_000L
+    }
+}
@@ -0,0 +1,92 @@
+package com.app.missednotificationsreminder.service.sound
+
+import java.io.*
+
+/**
+ * The decoded 16 bit PCM sound
+ *
+ * @property sampleRate   the sample rate in Hz
+ * @property channelCount the number of the interleaved channels
+ * @property data         the little endian 16 bit samples
+ */
+class PcmSound(val sampleRate: Int, val channelCount: Int, val data: ByteArray) {
+    init {
+        require(sampleRate > 0) { "invalid sample rate $sampleRate" }
+        require(channelCount in 1..2) { "unsupported channel count $channelCount" }
+        require(data.size % frameSize == 0) { "incomplete frame" }
+    }
+
+    /**
+     * The size of the single frame in bytes
+     */
+    val frameSize: Int
+        get() = channelCount * BYTES_PER_SAMPLE
+
+    /**
+     * The number of the frames
+     */
+    val frames: Int
+        get() = data.size / frameSize
+
+    /**
+     * The duration in milliseconds
+     */
+    val duration: Long
+        get() = frames * 1000L / sampleRate
+
+    /**
+     * Write the sound to the file. The file is replaced atomically so the partially written file is never read
+     *
+     * @param file the file to write to
+     */
+    @Throws(IOException::class)
+    fun writeTo(file: File) {
+        val temp = File(file.parentFile, file.name + ".tmp")
+        DataOutputStream(BufferedOutputStream(FileOutputStream(temp))).use { output ->
+            output.writeInt(MAGIC)
+            output.writeInt(sampleRate)
+            output.writeInt(channelCount)
+            output.writeInt(data.size)
+            output.write(data)
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete()
+            throw IOException("Failed to rename $temp")
+        }
+    }
+
+    companion object {
+        const val BYTES_PER_SAMPLE = 2
+
+        private const val MAGIC = 0x50434D31
+
+        /**
+         * The size of the file header: magic, sample rate, channel count and data size
+         */
+        private const val HEADER_SIZE = 4 * 4
+
+        /**
+         * Read the sound previously written with the [writeTo] method
+         *
+         * @param file the file to read from
+         * @return the sound or null if the file is not a sound file
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun readFrom(file: File): PcmSound? =
+                DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                    if (file.length() < HEADER_SIZE || input.readInt() != MAGIC) {
+                        return null
+                    }
+                    val sampleRate = input.readInt()
+                    val channelCount = input.readInt()
+                    val size = input.readInt()
+                    if (size < 0 || size.toLong() != file.length() - HEADER_SIZE) {
+                        return null
+                    }
+                    val data = ByteArray(size)
+                    input.readFully(data)
+                    PcmSound(sampleRate, channelCount, data)
+                }
+    }
+}
@@ -0,0 +1,48 @@
+package com.app.missednotificationsreminder.service.sound
+
+import okio.ByteString.Companion.encodeUtf8
+import timber.log.Timber
+import java.io.File
+import java.io.IOException
+
+/**
+ * The disk cache of the single decoded sound. The sound is keyed by the identity of its source, so the sound is
+ * decoded again when the source changes even if the ringtone URI stays the same. Storing the sound deletes the
+ * previously cached ones.
+ *
+ * @param directory the directory to store the sound in
+ */
+class PcmSoundCache(private val directory: File) {
+
+    /**
+     * Get the cached sound
+     *
+     * @param source the sound source identity
+     * @return the cached sound or null if the sound of the source is not cached or can't be read
+     */
+    fun get(source: String): PcmSound? {
+        val file = file(source)
+        return try {
+            if (file.exists()) PcmSound.readFrom(file) else null
+        } catch (e: Exception) {
+            Timber.w(e, "Failed to read %s", file)
+            null
+        }
+    }
+
+    /**
+     * Store the sound and delete the sounds of the other sources
+     *
+     * @param source the sound source identity
+     * @param sound  the decoded sound
+     */
+    @Throws(IOException::class)
+    fun put(source: String, sound: PcmSound) {
+        val file = file(source)
+        directory.mkdirs()
+        sound.writeTo(file)
+        directory.listFiles()?.filter { it != file }?.forEach { it.delete() }
+    }
+
+    private fun file(source: String) = File(directory, source.encodeUtf8().sha1().hex())
+}
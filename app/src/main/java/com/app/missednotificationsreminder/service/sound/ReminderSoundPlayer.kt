@@ -0,0 +1,279 @@
+package com.app.missednotificationsreminder.service.sound
+
+import android.app.Application
+import android.media.AudioAttributes
+import android.media.AudioFormat
+import android.media.AudioManager
+import android.media.AudioTrack
+import android.media.RingtoneManager
+import android.net.Uri
+import android.os.Build
+import androidx.annotation.RequiresApi
+import com.app.missednotificationsreminder.data.PreferenceChangeDispatcher
+import com.app.missednotificationsreminder.settings.di.qualifiers.ReminderRingtone
+import com.tfcporciuncula.flow.Preference
+import kotlinx.coroutines.*
+import timber.log.Timber
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The player of the reminder sound. The selected ringtone is decoded to PCM once when it changes and cached on disk,
+ * so the reminders play it from the prepared buffer without decoding the ringtone each time. The default ringtone
+ * URIs are resolved to the actual ringtones, so the sound is prepared again when the system default changes.
+ *
+ * The sounds which can't be decoded or are too long aren't prepared, the [play] method returns false for them and
+ * the caller should play the ringtone with the [android.media.MediaPlayer].
+ */
+@Singleton
+class ReminderSoundPlayer @Inject constructor(
+        private val app: Application,
+        @param:ReminderRingtone reminderRingtone: Preference<String>,
+        dispatcher: PreferenceChangeDispatcher) {
+
+    private val preparationDispatcher = Executors
+            .newSingleThreadExecutor { runnable -> Thread(runnable, "ReminderSound").apply { isDaemon = true } }
+            .asCoroutineDispatcher()
+
+    /**
+     * The scope of the sound preparations, see [release]
+     */
+    private val scope = CoroutineScope(SupervisorJob() + preparationDispatcher)
+
+    /**
+     * The current sound preparation
+     */
+    private var preparation: Job? = null
+
+    /**
+     * The ringtone and its actual URI of the current [preparation]
+     */
+    private var preparing: Pair<String, String>? = null
+
+    private val cache by lazy { PcmSoundCache(File(app.cacheDir, CACHE_DIRECTORY)) }
+
+    /**
+     * The latest ringtone requested to prepare
+     */
+    @Volatile
+    private var requested: String? = null
+
+    /**
+     * The prepared ringtone sound
+     */
+    @Volatile
+    private var prepared: Prepared? = null
+
+    /**
+     * The audio track of the prepared sound, accessed on the playing thread only
+     */
+    private var track: PreparedTrack? = null
+
+    private val playsCount = AtomicInteger()
+    private val fallbacksCount = AtomicInteger()
+    private val failuresCount = AtomicInteger()
+
+    /**
+     * The number of the reminders played from the prepared sound
+     */
+    val plays: Int
+        get() = playsCount.get()
+
+    /**
+     * The number of the reminders the sound wasn't prepared for
+     */
+    val fallbacks: Int
+        get() = fallbacksCount.get()
+
+    /**
+     * The number of the failed preparations and playbacks
+     */
+    val failures: Int
+        get() = failuresCount.get()
+
+    /**
+     * The maximum playback start latency in microseconds
+     */
+    @Volatile
+    var maxStartLatency = 0L
+        private set
+
+    init {
+        prepare(reminderRingtone.get())
+        dispatcher.register(reminderRingtone) { prepare(it) }
+    }
+
+    /**
+     * Play the prepared ringtone sound
+     *
+     * @param ringtone   the ringtone URI
+     * @param streamType the audio stream type to play the sound at
+     * @param muted      whether the sound should be played muted
+     * @return true if the sound has been played, false if the ringtone isn't prepared
+     */
+    suspend fun play(ringtone: String, streamType: Int, muted: Boolean): Boolean {
+        val sound = prepared?.takeIf { it.ringtone == ringtone && it.actual == actual(ringtone) }?.sound
+        if (sound == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            Timber.d("play: %s is not prepared", ringtone)
+            fallbacksCount.incrementAndGet()
+            // the default ringtone may be changed or the preparation may be cancelled by the release
+            prepare(ringtone)
+            return false
+        }
+        val start = System.nanoTime()
+        val audioTrack = try {
+            track(sound, streamType).apply {
+                setVolume(if (muted) 0f else 1f)
+                play()
+            }
+        } catch (e: Exception) {
+            Timber.e(e, "Failed to play %s", ringtone)
+            failuresCount.incrementAndGet()
+            release()
+            return false
+        }
+        val latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)
+        maxStartLatency = maxOf(maxStartLatency, latency)
+        Timber.d("play: started in %d us, plays %d, fallbacks %d, failures %d",
+                latency, playsCount.incrementAndGet(), fallbacks, failures)
+        try {
+            delay(sound.duration)
+        } finally {
+            if (audioTrack.state == AudioTrack.STATE_INITIALIZED) {
+                // may be already released
+                audioTrack.stop()
+            }
+        }
+        return true
+    }
+
+    /**
+     * Release the audio track and cancel the sound preparation. The track is created again on the next playback
+     */
+    fun release() {
+        track?.audioTrack?.release()
+        track = null
+        scope.coroutineContext.cancelChildren()
+    }
+
+    /**
+     * Get the audio track ready to play the sound from its beginning
+     */
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private fun track(sound: PcmSound, streamType: Int): AudioTrack {
+        track?.takeIf { it.sound === sound && it.streamType == streamType }?.let {
+            // rewind the static buffer
+            if (it.audioTrack.reloadStaticData() != AudioTrack.SUCCESS) {
+                throw IOException("Failed to reload the sound")
+            }
+            return it.audioTrack
+        }
+        release()
+        val audioTrack = AudioTrack(
+                AudioAttributes.Builder()
+                        .setLegacyStreamType(streamType)
+                        .build(),
+                AudioFormat.Builder()
+                        .setSampleRate(sound.sampleRate)
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setChannelMask(if (sound.channelCount == 1) AudioFormat.CHANNEL_OUT_MONO else AudioFormat.CHANNEL_OUT_STEREO)
+                        .build(),
+                sound.data.size,
+                AudioTrack.MODE_STATIC,
+                AudioManager.AUDIO_SESSION_ID_GENERATE)
+        if (audioTrack.write(sound.data, 0, sound.data.size) != sound.data.size ||
+                audioTrack.state != AudioTrack.STATE_INITIALIZED) {
+            audioTrack.release()
+            throw IOException("Failed to initialize the audio track")
+        }
+        track = PreparedTrack(sound, streamType, audioTrack)
+        return audioTrack
+    }
+
+    /**
+     * Prepare the ringtone sound in background
+     */
+    @Synchronized
+    private fun prepare(ringtone: String) {
+        requested = ringtone
+        val actual = actual(ringtone)
+        if (prepared?.let { it.ringtone == ringtone && it.actual == actual } == true ||
+                preparation?.isActive == true && preparing == (ringtone to actual)) {
+            return
+        }
+        prepared = null
+        preparation?.cancel()
+        preparation = null
+        if (ringtone.isEmpty() || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return
+        }
+        preparing = ringtone to actual
+        preparation = scope.launch {
+            val source = source(actual)
+            val sound = try {
+                cache.get(source) ?: PcmDecoder(MAX_SOUND_SIZE).decode(app, Uri.parse(actual)).also {
+                    cache.put(source, it)
+                }
+            } catch (e: Exception) {
+                Timber.w(e, "Failed to prepare %s", ringtone)
+                failuresCount.incrementAndGet()
+                null
+            }
+            if (sound != null && isActive && requested == ringtone) {
+                Timber.d("Prepared %s: %d ms", ringtone, sound.duration)
+                prepared = Prepared(ringtone, actual, sound)
+            }
+        }
+    }
+
+    /**
+     * Get the actual ringtone URI. The default ringtone URIs are the aliases of the ringtones selected in the system
+     * settings
+     *
+     * @param ringtone the ringtone URI
+     * @return the actual ringtone URI, the same as the [ringtone] if it isn't the default one
+     */
+    private fun actual(ringtone: String): String {
+        if (ringtone.isEmpty()) {
+            return ringtone
+        }
+        val uri = Uri.parse(ringtone)
+        val type = RingtoneManager.getDefaultType(uri)
+        return if (type == -1) ringtone else RingtoneManager.getActualDefaultRingtoneUri(app, type)?.toString() ?: ringtone
+    }
+
+    /**
+     * Get the cache key of the sound, the size of the sound file is included, so the replaced file with the same URI
+     * isn't played from the cache
+     *
+     * @param actual the actual ringtone URI
+     */
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private fun source(actual: String): String {
+        val length = try {
+            app.contentResolver.openAssetFileDescriptor(Uri.parse(actual), "r")?.use { it.length }
+        } catch (e: Exception) {
+            Timber.w(e, "Failed to get the size of %s", actual)
+            null
+        }
+        return "$actual#${length ?: -1}"
+    }
+
+    private class Prepared(val ringtone: String, val actual: String, val sound: PcmSound)
+
+    private class PreparedTrack(val sound: PcmSound, val streamType: Int, val audioTrack: AudioTrack)
+
+    companion object {
+        private const val CACHE_DIRECTORY = "reminder_sound"
+
+        /**
+         * The maximum size of the decoded sound, about 12 seconds of the stereo 44.1 kHz sound
+         */
+        private const val MAX_SOUND_SIZE = 2 * 1024 * 1024
+    }
+}
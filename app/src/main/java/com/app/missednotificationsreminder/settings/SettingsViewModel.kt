@@ -19,6 +19,7 @@ import com.app.missednotificationsreminder.payment.billing.domain.repository.Pur
 import com.app.missednotificationsreminder.payment.model.Purchase
 import com.app.missednotificationsreminder.service.ReminderNotificationListenerService
 import com.app.missednotificationsreminder.service.util.ReminderNotificationListenerServiceUtils
+import com.app.missednotificationsreminder.settings.di.qualifiers.AdaptiveWake
 import com.app.missednotificationsreminder.settings.di.qualifiers.ForceWakeLock
 import com.app.missednotificationsreminder.settings.di.qualifiers.RateAppClicked
 import com.app.missednotificationsreminder.util.BatteryUtils
@@ -36,6 +37,7 @@ class SettingsViewModel @Inject constructor(
         private val vibrator: Vibrator,
         private val nightMode: Preference<NightMode>,
         @param:ForceWakeLock private val forceWakeLock: Preference<Boolean>,
+        @param:AdaptiveWake private val adaptiveWake: Preference<Boolean>,
         @param:RateAppClicked private val rateAppClicked: Preference<Boolean>,
         private val purchaseRepository: PurchaseRepository,
         private val purchases: Preference<List<Purchase>>
@@ -60,6 +62,13 @@ class SettingsViewModel @Inject constructor(
                         },
                         { it.forceWakeLock })
             }
+            launch {
+                _viewState.bindWithPreferences(adaptiveWake,
+                        { newValue, vs ->
+                            SettingsViewStatePartialChanges.AdaptiveWakeChange(newValue).reduce(vs)
+                        },
+                        { it.adaptiveWake })
+            }
             observePendingPayments(initialDelay = 0)
         }
     }
@@ -115,6 +124,10 @@ class SettingsViewModel @Inject constructor(
         process(SettingsViewStatePartialChanges.ForceWakeLockChange(value))
     }
 
+    fun adaptiveWakeChanged(value: Boolean) {
+        process(SettingsViewStatePartialChanges.AdaptiveWakeChange(value))
+    }
+
     fun rateApp(activity: Activity) {
         rateAppClicked.set(true)
         val uri = Uri.parse("market://details?id=${activity.packageName}")
@@ -8,6 +8,7 @@ data class SettingsViewState(
         val accessEnabled: Boolean = false,
         val batteryOptimizationDisabled: Boolean = false,
         val forceWakeLock: Boolean = false,
+        val adaptiveWake: Boolean = false,
         val advancedSettingsVisible: Boolean = false,
         val vibrationSettingsAvailable: Boolean = false,
         val missingPermissions: String = "",
@@ -47,4 +47,10 @@ sealed class SettingsViewStatePartialChanges : ViewStatePartialChanges<SettingsV
             return previousState.copy(forceWakeLock = newValue)
         }
     }
+
+    data class AdaptiveWakeChange(private val newValue: Boolean) : SettingsViewStatePartialChanges() {
+        override fun reduce(previousState: SettingsViewState): SettingsViewState {
+            return previousState.copy(adaptiveWake = newValue)
+        }
+    }
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package com.app.missednotificationsreminder.settings.applicationselection
 
 import android.net.Uri
-import timber.log.Timber
+import com.app.missednotificationsreminder.util.logging.Logger
 
 /**
  * The class to store application item information used in the [ApplicationsSelectionViewModel]
@@ -24,7 +24,7 @@ data class ApplicationItemViewState(
      */
     val name: CharSequence
         get() {
-            Timber.d("getName for %1\$s", toString())
+            Logger.d { "getName for $this" }
             return applicationName
         }
 
@@ -35,7 +35,7 @@ data class ApplicationItemViewState(
      */
     val description: String
         get() {
-            Timber.d("getDescription for %1\$s", toString())
+            Logger.d { "getDescription for $this" }
             return packageName
         }
 
@@ -0,0 +1,158 @@
+package com.app.missednotificationsreminder.settings.applicationselection
+
+import androidx.recyclerview.widget.ListUpdateCallback
+import androidx.recyclerview.widget.SortedList
+import com.app.missednotificationsreminder.service.data.model.NotificationCountsUpdate
+import timber.log.Timber
+
+/**
+ * The sorted application items displayed in the [applications selection view][ApplicationsSelectionFragment]. The
+ * items are indexed by the package name and the item position is found using the binary search in the sorted list,
+ * so the index stays valid when the items are reordered
+ *
+ * @param callback the callback the items changes are dispatched to
+ */
+class ApplicationItems(callback: ListUpdateCallback) {
+    private val data = SortedList(ApplicationItemViewState::class.java, object : SortedList.Callback<ApplicationItemViewState>() {
+        override fun compare(t0: ApplicationItemViewState, t1: ApplicationItemViewState): Int {
+            if (t0.activeNotifications != t1.activeNotifications) {
+                return t1.activeNotifications - t0.activeNotifications
+            }
+            return if (t0.checked != t1.checked) {
+                if (t0.checked) -1 else 1
+            } else getLabel(t0).compareTo(getLabel(t1), ignoreCase = true)
+        }
+
+        fun getLabel(item: ApplicationItemViewState): String {
+            return item.applicationName.toString()
+        }
+
+        override fun areContentsTheSame(oldItem: ApplicationItemViewState,
+                                        newItem: ApplicationItemViewState): Boolean {
+            return oldItem == newItem
+        }
+
+        override fun areItemsTheSame(item1: ApplicationItemViewState, item2: ApplicationItemViewState): Boolean {
+            return item1.packageName == item2.packageName
+        }
+
+        override fun onInserted(position: Int, count: Int) {
+            callback.onInserted(position, count)
+        }
+
+        override fun onRemoved(position: Int, count: Int) {
+            callback.onRemoved(position, count)
+        }
+
+        override fun onMoved(fromPosition: Int, toPosition: Int) {
+            callback.onMoved(fromPosition, toPosition)
+        }
+
+        override fun onChanged(position: Int, count: Int) {
+            callback.onChanged(position, count, null)
+        }
+
+        override fun onChanged(position: Int, count: Int, payload: Any?) {
+            callback.onChanged(position, count, payload)
+        }
+    })
+
+    /**
+     * Index of the currently displayed items by the package name
+     */
+    private val itemsByPackage = HashMap<String, ApplicationItemViewState>()
+
+    /**
+     * The latest known active notifications number by the package name, null until the first full update
+     */
+    private var notificationCounts: MutableMap<String, Int>? = null
+
+    /**
+     * The number of the displayed items
+     */
+    val size: Int
+        get() = data.size()
+
+    /**
+     * Get the item at the position
+     *
+     * @param position the item position
+     */
+    operator fun get(position: Int): ApplicationItemViewState = data[position]
+
+    /**
+     * Get the displayed item of the package
+     *
+     * @param packageName the item package name
+     * @return the item or null if the package is not displayed
+     */
+    operator fun get(packageName: String): ApplicationItemViewState? = itemsByPackage[packageName]
+
+    /**
+     * Set the displayed items. Only the difference with the currently displayed items is dispatched so the data may
+     * be updated incrementally as it is loaded
+     *
+     * @param data the items to display
+     */
+    fun setData(data: List<ApplicationItemViewState>) {
+        val counts = notificationCounts
+        val items = if (counts == null) data else data.map { item ->
+            // the data may be prepared with the outdated active notifications number
+            (counts[item.packageName] ?: 0).let { count ->
+                if (item.activeNotifications == count) item else item.copy(activeNotifications = count)
+            }
+        }
+        this.data.replaceAll(items)
+        itemsByPackage.clear()
+        items.associateByTo(itemsByPackage) { it.packageName }
+    }
+
+    /**
+     * Replace the displayed item with the same package name
+     *
+     * @param item the updated item
+     */
+    fun update(item: ApplicationItemViewState) {
+        val current = itemsByPackage[item.packageName] ?: return
+        val position = data.indexOf(current)
+        if (position == SortedList.INVALID_POSITION) {
+            Timber.w("update: item for %s is not found", item.packageName)
+            return
+        }
+        itemsByPackage[item.packageName] = item
+        data.updateItemAt(position, item)
+    }
+
+    /**
+     * Update the active notifications number of the items. Only the items of the changed packages are touched and
+     * the resulting changes are dispatched at once
+     *
+     * @param update the active notifications number update
+     */
+    fun updateNotificationCounts(update: NotificationCountsUpdate) {
+        val counts = notificationCounts
+        if (update.full || counts == null) {
+            notificationCounts = HashMap(update.counts)
+        } else {
+            counts.putAll(update.counts)
+        }
+        val changed = if (update.full) {
+            itemsByPackage.values.filter { it.activeNotifications != (update.counts[it.packageName] ?: 0) }
+        } else {
+            update.counts.mapNotNull { (packageName, count) ->
+                itemsByPackage[packageName]?.takeIf { it.activeNotifications != count }
+            }
+        }
+        if (changed.isEmpty()) {
+            return
+        }
+        data.beginBatchedUpdates()
+        try {
+            for (item in changed) {
+                update(item.copy(activeNotifications = update.counts[item.packageName] ?: 0))
+            }
+        } finally {
+            data.endBatchedUpdates()
+        }
+    }
+}
@@ -4,12 +4,11 @@ import android.view.LayoutInflater
 import android.view.ViewGroup
 import androidx.lifecycle.asLiveData
 import androidx.lifecycle.lifecycleScope
+import androidx.recyclerview.widget.AdapterListUpdateCallback
 import androidx.recyclerview.widget.RecyclerView
-import androidx.recyclerview.widget.SortedList
-import androidx.recyclerview.widget.SortedListAdapterCallback
 import com.app.missednotificationsreminder.databinding.ItemSelectableApplicationBinding
 import com.app.missednotificationsreminder.settings.di.qualifiers.SelectedApplications
-import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.data.model.NotificationCountsUpdate
 import com.app.missednotificationsreminder.ui.widget.recyclerview.LifecycleAdapter
 import com.app.missednotificationsreminder.ui.widget.recyclerview.LifecycleViewHolder
 import com.squareup.picasso.Picasso
@@ -27,36 +26,18 @@ import javax.inject.Inject
 @ExperimentalCoroutinesApi
 class ApplicationsSelectionAdapter @Inject constructor(
         @param:SelectedApplications private val selectedApplications: Preference<Set<String>>,
-        notificationDataFlow: Flow<@JvmSuppressWildcards List<NotificationData>>,
+        notificationCountsFlow: Flow<NotificationCountsUpdate>,
         private val picasso: Picasso) : LifecycleAdapter<ApplicationsSelectionAdapter.ViewHolder>() {
-    private val data = SortedList(ApplicationItemViewState::class.java, object : SortedListAdapterCallback<ApplicationItemViewState>(this) {
-        override fun compare(t0: ApplicationItemViewState, t1: ApplicationItemViewState): Int {
-            if (t0.activeNotifications != t1.activeNotifications) {
-                return t1.activeNotifications - t0.activeNotifications
-            }
-            return if (t0.checked != t1.checked) {
-                if (t0.checked) -1 else 1
-            } else getLabel(t0).compareTo(getLabel(t1), ignoreCase = true)
-        }
-
-        fun getLabel(item: ApplicationItemViewState): String {
-            return item.applicationName.toString()
-        }
-
-        override fun areContentsTheSame(oldItem: ApplicationItemViewState,
-                                        newItem: ApplicationItemViewState): Boolean {
-            return oldItem == newItem
-        }
-
-        override fun areItemsTheSame(item1: ApplicationItemViewState, item2: ApplicationItemViewState): Boolean {
-            return item1.packageName == item2.packageName
-        }
-    })
+    private val items = ApplicationItems(AdapterListUpdateCallback(this))
 
+    /**
+     * Set the displayed items. Only the difference with the currently displayed items is dispatched so the data may
+     * be updated incrementally as it is loaded
+     *
+     * @param data the items to display
+     */
     fun setData(data: List<ApplicationItemViewState>) {
-        this.data.clear()
-        this.data.addAll(data)
-        notifyDataSetChanged()
+        items.setData(data)
     }
 
     override fun onCreateViewHolder(viewGroup: ViewGroup, i: Int): ViewHolder {
@@ -66,11 +47,11 @@ class ApplicationsSelectionAdapter @Inject constructor(
     }
 
     override fun onBindViewHolder(viewHolder: ViewHolder, i: Int) {
-        viewHolder.bindTo(data[i])
+        viewHolder.bindTo(items[i])
     }
 
     override fun getItemCount(): Int {
-        return data.size()
+        return items.size
     }
 
     fun shutdown() {
@@ -115,7 +96,10 @@ class ApplicationsSelectionAdapter @Inject constructor(
                     .drop(1)
                     .distinctUntilChanged { old, new -> old.checked == new.checked }
                     .onEach { applicationItem ->
-                        data.updateItemAt(adapterPosition, applicationItem)
+                        // keep the active notifications number which may be updated after the item binding
+                        items.update(items[applicationItem.packageName]
+                                ?.copy(checked = applicationItem.checked)
+                                ?: applicationItem)
                         Timber.d("Update selected application value %1\$s to %2\$b", applicationItem.packageName, applicationItem.checked)
                         // for sure we may use if condition here instead of concatenation of 2 observables. Just wanted to achieve
                         // same result with RxJava usage.
@@ -133,35 +117,11 @@ class ApplicationsSelectionAdapter @Inject constructor(
         }
     }
 
-    companion object {
-        fun getNotificationCountData(notificationData: List<NotificationData>): Map<String, Int> {
-            return notificationData.groupingBy { it.packageName }
-                    .eachCount()
-        }
-    }
-
     init {
         setHasStableIds(false)
-        notificationDataFlow
-                .conflate()
-                .onEach { notificationData ->
-                    val notificationsCountInfo = getNotificationCountData(notificationData)
-                    while (true) {
-                        var found = false
-                        for (i in 0 until data.size()) {
-                            val item = data[i]
-                            val count = notificationsCountInfo[item.packageName] ?: 0
-                            if (item.activeNotifications != count) {
-                                data.updateItemAt(i, item.copy(activeNotifications = count))
-                                found = true
-                                break
-                            }
-                        }
-                        if (!found) {
-                            break
-                        }
-                    }
-                }
+        // updates are applied one by one, partial ones should not be conflated
+        notificationCountsFlow
+                .onEach { update -> items.updateNotificationCounts(update) }
                 .launchIn(lifecycleScope)
     }
 }
\ No newline at end of file
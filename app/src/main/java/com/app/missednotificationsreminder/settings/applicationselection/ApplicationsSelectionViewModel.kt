@@ -1,16 +1,18 @@
 package com.app.missednotificationsreminder.settings.applicationselection
 
-import android.content.pm.PackageManager
 import android.net.Uri
+import android.os.SystemClock
 import androidx.lifecycle.viewModelScope
 import com.app.missednotificationsreminder.binding.model.BaseViewStateModel
 import com.app.missednotificationsreminder.binding.model.ViewStatePartialChanges
 import com.app.missednotificationsreminder.settings.di.qualifiers.SelectedApplications
-import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.data.model.NotificationCountsUpdate
+import com.app.missednotificationsreminder.settings.applicationselection.data.ApplicationsCatalog
 import com.app.missednotificationsreminder.settings.applicationselection.data.model.util.ApplicationIconHandler
 import com.tfcporciuncula.flow.Preference
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.*
 import timber.log.Timber
 import java.util.*
@@ -22,42 +24,54 @@ import javax.inject.Inject
 @ExperimentalCoroutinesApi
 class ApplicationsSelectionViewModel @Inject constructor(
         @param:SelectedApplications private val selectedApplicationsPref: Preference<Set<String>>,
-        private val notificationDataFlow: Flow<@JvmSuppressWildcards List<NotificationData>>,
-        private val packageManager: PackageManager) :
+        private val notificationCountsFlow: Flow<NotificationCountsUpdate>,
+        private val applicationsCatalog: ApplicationsCatalog) :
         BaseViewStateModel<ViewState, ViewStatePartialChanges<ViewState>>(ViewState(LoadingStatus.NotStarted, Collections.emptyList())) {
 
+    /**
+     * The job which keeps the view data in sync with the applications catalog
+     */
+    private var loadJob: Job? = null
+
     /**
      * Load the application data to the view
      */
     @ExperimentalCoroutinesApi
     fun loadData() {
         Timber.d("loadData: thread=%s", Thread.currentThread().name)
-        if (_viewState.value.loadingStatus == LoadingStatus.Loading) {
+        if (loadJob?.isActive == true) {
             Timber.d("loadData: already loading, return")
             return
         }
         _viewState.apply { value = value.copy(loadingStatus = LoadingStatus.Loading) }
-        notificationDataFlow
+        val start = SystemClock.elapsedRealtime()
+        var firstRowDisplayed = false
+        loadJob = notificationCountsFlow
+                // the first update is always the full one
                 .take(1)
-                .map { ApplicationsSelectionAdapter.getNotificationCountData(it) }
-                .map { notificationsCountInfo ->
-                    val result: MutableList<ApplicationItemViewState> = ArrayList()
-                    val packages = packageManager.getInstalledPackages(0)
-                    val selectedApplications = selectedApplicationsPref.get()
-                    for (packageInfo in packages) {
-                        val selected = selectedApplications.contains(packageInfo.packageName)
-                        result.add(ApplicationItemViewState(
-                                checked = selected,
-                                applicationName = packageInfo.applicationInfo.loadLabel(packageManager),
-                                packageName = packageInfo.packageName,
-                                activeNotifications = notificationsCountInfo[packageInfo.packageName]
-                                        ?: 0,
-                                iconUri = Uri.Builder()
-                                        .scheme(ApplicationIconHandler.SCHEME)
-                                        .authority(packageInfo.packageName)
-                                        .build()))
+                .map { it.counts }
+                // the cached catalog is displayed first and then updated with the loaded chunks and changes
+                .flatMapLatest { notificationsCountInfo ->
+                    // selected and notifying applications are displayed at the top so load them first
+                    val priorityPackages = selectedApplicationsPref.get() + notificationsCountInfo.keys
+                    applicationsCatalog.applications(priorityPackages).map { applications ->
+                        val selectedApplications = selectedApplicationsPref.get()
+                        applications.map { application ->
+                            ApplicationItemViewState(
+                                    checked = selectedApplications.contains(application.packageName),
+                                    applicationName = application.label,
+                                    packageName = application.packageName,
+                                    activeNotifications = notificationsCountInfo[application.packageName]
+                                            ?: 0,
+                                    iconUri = Uri.Builder()
+                                            .scheme(ApplicationIconHandler.SCHEME)
+                                            .authority(application.packageName)
+                                            .appendQueryParameter(ApplicationIconHandler.VERSION_PARAMETER,
+                                                    ApplicationIconHandler.getVersion(application.versionCode,
+                                                            application.lastUpdateTime))
+                                            .build())
+                        }
                     }
-                    result.toList()
                 }
                 .flowOn(Dispatchers.IO)
                 .catch { t ->
@@ -65,6 +79,11 @@ class ApplicationsSelectionViewModel @Inject constructor(
                     _viewState.apply { value = value.copy(loadingStatus = LoadingStatus.Error) }
                 }
                 .onEach {
+                    if (!firstRowDisplayed && it.isNotEmpty()) {
+                        firstRowDisplayed = true
+                        Timber.i("loadData: first %d applications are available in %d ms",
+                                it.size, SystemClock.elapsedRealtime() - start)
+                    }
                     _viewState.apply { value = value.copy(loadingStatus = LoadingStatus.NotStarted, data = it) }
                 }
                 .launchIn(viewModelScope)
@@ -0,0 +1,299 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.content.pm.PackageInfo
+import android.content.pm.PackageManager
+import androidx.core.content.pm.PackageInfoCompat
+import androidx.core.util.AtomicFile
+import com.app.missednotificationsreminder.di.qualifiers.ForApplication
+import com.app.missednotificationsreminder.settings.applicationselection.data.model.InstalledApplication
+import kotlinx.coroutines.*
+import kotlinx.coroutines.flow.*
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.sync.withPermit
+import timber.log.Timber
+import java.io.File
+import java.io.IOException
+import java.util.*
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.min
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The catalog of the installed applications. The catalog is persisted so it is available instantly on the next
+ * application run and then verified against the installed packages. Only new and updated packages have their
+ * labels loaded from the [PackageManager]. While the catalog has subscribers, package added, removed and changed
+ * broadcasts update the affected entries only. The broadcasts are not tracked after the last subscriber is gone, the
+ * catalog is verified again for the next one.
+ *
+ * Labels are loaded in parallel by the bounded number of loaders and published in chunks, so the applications the
+ * caller is interested in most appear before all the labels are loaded.
+ */
+@Singleton
+class ApplicationsCatalog @Inject constructor(
+        @param:ForApplication private val context: Context,
+        private val packageManager: PackageManager) {
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    /**
+     * Guards catalog updates and cache writes
+     */
+    private val mutex = Mutex()
+
+    /**
+     * Limits the number of the parallel label loaders
+     */
+    private val labelLoaders = Semaphore(LABEL_LOADERS)
+
+    /**
+     * Packages which labels should be loaded first
+     */
+    @Volatile
+    private var priorityPackages: Set<String> = emptySet()
+
+    private val cacheFile by lazy { AtomicFile(File(context.filesDir, CACHE_FILE_NAME)) }
+
+    /**
+     * The current catalog content, null until the catalog is loaded
+     */
+    private val content = MutableStateFlow<ApplicationsCatalogCodec.Content?>(null)
+
+    /**
+     * Number of the active [applications] subscribers
+     */
+    private val subscribers = AtomicInteger()
+
+    /**
+     * Whether the catalog is verified against the installed packages and the changes are tracked
+     */
+    private var tracking = false
+
+    private val packagesReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            val packageName = intent.data?.schemeSpecificPart ?: return
+            Timber.d("Package %s changed: %s", packageName, intent.action)
+            if (intent.action == Intent.ACTION_PACKAGE_REMOVED) {
+                if (!intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+                    scope.launch { removePackage(packageName) }
+                }
+                // the replaced package is updated on the following replaced broadcast
+                return
+            }
+            scope.launch { updatePackage(packageName) }
+        }
+    }
+
+    private val localeReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            Timber.d("Locale changed, reload the applications labels")
+            scope.launch { mutex.withLock { synchronize() } }
+        }
+    }
+
+    /**
+     * Get the installed applications in no particular order. The cached catalog is emitted first if available, then
+     * the partially verified ones while the labels are loading and then the catalog after each package change
+     *
+     * @param priorityPackages the packages which labels should be loaded first if the catalog is not yet verified
+     */
+    fun applications(priorityPackages: Set<String> = emptySet()): Flow<List<InstalledApplication>> = content
+            .onStart {
+                this@ApplicationsCatalog.priorityPackages = priorityPackages
+                subscribers.incrementAndGet()
+                scope.launch { load() }
+            }
+            .onCompletion {
+                subscribers.decrementAndGet()
+                scope.launch { release() }
+            }
+            .filterNotNull()
+            .map { it.applications }
+            .distinctUntilChanged()
+
+    /**
+     * Load the catalog from cache and verify it against the installed packages if not yet done
+     */
+    private suspend fun load() {
+        mutex.withLock { loadLocked() }
+    }
+
+    private suspend fun loadLocked() {
+        if (tracking || subscribers.get() == 0) {
+            return
+        }
+        if (content.value == null) {
+            content.value = readCache()
+        }
+        // start tracking changes before the verification so no change is missed
+        context.registerReceiver(packagesReceiver, IntentFilter().apply {
+            addAction(Intent.ACTION_PACKAGE_ADDED)
+            addAction(Intent.ACTION_PACKAGE_CHANGED)
+            addAction(Intent.ACTION_PACKAGE_REMOVED)
+            addAction(Intent.ACTION_PACKAGE_REPLACED)
+            addDataScheme("package")
+        })
+        context.registerReceiver(localeReceiver, IntentFilter(Intent.ACTION_LOCALE_CHANGED))
+        tracking = true
+        synchronize()
+    }
+
+    /**
+     * Stop tracking the package changes if there are no more subscribers
+     */
+    private suspend fun release() {
+        mutex.withLock {
+            if (!tracking || subscribers.get() > 0) {
+                return
+            }
+            context.unregisterReceiver(packagesReceiver)
+            context.unregisterReceiver(localeReceiver)
+            tracking = false
+        }
+    }
+
+    /**
+     * Verify the catalog against the installed packages. Labels are loaded only for the new and updated packages or
+     * for all of them if the locale has been changed
+     */
+    private suspend fun synchronize() {
+        val start = System.currentTimeMillis()
+        val locale = Locale.getDefault().toString()
+        val previous = content.value
+        val cached = previous
+                ?.takeIf { it.locale == locale }
+                ?.applications
+                ?.associateBy { it.packageName }
+                ?: emptyMap()
+        val installed = packageManager.getInstalledPackages(0)
+        val applications = ArrayList<InstalledApplication>(installed.size)
+        val outdated = ArrayList<PackageInfo>()
+        for (packageInfo in installed) {
+            val application = cached[packageInfo.packageName]
+            if (application != null &&
+                    application.versionCode == PackageInfoCompat.getLongVersionCode(packageInfo) &&
+                    application.lastUpdateTime == packageInfo.lastUpdateTime) {
+                applications.add(application)
+            } else {
+                outdated.add(packageInfo)
+            }
+        }
+        val priority = priorityPackages
+        // stable sort keeps the installed packages order for the rest
+        outdated.sortBy { if (priority.contains(it.packageName)) 0 else 1 }
+        // the outdated entries are displayed until their labels are loaded
+        val stale = previous?.applications?.associateBy { it.packageName } ?: emptyMap()
+        for ((index, chunk) in outdated.chunked(LABELS_CHUNK_SIZE).withIndex()) {
+            chunk.map { packageInfo ->
+                scope.async { labelLoaders.withPermit { packageInfo.toInstalledApplication() } }
+            }.mapTo(applications) { it.await() }
+            val pending = outdated.subList(min(outdated.size, (index + 1) * LABELS_CHUNK_SIZE), outdated.size)
+            if (pending.isNotEmpty()) {
+                // publish the partially verified catalog, it is persisted only when complete
+                content.value = ApplicationsCatalogCodec.Content(locale,
+                        applications + pending.mapNotNull { stale[it.packageName] })
+            }
+        }
+        Timber.d("synchronize: %d applications, %d labels loaded in %d ms",
+                applications.size, outdated.size, System.currentTimeMillis() - start)
+        update(ApplicationsCatalogCodec.Content(locale, applications))
+    }
+
+    /**
+     * Update the catalog entry of the changed package
+     *
+     * @param packageName the changed package name
+     */
+    private suspend fun updatePackage(packageName: String) {
+        mutex.withLock { updatePackageLocked(packageName) }
+    }
+
+    /**
+     * Remove the catalog entry of the uninstalled package
+     *
+     * @param packageName the removed package name
+     */
+    private suspend fun removePackage(packageName: String) {
+        mutex.withLock {
+            val current = content.value ?: return
+            update(current.copy(applications = current.applications.filter { it.packageName != packageName }))
+        }
+    }
+
+    private fun updatePackageLocked(packageName: String) {
+        val current = content.value ?: return
+        val packageInfo = try {
+            packageManager.getPackageInfo(packageName, 0)
+        } catch (e: PackageManager.NameNotFoundException) {
+            // package is removed
+            null
+        }
+        val applications = current.applications.filterTo(ArrayList(current.applications.size)) {
+            it.packageName != packageName
+        }
+        packageInfo?.let { applications.add(it.toInstalledApplication()) }
+        update(current.copy(applications = applications))
+    }
+
+    private fun update(updated: ApplicationsCatalogCodec.Content) {
+        if (updated == content.value) {
+            return
+        }
+        content.value = updated
+        writeCache(updated)
+    }
+
+    private fun readCache(): ApplicationsCatalogCodec.Content? {
+        if (!cacheFile.baseFile.exists()) {
+            return null
+        }
+        return try {
+            cacheFile.openRead().use { ApplicationsCatalogCodec.read(it) }
+        } catch (e: IOException) {
+            Timber.w(e, "Failed to read the applications catalog cache")
+            null
+        }
+    }
+
+    private fun writeCache(content: ApplicationsCatalogCodec.Content) {
+        val output = try {
+            cacheFile.startWrite()
+        } catch (e: IOException) {
+            Timber.w(e, "Failed to write the applications catalog cache")
+            return
+        }
+        try {
+            ApplicationsCatalogCodec.write(output, content)
+            cacheFile.finishWrite(output)
+        } catch (e: IOException) {
+            Timber.w(e, "Failed to write the applications catalog cache")
+            cacheFile.failWrite(output)
+        }
+    }
+
+    private fun PackageInfo.toInstalledApplication() = InstalledApplication(
+            packageName = packageName,
+            label = applicationInfo.loadLabel(packageManager).toString(),
+            versionCode = PackageInfoCompat.getLongVersionCode(this),
+            lastUpdateTime = lastUpdateTime)
+
+    companion object {
+        private const val CACHE_FILE_NAME = "applications_catalog"
+
+        /**
+         * The maximum number of the labels loaded in parallel
+         */
+        private const val LABEL_LOADERS = 4
+
+        /**
+         * The number of the loaded labels the partially verified catalog is published after
+         */
+        private const val LABELS_CHUNK_SIZE = 32
+    }
+}
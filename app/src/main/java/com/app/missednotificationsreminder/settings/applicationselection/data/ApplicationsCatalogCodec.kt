@@ -0,0 +1,71 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data
+
+import com.app.missednotificationsreminder.settings.applicationselection.data.model.InstalledApplication
+import java.io.*
+
+/**
+ * The compact binary format of the applications catalog cache
+ */
+object ApplicationsCatalogCodec {
+    /**
+     * The format version, should be incremented on each format change so the old caches are ignored
+     */
+    private const val FORMAT_VERSION = 1
+
+    /**
+     * Write the catalog content to the stream
+     *
+     * @param output  the stream to write to
+     * @param content the catalog content
+     */
+    @Throws(IOException::class)
+    fun write(output: OutputStream, content: Content) {
+        val data = DataOutputStream(BufferedOutputStream(output))
+        data.writeInt(FORMAT_VERSION)
+        data.writeUTF(content.locale)
+        data.writeInt(content.applications.size)
+        for (application in content.applications) {
+            data.writeUTF(application.packageName)
+            data.writeUTF(application.label)
+            data.writeLong(application.versionCode)
+            data.writeLong(application.lastUpdateTime)
+        }
+        data.flush()
+    }
+
+    /**
+     * Read the catalog content from the stream
+     *
+     * @param input the stream to read from
+     * @return the catalog content or null if the stream has unsupported format version
+     */
+    @Throws(IOException::class)
+    fun read(input: InputStream): Content? {
+        val data = DataInputStream(BufferedInputStream(input))
+        if (data.readInt() != FORMAT_VERSION) {
+            return null
+        }
+        val locale = data.readUTF()
+        val size = data.readInt()
+        if (size < 0) {
+            throw IOException("Invalid applications number $size")
+        }
+        val applications = ArrayList<InstalledApplication>(size)
+        repeat(size) {
+            applications.add(InstalledApplication(
+                    packageName = data.readUTF(),
+                    label = data.readUTF(),
+                    versionCode = data.readLong(),
+                    lastUpdateTime = data.readLong()))
+        }
+        return Content(locale, applications)
+    }
+
+    /**
+     * The catalog content
+     *
+     * @property locale the locale the application labels are loaded for
+     * @property applications the installed applications
+     */
+    data class Content(val locale: String, val applications: List<InstalledApplication>)
+}
@@ -0,0 +1,16 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data.model
+
+/**
+ * The installed application information stored in the
+ * [applications catalog][com.app.missednotificationsreminder.settings.applicationselection.data.ApplicationsCatalog]
+ *
+ * @property packageName the application package name
+ * @property label the application label in the catalog locale
+ * @property versionCode the application version code
+ * @property lastUpdateTime the time the application was last updated at
+ */
+data class InstalledApplication(
+        val packageName: String,
+        val label: String,
+        val versionCode: Long,
+        val lastUpdateTime: Long)
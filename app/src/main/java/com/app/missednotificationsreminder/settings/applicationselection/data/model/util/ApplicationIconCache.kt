@@ -0,0 +1,131 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data.model.util
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import com.app.missednotificationsreminder.di.qualifiers.ForApplication
+import timber.log.Timber
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicLong
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The persistent disk cache of the rendered application icons, the decoded icons are kept in memory by the Picasso
+ * memory cache. Entries are keyed by the package name, the package version and the rendered size, so the icons of
+ * the updated packages are never served. The entries are tracked by the [ApplicationIconDiskIndex] which removes the
+ * previous package versions and keeps the cache size bounded.
+ */
+@Singleton
+class ApplicationIconCache @Inject constructor(@param:ForApplication private val context: Context) {
+    private val directory by lazy { File(context.cacheDir, DIRECTORY_NAME).apply { mkdirs() } }
+
+    /**
+     * The index of the cached icons, loaded from the cache directory on the first use
+     */
+    private var index: ApplicationIconDiskIndex? = null
+
+    private val decodeOptions = BitmapFactory.Options().apply { inPreferredConfig = Bitmap.Config.RGB_565 }
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+
+    /**
+     * Get the current cache statistics
+     */
+    val stats: Stats
+        get() = Stats(hits.get(), misses.get())
+
+    /**
+     * Get the cached icon
+     *
+     * @param packageName the application package name
+     * @param version     the application package version
+     * @param width       the rendered icon width
+     * @param height      the rendered icon height
+     * @return the cached icon or null if the icon is not cached
+     */
+    fun get(packageName: String, version: String, width: Int, height: Int): Bitmap? {
+        val name = ApplicationIconDiskIndex.name(packageName, version, width, height, EXTENSION)
+        if (!synchronized(this) { index().touch(name) }) {
+            misses.incrementAndGet()
+            return null
+        }
+        // opaque icons are stored without alpha channel and decoded with the same reduced config
+        val bitmap = BitmapFactory.decodeFile(File(directory, name).path, decodeOptions)
+        if (bitmap == null) {
+            Timber.w("Failed to decode the cached icon %s", name)
+            synchronized(this) { index().remove(name) }
+            misses.incrementAndGet()
+            return null
+        }
+        hits.incrementAndGet()
+        return bitmap
+    }
+
+    /**
+     * Store the rendered icon
+     *
+     * @param packageName the application package name
+     * @param version     the application package version
+     * @param width       the rendered icon width
+     * @param height      the rendered icon height
+     * @param bitmap      the rendered icon
+     */
+    fun put(packageName: String, version: String, width: Int, height: Int, bitmap: Bitmap) {
+        // load the index before writing, it deletes the interrupted writes
+        synchronized(this) { index() }
+        val name = ApplicationIconDiskIndex.name(packageName, version, width, height, EXTENSION)
+        val file = File(directory, name)
+        val temp = File(directory, ApplicationIconDiskIndex.name(packageName, version, width, height, TEMP_EXTENSION))
+        try {
+            FileOutputStream(temp).use { bitmap.compress(Bitmap.CompressFormat.PNG, 100, it) }
+            if (!temp.renameTo(file)) {
+                temp.delete()
+                return
+            }
+        } catch (e: IOException) {
+            Timber.w(e, "Failed to store the icon for %s", packageName)
+            temp.delete()
+            return
+        }
+        synchronized(this) {
+            index().add(name, file.length()).forEach { File(directory, it).delete() }
+        }
+    }
+
+    private fun index(): ApplicationIconDiskIndex = index ?: ApplicationIconDiskIndex(MAX_DISK_SIZE).also { index ->
+        directory.listFiles()
+                ?.sortedBy { it.lastModified() }
+                ?.forEach { file ->
+                    if (file.name.endsWith(EXTENSION)) {
+                        index.add(file.name, file.length()).forEach { File(directory, it).delete() }
+                    } else {
+                        // interrupted write
+                        file.delete()
+                    }
+                }
+        this.index = index
+    }
+
+    /**
+     * The cache statistics
+     *
+     * @property hits   the number of the icons found in the cache
+     * @property misses the number of the icons which are not cached
+     */
+    data class Stats(val hits: Long, val misses: Long)
+
+    companion object {
+        private const val DIRECTORY_NAME = "application_icons"
+        private const val EXTENSION = ".png"
+        private const val TEMP_EXTENSION = ".tmp"
+
+        /**
+         * The maximum cache size in bytes
+         */
+        private const val MAX_DISK_SIZE = 4L * 1024 * 1024
+    }
+}
@@ -0,0 +1,105 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data.model.util
+
+import java.util.*
+
+/**
+ * The index of the disk cached application icons. It keeps the entries in the access order and tracks their total
+ * size incrementally, so the cache directory is listed only once when the index is loaded. Icons are evicted when
+ * the newer version of the same package is stored or when the total size exceeds the limit.
+ *
+ * The index is not thread safe.
+ *
+ * @param maxSize the maximum total size of the entries in bytes
+ */
+class ApplicationIconDiskIndex(private val maxSize: Long) {
+    /**
+     * The entries by the file name in the access order
+     */
+    private val entries = LinkedHashMap<String, Entry>(16, 0.75f, true)
+
+    /**
+     * The current total size of the entries in bytes
+     */
+    var size = 0L
+        private set
+
+    /**
+     * Number of the indexed entries
+     */
+    val count: Int
+        get() = entries.size
+
+    /**
+     * Check whether the entry is present and mark it as the most recently used one
+     *
+     * @param name the entry file name
+     */
+    fun touch(name: String): Boolean = entries[name] != null
+
+    /**
+     * Add the stored entry
+     *
+     * @param name   the entry file name, see [name]
+     * @param length the entry file length in bytes
+     * @return the file names of the evicted entries which should be deleted
+     */
+    fun add(name: String, length: Long): List<String> {
+        val packageName = packageName(name) ?: return listOf(name)
+        val version = version(name)
+        val evicted = ArrayList<String>()
+        remove(name)
+        // icons of the other package versions are never served again
+        entries.entries.removeAll { (entryName, entry) ->
+            (entry.packageName == packageName && entry.version != version).also { outdated ->
+                if (outdated) {
+                    size -= entry.length
+                    evicted.add(entryName)
+                }
+            }
+        }
+        entries[name] = Entry(packageName, version, length)
+        size += length
+        val iterator = entries.entries.iterator()
+        while (size > maxSize && iterator.hasNext()) {
+            val (entryName, entry) = iterator.next()
+            if (entryName == name) {
+                // keep the just added entry even if it exceeds the limit alone
+                continue
+            }
+            iterator.remove()
+            size -= entry.length
+            evicted.add(entryName)
+        }
+        return evicted
+    }
+
+    /**
+     * Remove the entry, for example if its file can't be decoded
+     *
+     * @param name the entry file name
+     */
+    fun remove(name: String) {
+        entries.remove(name)?.let { size -= it.length }
+    }
+
+    private class Entry(val packageName: String, val version: String, val length: Long)
+
+    companion object {
+        /**
+         * Get the file name of the cached icon
+         *
+         * @param packageName the application package name
+         * @param version     the application package version
+         * @param width       the rendered icon width
+         * @param height      the rendered icon height
+         * @param extension   the file extension
+         */
+        fun name(packageName: String, version: String, width: Int, height: Int, extension: String) =
+                // dash is not allowed in package names so the package name is always the first part
+                "$packageName-$version-${width}x$height$extension"
+
+        private fun packageName(name: String): String? = name.substringBefore('-', "").takeIf { it.isNotEmpty() }
+
+        private fun version(name: String): String = name.substringAfter('-').substringBeforeLast('-')
+    }
+}
@@ -3,33 +3,72 @@ package com.app.missednotificationsreminder.settings.applicationselection.data.m
 import android.content.pm.PackageManager
 import android.graphics.Bitmap
 import android.graphics.Canvas
+import android.graphics.Color
+import androidx.core.content.pm.PackageInfoCompat
 import com.squareup.picasso.Picasso
 import com.squareup.picasso.Request
 import com.squareup.picasso.RequestHandler
 import timber.log.Timber
 
 /**
- * The application icon picasso handler
+ * The application icon picasso handler. Icons are rendered at the requested size using the reusable per thread
+ * render buffers, opaque icons use the reduced [Bitmap.Config.RGB_565] config. Rendered icons are stored in the
+ * [ApplicationIconCache], the Picasso memory cache keeps the decoded ones
  */
-class ApplicationIconHandler(private val mPackageManager: PackageManager) : RequestHandler() {
+class ApplicationIconHandler(
+        private val mPackageManager: PackageManager,
+        private val iconCache: ApplicationIconCache) : RequestHandler() {
+    /**
+     * Render buffers of the Picasso worker threads
+     */
+    private val renderBuffers = object : ThreadLocal<RenderBuffer>() {
+        override fun initialValue() = RenderBuffer()
+    }
+
     override fun canHandleRequest(data: Request): Boolean {
         return SCHEME == data.uri.scheme
     }
 
     override fun load(request: Request, networkPolicy: Int): Result? {
-        return getAppIcon(request.uri.host)?.let {
+        val packageName = request.uri.host ?: return null
+        val version = request.uri.getQueryParameter(VERSION_PARAMETER) ?: getVersion(packageName) ?: return null
+        iconCache.get(packageName, version, request.targetWidth, request.targetHeight)?.let {
+            return Result(it, Picasso.LoadedFrom.DISK)
+        }
+        return getAppIcon(packageName, request.targetWidth, request.targetHeight)?.let {
+            iconCache.put(packageName, version, request.targetWidth, request.targetHeight, it)
             Result(it, Picasso.LoadedFrom.DISK)
         }
     }
 
-    private fun getAppIcon(packageName: String?): Bitmap? {
+    private fun getVersion(packageName: String): String? {
+        return try {
+            mPackageManager.getPackageInfo(packageName, 0).let { getVersion(PackageInfoCompat.getLongVersionCode(it), it.lastUpdateTime) }
+        } catch (e: PackageManager.NameNotFoundException) {
+            Timber.w(e)
+            null
+        }
+    }
+
+    /**
+     * Render the application icon
+     *
+     * @param packageName the application package name
+     * @param width       the target width or 0 if not specified
+     * @param height      the target height or 0 if not specified
+     */
+    private fun getAppIcon(packageName: String, width: Int, height: Int): Bitmap? {
         try {
             return mPackageManager.getApplicationIcon(packageName)?.let { drawable ->
-                val bitmap = Bitmap.createBitmap(drawable.intrinsicWidth, drawable.intrinsicHeight, Bitmap.Config.ARGB_8888)
-                val canvas = Canvas(bitmap)
-                drawable.setBounds(0, 0, canvas.width, canvas.height)
-                drawable.draw(canvas)
-                bitmap
+                val size = IconRasterization.renderSize(drawable.intrinsicWidth, drawable.intrinsicHeight, width, height)
+                val buffer = renderBuffers.get()!!
+                val pixels = buffer.render(size) { canvas ->
+                    drawable.setBounds(0, 0, size.width, size.height)
+                    drawable.draw(canvas)
+                }
+                val opaque = IconRasterization.isOpaque(pixels, size.width * size.height)
+                Bitmap.createBitmap(pixels, 0, size.width, size.width, size.height,
+                        if (opaque) Bitmap.Config.RGB_565 else Bitmap.Config.ARGB_8888)
             }
         } catch (e: Throwable) {
             Timber.e(e)
@@ -37,8 +76,58 @@ class ApplicationIconHandler(private val mPackageManager: PackageManager) : Requ
         return null
     }
 
+    /**
+     * The reusable buffer the icons are rendered to before the final bitmap of the exact size and config is created
+     */
+    private class RenderBuffer {
+        private val canvas = Canvas()
+        private var bitmap: Bitmap? = null
+        private var pixels = IntArray(0)
+
+        /**
+         * Render the icon
+         *
+         * @param size the icon size
+         * @param draw the drawing action
+         * @return the rendered pixels, valid until the next call
+         */
+        fun render(size: IconRasterization.Size, draw: (Canvas) -> Unit): IntArray {
+            var bitmap = bitmap
+            if (bitmap == null || bitmap.width < size.width || bitmap.height < size.height) {
+                bitmap?.recycle()
+                bitmap = Bitmap.createBitmap(
+                        maxOf(size.width, bitmap?.width ?: 0),
+                        maxOf(size.height, bitmap?.height ?: 0),
+                        Bitmap.Config.ARGB_8888)
+                this.bitmap = bitmap
+                canvas.setBitmap(bitmap)
+            } else {
+                bitmap.eraseColor(Color.TRANSPARENT)
+            }
+            draw(canvas)
+            if (pixels.size < size.width * size.height) {
+                pixels = IntArray(size.width * size.height)
+            }
+            bitmap.getPixels(pixels, 0, size.width, 0, 0, size.width, size.height)
+            return pixels
+        }
+    }
+
     companion object {
         const val SCHEME = "appicon"
+
+        /**
+         * The icon URI query parameter with the application package version, see [getVersion]
+         */
+        const val VERSION_PARAMETER = "version"
+
+        /**
+         * Get the application package version used to invalidate the cached icons
+         *
+         * @param versionCode    the package version code
+         * @param lastUpdateTime the package last update time
+         */
+        fun getVersion(versionCode: Long, lastUpdateTime: Long): String = "$versionCode.$lastUpdateTime"
     }
 
-}
\ No newline at end of file
+}
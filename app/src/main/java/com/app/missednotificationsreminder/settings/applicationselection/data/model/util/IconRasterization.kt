@@ -0,0 +1,51 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data.model.util
+
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.roundToInt
+
+/**
+ * The icons rasterization calculations
+ */
+object IconRasterization {
+    /**
+     * Calculate the size the icon should be rendered at. The icon is fitted into the target size keeping the aspect
+     * ratio and is never upscaled over its intrinsic size
+     *
+     * @param intrinsicWidth  the icon intrinsic width, non positive if the icon has no intrinsic size
+     * @param intrinsicHeight the icon intrinsic height, non positive if the icon has no intrinsic size
+     * @param targetWidth     the requested width or 0 if not specified
+     * @param targetHeight    the requested height or 0 if not specified
+     */
+    fun renderSize(intrinsicWidth: Int, intrinsicHeight: Int, targetWidth: Int, targetHeight: Int): Size {
+        if (intrinsicWidth <= 0 || intrinsicHeight <= 0) {
+            // shape and color drawables fill any bounds
+            return Size(max(1, if (targetWidth > 0) targetWidth else targetHeight),
+                    max(1, if (targetHeight > 0) targetHeight else targetWidth))
+        }
+        val widthScale = if (targetWidth > 0) targetWidth.toFloat() / intrinsicWidth else Float.MAX_VALUE
+        val heightScale = if (targetHeight > 0) targetHeight.toFloat() / intrinsicHeight else Float.MAX_VALUE
+        val scale = min(1f, min(widthScale, heightScale))
+        return Size(max(1, (intrinsicWidth * scale).roundToInt()), max(1, (intrinsicHeight * scale).roundToInt()))
+    }
+
+    /**
+     * Check whether all the pixels are fully opaque
+     *
+     * @param pixels the ARGB pixels
+     * @param count  the number of the pixels to check starting from the first one
+     */
+    fun isOpaque(pixels: IntArray, count: Int): Boolean {
+        for (i in 0 until count) {
+            if (pixels[i] ushr 24 != 0xFF) {
+                return false
+            }
+        }
+        return true
+    }
+
+    /**
+     * The rendered icon size
+     */
+    data class Size(val width: Int, val height: Int)
+}
@@ -6,18 +6,18 @@ import android.os.Vibrator
 import com.app.missednotificationsreminder.R
 import com.app.missednotificationsreminder.data.model.NightMode
 import com.app.missednotificationsreminder.di.qualifiers.*
-import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.data.NotificationCountsTracker
+import com.app.missednotificationsreminder.service.data.NotificationDataStore
+import com.app.missednotificationsreminder.service.data.model.NotificationCountsUpdate
 import com.app.missednotificationsreminder.service.event.NotificationsUpdatedEvent
-import com.app.missednotificationsreminder.service.event.RemindEvents
 import com.app.missednotificationsreminder.settings.di.qualifiers.*
-import com.app.missednotificationsreminder.util.event.Event
 import com.app.missednotificationsreminder.util.event.FlowEventBus
+import com.app.missednotificationsreminder.util.event.toFlow
 import com.tfcporciuncula.flow.FlowSharedPreferences
 import com.tfcporciuncula.flow.Preference
 import dagger.Module
 import dagger.Provides
 import kotlinx.coroutines.ExperimentalCoroutinesApi
-import kotlinx.coroutines.FlowPreview
 import kotlinx.coroutines.flow.*
 import timber.log.Timber
 import javax.inject.Singleton
@@ -119,6 +119,13 @@ class SettingsDataModule {
         return prefs.getBoolean(ForceWakeLock::class.java.simpleName, true)
     }
 
+    @Provides
+    @Singleton
+    @AdaptiveWake
+    fun provideAdaptiveWake(prefs: FlowSharedPreferences): Preference<Boolean> {
+        return prefs.getBoolean(AdaptiveWake::class.java.simpleName, false)
+    }
+
     @Provides
     @Singleton
     @ReminderRingtone
@@ -253,6 +260,13 @@ class SettingsDataModule {
         return prefs.getBoolean("RATE_APP_CLICKED", false)
     }
 
+    @Provides
+    @Singleton
+    @LegacyRemindersCancelled
+    fun provideLegacyRemindersCancelled(prefs: FlowSharedPreferences): Preference<Boolean> {
+        return prefs.getBoolean(LegacyRemindersCancelled::class.java.simpleName, false)
+    }
+
     @Provides
     @Singleton
     @ReminderSessionsCount
@@ -260,19 +274,26 @@ class SettingsDataModule {
         return prefs.getInt("REMINDER_SESSIONS_COUNT", 0)
     }
 
-    @FlowPreview
     @Provides
-    fun provideNotificationDataFlow(eventBus: FlowEventBus): Flow<List<NotificationData>> {
-        Timber.d("provideNotificationDataFlow() called with: eventBus = %s",
+    fun provideNotificationCountsFlow(eventBus: FlowEventBus, notificationsStore: NotificationDataStore): Flow<NotificationCountsUpdate> {
+        Timber.d("provideNotificationCountsFlow() called with: eventBus = %s",
                 eventBus)
-        return eventBus.toFlow()
-                .filter { event: Event -> event is NotificationsUpdatedEvent }
-                .map { event: Event -> (event as NotificationsUpdatedEvent).notifications }
-                .onStart {
-                    emit(emptyList<NotificationData>())
-                    eventBus.send(RemindEvents.GET_CURRENT_NOTIFICATIONS_DATA)
-                }
-                .onEach { data: List<NotificationData> -> Timber.d("notificationDataFlow: %d", data.size) }
-                .debounce(500)
-    }
-}
\ No newline at end of file
+        return flow {
+            val tracker = NotificationCountsTracker()
+            val collector = this
+            eventBus.toFlow<NotificationsUpdatedEvent> {
+                // events sent after the subscription are applied on top of this snapshot
+                collector.emit(NotificationCountsUpdate(tracker.reset(notificationsStore.snapshot), true))
+            }
+                    .collect { event ->
+                        val counts = tracker.apply(event)
+                        when {
+                            // the event is missed or the snapshot is taken in the middle of the update
+                            counts == null -> emit(NotificationCountsUpdate(tracker.reset(notificationsStore.snapshot), true))
+                            counts.isNotEmpty() -> emit(NotificationCountsUpdate(counts, false))
+                        }
+                    }
+        }
+                .onEach { update: NotificationCountsUpdate -> Timber.d("notificationCountsFlow: %s", update) }
+    }
+}
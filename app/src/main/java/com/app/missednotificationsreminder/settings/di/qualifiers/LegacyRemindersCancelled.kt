@@ -0,0 +1,7 @@
+package com.app.missednotificationsreminder.settings.di.qualifiers
+
+import javax.inject.Qualifier
+
+@Qualifier
+@Retention(AnnotationRetention.RUNTIME)
+annotation class LegacyRemindersCancelled
\ No newline at end of file
@@ -27,6 +27,7 @@ import javax.inject.Inject
 class ReminderViewModel @Inject constructor(
         @param:ReminderEnabled private val reminderEnabled: Preference<Boolean>,
         @param:ForceWakeLock private val forceWakeLock: Preference<Boolean>,
+        @param:AdaptiveWake private val adaptiveWake: Preference<Boolean>,
         @param:LimitReminderRepeats private val limitReminderRepeats: Preference<Boolean>,
         @param:CreateDismissNotification private val createDismissNotification: Preference<Boolean>,
         @param:CreateDismissNotificationImmediately private val createDismissNotificationImmediately: Preference<Boolean>,
@@ -77,6 +78,13 @@ class ReminderViewModel @Inject constructor(
                         },
                         { it.forceWakeLock })
             }
+            launch {
+                _viewState.bindWithPreferences(adaptiveWake,
+                        { newValue, vs ->
+                            ReminderViewStatePartialChanges.AdaptiveWakeChange(newValue).reduce(vs)
+                        },
+                        { it.adaptiveWake })
+            }
             // workaround for updated interval measurements
             if (reminderInterval.get() < minInterval) {
                 reminderInterval.set(TimeUtils.minutesToSeconds(reminderInterval.get().toDouble()))
@@ -197,4 +205,8 @@ class ReminderViewModel @Inject constructor(
     fun forceWakeLockChanged(value: Boolean) {
         process(ReminderViewStatePartialChanges.ForceWakeLockChange(value))
     }
+
+    fun adaptiveWakeChanged(value: Boolean) {
+        process(ReminderViewStatePartialChanges.AdaptiveWakeChange(value))
+    }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import java.util.*
  * @property intervalError used to handle interval error information
  * @property reminderEnabled used to handle reminder enabled state
  * @property forceWakeLock used to handle use wake lock setting
+ * @property adaptiveWake used to handle adaptive wake setting
  * @property intervalMinutes used to handle interval value information
  * @property intervalSeconds used to handle interval value information
  * @property minIntervalSeconds
@@ -32,6 +33,7 @@ data class ReminderViewState(
         val reminderEnabled: Boolean = false,
         val forceWakeLock: Boolean = false,
         val forceWakeLockEnabled: Boolean = false,
+        val adaptiveWake: Boolean = false,
         val intervalMinutes: Double = 0.0,
         val intervalSeconds: Int = 0,
         val minIntervalSeconds: Int,
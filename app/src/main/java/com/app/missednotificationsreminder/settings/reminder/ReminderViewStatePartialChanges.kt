@@ -179,4 +179,10 @@ sealed class ReminderViewStatePartialChanges : ViewStatePartialChanges<ReminderV
             return previousState.copy(forceWakeLock = newValue)
         }
     }
+
+    data class AdaptiveWakeChange(private val newValue: Boolean) : ReminderViewStatePartialChanges() {
+        override fun reduce(previousState: ReminderViewState): ReminderViewState {
+            return previousState.copy(adaptiveWake = newValue)
+        }
+    }
 }
\ No newline at end of file
@@ -1,8 +1,6 @@
 package com.app.missednotificationsreminder.settings.vibration
 
 import android.content.Context
-import android.os.Build
-import android.os.VibrationEffect
 import android.os.Vibrator
 import androidx.lifecycle.viewModelScope
 import com.app.missednotificationsreminder.R
@@ -11,7 +9,6 @@ import com.app.missednotificationsreminder.binding.util.bindWithPreferences
 import com.app.missednotificationsreminder.di.qualifiers.ForApplication
 import com.app.missednotificationsreminder.settings.di.qualifiers.Vibrate
 import com.app.missednotificationsreminder.settings.di.qualifiers.VibrationPattern
-import com.app.missednotificationsreminder.service.ReminderNotificationListenerService
 import com.app.missednotificationsreminder.util.coroutines.debounce
 import com.tfcporciuncula.flow.Preference
 import kotlinx.coroutines.ExperimentalCoroutinesApi
@@ -34,13 +31,7 @@ class VibrationViewModel @Inject constructor(
 
 
     private fun vibrate() {
-        val pattern = ReminderNotificationListenerService.parseVibrationPattern(viewState.value.lastValidPattern)
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            vibrator.vibrate(VibrationEffect.createWaveform(pattern, -1))
-        } else {
-            @Suppress("DEPRECATION")
-            vibrator.vibrate(pattern, -1)
-        }
+        viewState.value.lastValidWaveform?.vibrate(vibrator, repeating = false)
     }
 
     init {
@@ -1,13 +1,17 @@
 package com.app.missednotificationsreminder.settings.vibration
 
+import com.app.missednotificationsreminder.util.vibration.VibrationWaveform
+
 /**
  * @property enabled used to handle vibration enabled state
  * @property pattern used to handle vibration pattern
  * @property lastValidPattern used to store last valid pattern
+ * @property lastValidWaveform the waveform parsed from the last valid pattern
  * @property patternError used to handle pattern error information
  */
 data class VibrationViewState(
         val enabled: Boolean = false,
         val pattern: String = "",
         val lastValidPattern: String = "",
+        val lastValidWaveform: VibrationWaveform? = null,
         val patternError: String = "")
\ No newline at end of file
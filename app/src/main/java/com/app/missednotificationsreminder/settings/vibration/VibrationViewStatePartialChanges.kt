@@ -1,6 +1,7 @@
 package com.app.missednotificationsreminder.settings.vibration
 
 import com.app.missednotificationsreminder.binding.model.ViewStatePartialChanges
+import com.app.missednotificationsreminder.util.vibration.VibrationWaveform
 
 sealed class VibrationViewStatePartialChanges : ViewStatePartialChanges<VibrationViewState> {
 
@@ -12,18 +13,14 @@ sealed class VibrationViewStatePartialChanges : ViewStatePartialChanges<Vibratio
 
     data class PatternChange(private val newValue: String, private val vibrationPatternError: String) : VibrationViewStatePartialChanges() {
 
-        private val vibrationRegexpPattern = "\\s*\\d+(\\s*,\\s*\\d+)*\\s*".toRegex()
-
         override fun reduce(previousState: VibrationViewState): VibrationViewState {
-            val validVibrationPattern = newValue.matches(vibrationRegexpPattern)
-            val filteredPattern = newValue
-                    .takeIf { validVibrationPattern }
-                    ?.replaceFirst("^\\s+".toRegex(), "")?.replaceFirst("\\s+$".toRegex(), "")
-                    ?: newValue
+            val waveform = VibrationWaveform.parse(newValue)
+            val filteredPattern = waveform?.pattern ?: newValue
             return previousState.copy(
                     pattern = filteredPattern,
-                    lastValidPattern = if (validVibrationPattern) filteredPattern else previousState.lastValidPattern,
-                    patternError = if (validVibrationPattern)
+                    lastValidPattern = if (waveform != null) filteredPattern else previousState.lastValidPattern,
+                    lastValidWaveform = waveform ?: previousState.lastValidWaveform,
+                    patternError = if (waveform != null)
                         ""
                     else
                         vibrationPatternError)
@@ -1,5 +1,6 @@
 package com.app.missednotificationsreminder.util
 
+import com.app.missednotificationsreminder.util.schedule.WeeklySchedule
 import java.util.*
 
 /**
@@ -118,7 +119,8 @@ object TimeUtils {
     }
 
     /**
-     * Get the next scheduled time depend on conditions
+     * Get the next scheduled time depend on conditions. The schedule is compiled on each call, use the
+     * [WeeklySchedule] directly for the repeated lookups
      *
      * @param schedulerMode              either WORKING_PERIOD or NON_WORKING_PERIOD
      * @param schedulerRangeBeginMinutes the scheduler begin minutes
@@ -126,35 +128,15 @@ object TimeUtils {
      * @param nextWakeupTime             the calculated next possible wakeup time
      * @return the next scheduled time in millis if scheduler condition passed, 0 otherwise.
      * If 0 value is returned the nextWakeupTime value or schedule at interval method should be used .
+     * [WeeklySchedule.NO_TIME] is returned if the whole day is the non working period.
      */
     @JvmStatic
     fun getScheduledTime(schedulerMode: SchedulerMode,
                          schedulerRangeBeginMinutes: Int,
                          schedulerRangeEndMinutes: Int,
                          nextWakeupTime: Long): Long {
-        var scheduledTime: Long = 0
-        val todayRangeBegin = getDayTime(schedulerRangeBeginMinutes, nextWakeupTime)
-        val todayRangeEnd = getDayTime(schedulerRangeEndMinutes, nextWakeupTime)
-        when (schedulerMode) {
-            SchedulerMode.WORKING_PERIOD -> if (nextWakeupTime < todayRangeBegin) {
-                // if next possible wakup time is less than the scheduler begin time
-                scheduledTime = todayRangeBegin
-            } else if (todayRangeEnd < nextWakeupTime) {
-                // if the scheduler end time is less than the next possible wakeup time
-                scheduledTime = getNearestFutureTime(schedulerRangeBeginMinutes, nextWakeupTime)
-                if (scheduledTime < nextWakeupTime) {
-                    // if the nearest future time is before the next possible waking time we should to keep
-                    // minimum interval, so reset value
-                    scheduledTime = 0
-                }
-            }
-            SchedulerMode.NON_WORKING_PERIOD -> if (todayRangeBegin <= nextWakeupTime && nextWakeupTime < todayRangeEnd) {
-                // if the scheduler begin time is less or equals to the next possible wakeup time and the next
-                // possible wakeup time is less than the scheduler end time
-                scheduledTime = todayRangeEnd
-            }
-        }
-        return scheduledTime
+        return WeeklySchedule.daily(schedulerMode, schedulerRangeBeginMinutes, schedulerRangeEndMinutes)
+                .getScheduledTime(nextWakeupTime)
     }
 
     /**
@@ -0,0 +1,51 @@
+package com.app.missednotificationsreminder.util.coroutines
+
+import com.app.missednotificationsreminder.util.flow.bufferTimeout
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.consumeAsFlow
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.onEach
+
+/**
+ * The queue which coalesces events submitted within the [window] into the ordered batches. Events may be submitted
+ * from any thread without suspension, batches are handled sequentially in the submission order.
+ *
+ * @param window       the batch window duration in milliseconds
+ * @param maxBatchSize the maximum number of events in the single batch
+ */
+@OptIn(FlowPreview::class)
+class BatchingEventsQueue<T>(private val window: Long,
+                             private val maxBatchSize: Int = Int.MAX_VALUE) {
+    private val events = Channel<T>(Channel.UNLIMITED)
+
+    /**
+     * Submit the event to the queue
+     *
+     * @param event the event to submit
+     * @return true if the event has been accepted, false if the queue is already closed
+     */
+    fun submit(event: T): Boolean = events.offer(event)
+
+    /**
+     * Launch the batches handling in the specified scope. May be called only once per queue
+     *
+     * @param scope   the scope to launch batches handling in
+     * @param handler the batch handler. Called sequentially for each batch
+     */
+    fun launchIn(scope: CoroutineScope, handler: suspend (List<T>) -> Unit): Job =
+            events.consumeAsFlow()
+                    .bufferTimeout(window, maxBatchSize)
+                    // buffer is reused by the operator so make a copy
+                    .onEach { batch -> handler(batch.toList()) }
+                    .launchIn(scope)
+
+    /**
+     * Close the queue. Already submitted events are still delivered
+     */
+    fun close() {
+        events.close()
+    }
+}
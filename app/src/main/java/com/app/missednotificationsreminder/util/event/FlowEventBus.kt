@@ -1,37 +1,177 @@
 package com.app.missednotificationsreminder.util.event
 
-import kotlinx.coroutines.ExperimentalCoroutinesApi
-import kotlinx.coroutines.FlowPreview
-import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.flow.MutableStateFlow
-import kotlinx.coroutines.flow.drop
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.flow.*
 import timber.log.Timber
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
 
 /**
  * Implementation of the event bus based on the Kotlin Flow technology.
- * courtesy: https://gist.github.com/takahirom/f2dbcc3053adfd87ac7e321d95a23021
+ *
+ * Each event type has its own topic backed by the [MutableSharedFlow], so subscribers receive only the events of the
+ * requested type. Slow subscribers either suspend the senders, lose the oldest events or receive only the latest event
+ * of the type depending on the topic [OverflowPolicy].
+ * Events lost by the subscribers of the [OverflowPolicy.DROP_OLDEST] and [OverflowPolicy.CONFLATE] topics are detected
+ * using the per topic event sequence numbers.
+ *
+ * @param defaultCapacity the buffer capacity of the topics
+ * @param defaultPolicy   the overflow policy of the topics which are not present in the [policies]
+ * @param policies        the overflow policies for the specific event types
  */
-@OptIn(ExperimentalCoroutinesApi::class, FlowPreview::class)
-class FlowEventBus {
-    // If multiple threads are going to emit events to this
-    // then it must be made thread-safe like this instead
-    private val _bus = MutableStateFlow<Event>(object : Event {})
+class FlowEventBus(
+        private val defaultCapacity: Int = DEFAULT_CAPACITY,
+        private val defaultPolicy: OverflowPolicy = OverflowPolicy.SUSPEND,
+        private val policies: Map<Class<out Event>, OverflowPolicy> = emptyMap()) {
+
+    private val topics = ConcurrentHashMap<Class<out Event>, Topic>()
+
+    /**
+     * Total number of the events delivered to the subscribers
+     */
+    val deliveredCount: Long
+        get() = topics.values.fold(0L) { sum, topic -> sum + topic.delivered.get() }
+
+    /**
+     * Total number of the events lost by the subscribers due to the buffer overflow
+     */
+    val droppedCount: Long
+        get() = topics.values.fold(0L) { sum, topic -> sum + topic.dropped.get() }
 
     /**
-     * Send the event to all the subscribers
+     * Send the event to all the subscribers. Suspends until there is space in the subscribers buffers if the topic
+     * uses the [OverflowPolicy.SUSPEND] policy, so the event is never lost. Subscribers of the topic should not emit
+     * events of the same topic from their collectors, it deadlocks when the buffer is full
      *
      * @param event the event to send
      */
-    fun send(event: Event) {
-        Timber.d("send() called with: event = %s",
+    suspend fun emit(event: Event) {
+        Timber.d("emit() called with: event = %s",
                 event)
-        _bus.value = event
+        topic(eventType(event)).emit(event)
     }
 
     /**
-     * Get the flow from the current event bus object
+     * Get the flow of the events of the specified type
      *
+     * @param type           the event type. Enum events should use their enum class
+     * @param onSubscription the action called in the collector coroutine when the subscription to the topic is
+     * established, so no events sent after it are missed
      * @return
      */
-    fun toFlow(): Flow<Event> = _bus.drop(1)
-}
\ No newline at end of file
+    fun <T : Event> toFlow(type: Class<T>, onSubscription: (suspend () -> Unit)? = null): Flow<T> {
+        val topic = topic(type)
+        return flow {
+            var lastSequence = 0L
+            topic.flow
+                    .onSubscription {
+                        lastSequence = topic.sequence
+                        onSubscription?.invoke()
+                    }
+                    .collect { envelope ->
+                        // sequence numbers are assigned in the emission order, so the gap means events lost by this
+                        // subscriber. Events emitted concurrently with the subscription may have lower numbers
+                        if (envelope.sequence > lastSequence) {
+                            val lost = envelope.sequence - lastSequence - 1
+                            if (lost > 0) {
+                                topic.dropped.addAndGet(lost)
+                            }
+                            lastSequence = envelope.sequence
+                        }
+                        topic.delivered.incrementAndGet()
+                        @Suppress("UNCHECKED_CAST")
+                        emit(envelope.event as T)
+                    }
+        }
+    }
+
+    /**
+     * Get the number of the events of the specified type delivered to the subscribers
+     *
+     * @param type the event type
+     */
+    fun deliveredCount(type: Class<out Event>): Long = topics[type]?.delivered?.get() ?: 0
+
+    /**
+     * Get the number of the events of the specified type lost by the subscribers due to the buffer overflow
+     *
+     * @param type the event type
+     */
+    fun droppedCount(type: Class<out Event>): Long = topics[type]?.dropped?.get() ?: 0
+
+    private fun eventType(event: Event): Class<out Event> {
+        val type = event.javaClass
+        // enum constants with body have their own anonymous class
+        @Suppress("UNCHECKED_CAST")
+        return if (event is Enum<*> && !type.isEnum) type.superclass as Class<out Event> else type
+    }
+
+    private fun topic(type: Class<out Event>): Topic =
+            topics.getOrPut(type) { Topic(policies[type] ?: defaultPolicy) }
+
+    /**
+     * The available topic buffer overflow policies
+     */
+    enum class OverflowPolicy {
+        /**
+         * Wait for the buffer space on [emit]
+         */
+        SUSPEND,
+
+        /**
+         * Drop the oldest event in the buffer
+         */
+        DROP_OLDEST,
+
+        /**
+         * Keep only the latest event of the type for the slow subscribers, suits the state events
+         */
+        CONFLATE
+    }
+
+    private inner class Topic(private val policy: OverflowPolicy) {
+        val flow = when (policy) {
+            OverflowPolicy.SUSPEND -> MutableSharedFlow<Envelope>(extraBufferCapacity = defaultCapacity)
+            OverflowPolicy.DROP_OLDEST -> MutableSharedFlow(extraBufferCapacity = defaultCapacity,
+                    onBufferOverflow = BufferOverflow.DROP_OLDEST)
+            OverflowPolicy.CONFLATE -> MutableSharedFlow(extraBufferCapacity = 1,
+                    onBufferOverflow = BufferOverflow.DROP_OLDEST)
+        }
+
+        /**
+         * Sequence number of the last emitted event. Only the [OverflowPolicy.DROP_OLDEST] and
+         * [OverflowPolicy.CONFLATE] topics number the events, the [OverflowPolicy.SUSPEND] ones never lose them
+         */
+        var sequence = 0L
+            @Synchronized get
+            private set
+
+        val delivered = AtomicLong()
+
+        val dropped = AtomicLong()
+
+        suspend fun emit(event: Event) {
+            if (policy == OverflowPolicy.SUSPEND) {
+                flow.emit(Envelope(0, event))
+            } else {
+                // the dropping emission never suspends, number and emit the event atomically so the subscribers
+                // receive the sequence numbers in order
+                synchronized(this) {
+                    flow.tryEmit(Envelope(++sequence, event))
+                }
+            }
+        }
+    }
+
+    private class Envelope(val sequence: Long, val event: Event)
+
+    companion object {
+        const val DEFAULT_CAPACITY = 64
+    }
+}
+
+/**
+ * Get the flow of the events of the specified type
+ */
+inline fun <reified T : Event> FlowEventBus.toFlow(noinline onSubscription: (suspend () -> Unit)? = null): Flow<T> =
+        toFlow(T::class.java, onSubscription)
@@ -4,7 +4,6 @@ import kotlinx.coroutines.*
 import kotlinx.coroutines.channels.ClosedReceiveChannelException
 import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.channels.produce
-import kotlinx.coroutines.channels.ticker
 import kotlinx.coroutines.flow.AbstractFlow
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.FlowCollector
@@ -12,8 +11,11 @@ import kotlinx.coroutines.flow.collect
 import kotlinx.coroutines.selects.select
 
 /**
- * Implementation is taken from
+ * Implementation is based on
  * https://dev.to/psfeng/a-story-of-building-a-custom-flow-operator-buffertimeout-4d95
+ *
+ * The timeout is started when the first value of the buffer arrives instead of the free-running ticker, so the
+ * operator doesn't wake up while the source is idle.
  */
 @FlowPreview
 internal class FlowBufferTimeout<T> constructor(
@@ -21,11 +23,11 @@ internal class FlowBufferTimeout<T> constructor(
         private val size: Int,
         private val duration: Long) : AbstractFlow<List<T>>() {
     @ExperimentalCoroutinesApi
-    @ObsoleteCoroutinesApi
     override suspend fun collectSafely(collector: FlowCollector<List<T>>) {
         coroutineScope {
             val events = mutableListOf<T>()
-            val tickerChannel = ticker(duration)
+            // the timeout of the current buffer, present only while the buffer is not empty
+            var timeout: Deferred<Unit>? = null
             try {
                 val upstreamValues: ReceiveChannel<T> = produce { source.collect { value -> send(value) } }
 
@@ -37,22 +39,26 @@ internal class FlowBufferTimeout<T> constructor(
                             events.add(value)
                         }
 
-                        tickerChannel.onReceive {
+                        timeout?.onAwait {
                             hasTimedOut = true
                         }
                     }
 
-                    if (events.size == size || (hasTimedOut && events.isNotEmpty())) {
+                    if (events.size == size || hasTimedOut) {
+                        timeout?.cancel()
+                        timeout = null
                         collector.emit(events)
                         events.clear()
+                    } else if (timeout == null) {
+                        timeout = async { delay(duration) }
                     }
                 }
             } catch (e: ClosedReceiveChannelException) {
                 // drain remaining events
                 if (events.isNotEmpty()) collector.emit(events)
             } finally {
-                tickerChannel.cancel()
+                timeout?.cancel()
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package com.app.missednotificationsreminder.util.logging
+
+import android.os.Build
+import android.util.Log
+import timber.log.Timber
+
+/**
+ * Logging facade for the hot paths. The level and tag are checked before the message lambda is invoked and the
+ * functions are inlined, so the disabled logging call doesn't allocate, box or format anything. Enabled messages are
+ * passed to [Timber] with the tag of the calling class unless the tag is specified.
+ *
+ * Usage: `Logger.d { "onEvent: $event" }`
+ */
+object Logger {
+    /**
+     * The minimum level of the messages to log for the tags without the specific level
+     */
+    @Volatile
+    private var minLevel = Log.VERBOSE
+
+    /**
+     * The minimum levels of the messages to log for the specific tags
+     */
+    @Volatile
+    private var tagLevels: Map<String, Int> = emptyMap()
+
+    /**
+     * Configure the logging levels
+     *
+     * @param minLevel  the minimum level of the messages to log
+     * @param tagLevels the minimum levels for the specific tags which override the [minLevel]
+     */
+    fun configure(minLevel: Int, tagLevels: Map<String, Int> = emptyMap()) {
+        this.minLevel = minLevel
+        this.tagLevels = tagLevels
+    }
+
+    /**
+     * Check whether the message of the specified level and tag should be logged
+     *
+     * @param level the message level
+     * @param tag   the message tag if specified
+     */
+    @JvmStatic
+    fun isLoggable(level: Int, tag: String? = null): Boolean {
+        val tagLevel = if (tag == null) null else tagLevels[tag]
+        return level >= (tagLevel ?: minLevel)
+    }
+
+    inline fun v(tag: String? = null, t: Throwable? = null, message: () -> String) {
+        if (isLoggable(Log.VERBOSE, tag)) log(Log.VERBOSE, tag, t, message())
+    }
+
+    inline fun d(tag: String? = null, t: Throwable? = null, message: () -> String) {
+        if (isLoggable(Log.DEBUG, tag)) log(Log.DEBUG, tag, t, message())
+    }
+
+    inline fun i(tag: String? = null, t: Throwable? = null, message: () -> String) {
+        if (isLoggable(Log.INFO, tag)) log(Log.INFO, tag, t, message())
+    }
+
+    inline fun w(tag: String? = null, t: Throwable? = null, message: () -> String) {
+        if (isLoggable(Log.WARN, tag)) log(Log.WARN, tag, t, message())
+    }
+
+    inline fun e(tag: String? = null, t: Throwable? = null, message: () -> String) {
+        if (isLoggable(Log.ERROR, tag)) log(Log.ERROR, tag, t, message())
+    }
+
+    @PublishedApi
+    internal fun log(level: Int, tag: String?, t: Throwable?, message: String) {
+        val tree = (tag ?: callerTag())?.let { Timber.tag(it) } ?: Timber.asTree()
+        // the message is already formatted, pass it as the argument so '%' chars are not treated as format specifiers
+        tree.log(level, t, "%s", message)
+    }
+
+    /**
+     * Get the tag of the calling class the same way [Timber.DebugTree] does. The trees can't find the caller
+     * themselves, they expect it at the fixed call stack depth of the [Timber] static calls
+     */
+    private fun callerTag(): String? {
+        val caller = Throwable().stackTrace.firstOrNull { it.className != Logger::class.java.name } ?: return null
+        val tag = caller.className.replace(ANONYMOUS_CLASS, "").substringAfterLast('.')
+        // tag length limit was removed in API 24
+        return if (tag.length <= MAX_TAG_LENGTH || Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            tag
+        } else {
+            tag.substring(0, MAX_TAG_LENGTH)
+        }
+    }
+
+    private const val MAX_TAG_LENGTH = 23
+    private val ANONYMOUS_CLASS = Regex("(\\$\\d+)+$")
+}
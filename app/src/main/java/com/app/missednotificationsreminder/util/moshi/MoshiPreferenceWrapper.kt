@@ -1,5 +1,6 @@
 package com.app.missednotificationsreminder.util.moshi
 
+import com.app.missednotificationsreminder.data.PreferenceChangeDispatcher
 import com.squareup.moshi.JsonAdapter
 import com.tfcporciuncula.flow.FlowSharedPreferences
 import com.tfcporciuncula.flow.Preference
@@ -9,19 +10,25 @@ import kotlinx.coroutines.flow.FlowCollector
 import timber.log.Timber
 
 /**
- * The moshi preference wrapper to wrap JSON containing preferences
+ * The moshi preference wrapper to wrap JSON containing preferences. The decoded value is kept until the preference
+ * changes, so the repeated reads don't parse the JSON. The set values are written right away and kept decoded, the
+ * change notifications of the own writes don't invalidate them.
+ *
+ * The decoded values are shared between the callers and should not be modified.
  *
  * @param prefs        the preferences
  * @param key          the key of the target preference
  * @param defaultValue the default preference value
  * @param adapter      the moshi json adapter
+ * @param dispatcher   the dispatcher of the preference changes to invalidate the decoded value
  * @param <T>
  **/
 class MoshiPreferenceWrapper<T : Any>(
         prefs: FlowSharedPreferences,
         key: String,
         defaultValue: T,
-        adapter: JsonAdapter<T>) : Preference<T> {
+        private val adapter: JsonAdapter<T>,
+        dispatcher: PreferenceChangeDispatcher) : Preference<T> {
 
     /**
      * The original preference
@@ -29,8 +36,29 @@ class MoshiPreferenceWrapper<T : Any>(
     val preference: Preference<T>
 
     /**
-     *
+     * The original preference JSON, read to check whether the stored value is the written one without decoding it
+     */
+    private val json = prefs.getString(key, "")
+
+    /**
+     * The decoded value, null if it should be decoded on the next read
      */
+    @Volatile
+    private var cached: T? = null
+
+    /**
+     * The number of the preference changes, used to not cache the value decoded before the change
+     */
+    @Volatile
+    private var changes = 0
+
+    /**
+     * The JSON of the last written value, null once the foreign change is detected so the foreign write of the same
+     * JSON later doesn't keep the value decoded in between
+     */
+    @Volatile
+    private var written: String? = null
+
     init {
         preference = prefs.getObject(key, object : Serializer<T> {
             override fun deserialize(serialized: String): T {
@@ -54,6 +82,14 @@ class MoshiPreferenceWrapper<T : Any>(
                 return adapter.toJson(value)
             }
         }, defaultValue)
+        dispatcher.register(key) {
+            changes++
+            // the cached value is the stored one if the change is caused by the own write
+            if (written == null || written != json.get()) {
+                written = null
+                cached = null
+            }
+        }
         get()
     }
 
@@ -74,15 +110,25 @@ class MoshiPreferenceWrapper<T : Any>(
     }
 
     override fun delete() {
+        written = null
+        cached = null
         preference.delete()
     }
 
     override suspend fun deleteAndCommit(): Boolean {
+        written = null
+        cached = null
         return preference.deleteAndCommit()
     }
 
     override fun get(): T {
-        return preference.get()
+        cached?.let { return it }
+        val changes = changes
+        return preference.get().also {
+            if (changes == this.changes) {
+                cached = it
+            }
+        }
     }
 
     override fun isNotSet(): Boolean {
@@ -94,11 +140,21 @@ class MoshiPreferenceWrapper<T : Any>(
     }
 
     override fun set(value: T) {
-        return preference.set(value)
+        json.set(written(value))
     }
 
     override suspend fun setAndCommit(value: T): Boolean {
-        return preference.setAndCommit(value)
+        return json.setAndCommit(written(value))
+    }
+
+    /**
+     * Remember the value about to be written
+     *
+     * @return the value JSON to write
+     */
+    private fun written(value: T): String = adapter.toJson(value).also {
+        written = it
+        cached = value
     }
 
     override val defaultValue: T
@@ -0,0 +1,218 @@
+package com.app.missednotificationsreminder.util.schedule
+
+import com.app.missednotificationsreminder.util.TimeUtils
+import java.util.*
+
+/**
+ * The weekly schedule of the time ranges the reminder is allowed at. The ranges are specified per day of week and
+ * compiled into the sorted array of the windows for the several weeks around the requested time, so the
+ * lookups are the binary searches which don't allocate anything. The windows are recompiled only when the lookup
+ * time leaves the compiled period.
+ *
+ * The local times are converted to the epoch times in the [timeZone] the same way [Calendar] does it, so the
+ * ranges begin at the shifted time if they begin in the daylight saving time gap.
+ *
+ * @param ranges       the allowed ranges for the days of week, keys are the [Calendar.DAY_OF_WEEK] values
+ * @param endInclusive whether the time equal to the range end is allowed. The range ending at the midnight ends
+ * before the next day begins anyway
+ * @param timeZone     the time zone of the ranges local times
+ */
+class WeeklySchedule(
+        ranges: Map<Int, List<DailyRange>>,
+        private val endInclusive: Boolean = false,
+        private val timeZone: TimeZone = TimeZone.getDefault()) {
+
+    /**
+     * The allowed ranges indexed by the [Calendar.DAY_OF_WEEK] value
+     */
+    private val ranges = Array(DAYS_IN_WEEK + 1) { ranges[it].orEmpty() }
+
+    private val empty = this.ranges.all { it.isEmpty() }
+
+    @Volatile
+    private var compiled: Windows? = null
+
+    /**
+     * Get the nearest time the reminder is allowed at
+     *
+     * @param time the time in milliseconds since epoch
+     * @return the [time] if it is allowed, the beginning of the next allowed range or [NO_TIME] if no time is
+     * allowed by the schedule
+     */
+    fun nextAllowedTime(time: Long): Long {
+        if (empty) {
+            return NO_TIME
+        }
+        var windows = compiled
+        if (windows == null || time < windows.validFrom || time >= windows.validTo) {
+            windows = compile(time)
+            compiled = windows
+        }
+        if (windows.starts.isEmpty()) {
+            return NO_TIME
+        }
+        val start = windows.starts[windows.search(time)]
+        return if (start <= time) time else start
+    }
+
+    /**
+     * Get the scheduled time in the [TimeUtils.getScheduledTime] format
+     *
+     * @param nextWakeupTime the calculated next possible wakeup time
+     * @return the next allowed time if the [nextWakeupTime] is not allowed, 0 if it is allowed or [NO_TIME] if no
+     * time is allowed by the schedule
+     */
+    fun getScheduledTime(nextWakeupTime: Long): Long {
+        val allowed = nextAllowedTime(nextWakeupTime)
+        return if (allowed == nextWakeupTime) 0 else allowed
+    }
+
+    /**
+     * Compile the windows for the period around the specified time
+     */
+    private fun compile(time: Long): Windows {
+        val calendar = Calendar.getInstance(timeZone)
+        calendar.timeInMillis = time
+        // start from the previous day to include the ranges continued from it
+        calendar.add(Calendar.DAY_OF_YEAR, -1)
+        val firstDay = calendar.clone() as Calendar
+        val windows = ArrayList<LongArray>()
+        repeat(COMPILED_DAYS) {
+            for (range in ranges[calendar[Calendar.DAY_OF_WEEK]]) {
+                val start = epochTime(calendar, range.beginMinute, 0)
+                var end = if (range.endMinute >= range.beginMinute) {
+                    epochTime(calendar, range.endMinute, 0)
+                } else {
+                    // the range continues on the next day
+                    epochTime(calendar, range.endMinute, 1)
+                }
+                if (endInclusive && range.endMinute != MINUTES_IN_DAY) {
+                    // the windows ends are exclusive
+                    end++
+                }
+                if (end > start) {
+                    windows.add(longArrayOf(start, end))
+                }
+            }
+            calendar.add(Calendar.DAY_OF_YEAR, 1)
+        }
+        windows.sortBy { it[0] }
+        val starts = LongArray(windows.size)
+        val ends = LongArray(windows.size)
+        var size = 0
+        for (window in windows) {
+            if (size > 0 && window[0] <= ends[size - 1]) {
+                // merge the overlapping and adjacent windows
+                ends[size - 1] = maxOf(ends[size - 1], window[1])
+            } else {
+                starts[size] = window[0]
+                ends[size] = window[1]
+                size++
+            }
+        }
+        // the next window is always within a week if the schedule is not empty
+        val validFrom = epochTime(firstDay, 0, 1)
+        val validTo = epochTime(firstDay, 0, COMPILED_DAYS - DAYS_IN_WEEK - 1)
+        return Windows(starts.copyOf(size), ends.copyOf(size), validFrom, validTo)
+    }
+
+    /**
+     * Get the time in milliseconds since epoch of the minute of day of the day with the offset from the calendar day
+     */
+    private fun epochTime(day: Calendar, minuteOfDay: Int, dayOffset: Int): Long {
+        val calendar = day.clone() as Calendar
+        calendar.add(Calendar.DAY_OF_YEAR, dayOffset)
+        calendar[Calendar.HOUR_OF_DAY] = minuteOfDay / TimeUtils.MINUTES_IN_HOUR
+        calendar[Calendar.MINUTE] = minuteOfDay % TimeUtils.MINUTES_IN_HOUR
+        calendar[Calendar.SECOND] = 0
+        calendar[Calendar.MILLISECOND] = 0
+        return calendar.timeInMillis
+    }
+
+    /**
+     * The range of the day the reminder is allowed at
+     *
+     * @property beginMinute the minute of day the range begins at
+     * @property endMinute   the minute of day the range ends at, up to [MINUTES_IN_DAY]. If it is less than the
+     * [beginMinute] the range ends on the next day
+     */
+    data class DailyRange(val beginMinute: Int, val endMinute: Int) {
+        init {
+            require(beginMinute in 0 until MINUTES_IN_DAY) { "invalid begin minute $beginMinute" }
+            require(endMinute in 0..MINUTES_IN_DAY) { "invalid end minute $endMinute" }
+        }
+    }
+
+    /**
+     * The compiled sorted non overlapping windows
+     *
+     * @property starts    the windows start times in milliseconds since epoch
+     * @property ends      the windows exclusive end times in milliseconds since epoch
+     * @property validFrom the beginning of the period the lookups are valid for in milliseconds since epoch
+     * @property validTo   the end of the period the lookups are valid for in milliseconds since epoch
+     */
+    private class Windows(val starts: LongArray, val ends: LongArray, val validFrom: Long, val validTo: Long) {
+        /**
+         * Find the first window which ends after the time
+         */
+        fun search(time: Long): Int {
+            var low = 0
+            var high = ends.size - 1
+            while (low < high) {
+                val middle = (low + high) ushr 1
+                if (ends[middle] > time) {
+                    high = middle
+                } else {
+                    low = middle + 1
+                }
+            }
+            return low
+        }
+    }
+
+    companion object {
+        /**
+         * The value returned by the lookups if no time is allowed by the schedule
+         */
+        const val NO_TIME = -1L
+
+        const val MINUTES_IN_DAY = 24 * TimeUtils.MINUTES_IN_HOUR
+
+        private const val DAYS_IN_WEEK = 7
+
+        /**
+         * The number of the compiled days, the lookups are valid for the days except the first one and the last week
+         */
+        private const val COMPILED_DAYS = 5 * DAYS_IN_WEEK
+
+        /**
+         * Create the schedule with the same range every day
+         *
+         * @param mode         either [TimeUtils.SchedulerMode.WORKING_PERIOD] for the allowed range or
+         * [TimeUtils.SchedulerMode.NON_WORKING_PERIOD] for the forbidden range
+         * @param beginMinutes the range begin minute of day
+         * @param endMinutes   the range end minute of day
+         * @param timeZone     the time zone of the range local times
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun daily(mode: TimeUtils.SchedulerMode,
+                  beginMinutes: Int,
+                  endMinutes: Int,
+                  timeZone: TimeZone = TimeZone.getDefault()): WeeklySchedule {
+            val range = when {
+                mode == TimeUtils.SchedulerMode.WORKING_PERIOD -> DailyRange(beginMinutes, endMinutes)
+                // nothing is forbidden
+                beginMinutes == endMinutes -> DailyRange(0, MINUTES_IN_DAY)
+                // forbidden until the end of the day
+                endMinutes == MINUTES_IN_DAY -> DailyRange(0, beginMinutes)
+                // allowed from the forbidden range end until its beginning on the next day
+                else -> DailyRange(endMinutes, beginMinutes)
+            }
+            return WeeklySchedule(
+                    (1..DAYS_IN_WEEK).associateWith { listOf(range) },
+                    endInclusive = mode == TimeUtils.SchedulerMode.WORKING_PERIOD,
+                    timeZone = timeZone)
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.app.missednotificationsreminder.util.vibration
+
+import android.os.Build
+import android.os.VibrationEffect
+import android.os.Vibrator
+import androidx.annotation.RequiresApi
+
+/**
+ * The validated vibration waveform. The timings alternate between the off and on durations starting with the off
+ * one, the same way the [Vibrator] patterns do. The vibration effects are created once and reused.
+ *
+ * @property pattern the pattern the waveform is parsed from without the leading and trailing whitespaces
+ */
+class VibrationWaveform private constructor(val pattern: String, private val timings: LongArray) {
+
+    /**
+     * The total duration of the single waveform repetition in milliseconds
+     */
+    val duration: Long = timings.sum()
+
+    @get:RequiresApi(Build.VERSION_CODES.O)
+    private val repeatingEffect by lazy { VibrationEffect.createWaveform(timings, 0) }
+
+    @get:RequiresApi(Build.VERSION_CODES.O)
+    private val singleEffect by lazy { VibrationEffect.createWaveform(timings, -1) }
+
+    /**
+     * Start the vibration
+     *
+     * @param vibrator  the vibrator
+     * @param repeating whether the waveform should be repeated until the vibrator is cancelled
+     */
+    fun vibrate(vibrator: Vibrator, repeating: Boolean) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            vibrator.vibrate(if (repeating) repeatingEffect else singleEffect)
+        } else {
+            @Suppress("DEPRECATION")
+            vibrator.vibrate(timings, if (repeating) 0 else -1)
+        }
+    }
+
+    override fun equals(other: Any?): Boolean = other is VibrationWaveform && other.pattern == pattern
+
+    override fun hashCode(): Int = pattern.hashCode()
+
+    override fun toString(): String = "VibrationWaveform($pattern)"
+
+    companion object {
+        /**
+         * The maximum duration of the single waveform repetition in milliseconds
+         */
+        const val MAX_DURATION = 60 * 60 * 1000L
+
+        /**
+         * Parse the comma separated vibration pattern, the whitespaces around the timings are allowed
+         *
+         * @param pattern the pattern to parse
+         * @return the parsed waveform or null if the pattern is malformed, vibrates for no time or the
+         * [MAX_DURATION] is exceeded
+         */
+        @JvmStatic
+        fun parse(pattern: String): VibrationWaveform? {
+            val components = pattern.split(',')
+            val timings = LongArray(components.size)
+            var duration = 0L
+            for (i in components.indices) {
+                val component = components[i].trim()
+                if (component.isEmpty() || component.length > MAX_DURATION.toString().length ||
+                        !component.all { it in '0'..'9' }) {
+                    return null
+                }
+                timings[i] = component.toLong()
+                duration += timings[i]
+                if (duration > MAX_DURATION) {
+                    return null
+                }
+            }
+            // the odd timings are the vibration durations
+            if ((1 until timings.size step 2).all { timings[it] == 0L }) {
+                return null
+            }
+            return VibrationWaveform(pattern.trim(), timings)
+        }
+    }
+}
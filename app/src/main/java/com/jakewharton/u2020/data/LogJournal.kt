@@ -0,0 +1,243 @@
+package com.jakewharton.u2020.data
+
+import java.io.*
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Persistent journal of the log entries stored in the fixed size memory mapped segment files. Records are appended
+ * to the last segment while it has room, also across the process runs, segments are rotated when full and only the
+ * [maxSegments] newest ones are kept.
+ *
+ * Segment format: the [MAGIC] header followed by the records, the zero record length marks the end of the segment.
+ * Record format: record length (int, excluding the length itself), time (long), level (byte), tag length (short,
+ * -1 for null tag), tag UTF-8 bytes, message UTF-8 bytes up to the end of the record. The record length is written
+ * last, after the zero length which terminates the segment behind the record, so the records which are not
+ * completely written when the process is killed are never read and are overwritten by the next run.
+ *
+ * The journal is not thread safe, the caller should use the single writer thread.
+ *
+ * @param directory   the directory to store the segments in
+ * @param segmentSize the segment file size in bytes
+ * @param maxSegments the maximum number of the kept segments including the active one
+ */
+class LogJournal(
+        private val directory: File,
+        private val segmentSize: Int = DEFAULT_SEGMENT_SIZE,
+        private val maxSegments: Int = DEFAULT_MAX_SEGMENTS) {
+
+    init {
+        require(segmentSize > HEADER_SIZE + MIN_RECORD_SIZE) { "segment size is too small" }
+        require(maxSegments > 0) { "at least one segment should be kept" }
+    }
+
+    /**
+     * The active segment the records are appended to, opened on the first append, see [open]
+     */
+    private var active: MappedByteBuffer? = null
+
+    /**
+     * The index of the active segment
+     */
+    private var activeIndex = -1L
+
+    /**
+     * Append the entry to the journal. Long messages are truncated to fit into the single segment
+     *
+     * @param time    the entry time in milliseconds since epoch
+     * @param level   the entry level
+     * @param tag     the entry tag
+     * @param message the entry message
+     */
+    @Throws(IOException::class)
+    fun append(time: Long, level: Int, tag: String?, message: String) {
+        val tagBytes = tag?.toByteArray(Charsets.UTF_8)?.let { if (it.size > Short.MAX_VALUE) it.copyOf(Short.MAX_VALUE.toInt()) else it }
+        var messageBytes = message.toByteArray(Charsets.UTF_8)
+        val fixedSize = MIN_RECORD_SIZE + (tagBytes?.size ?: 0)
+        val maxMessageSize = segmentSize - HEADER_SIZE - fixedSize - LENGTH_SIZE
+        if (messageBytes.size > maxMessageSize) {
+            messageBytes = messageBytes.copyOf(maxOf(0, maxMessageSize))
+        }
+        val recordSize = fixedSize - LENGTH_SIZE + messageBytes.size
+        var buffer = active ?: open()
+        // keep space for the terminating zero length
+        if (buffer.remaining() < LENGTH_SIZE + recordSize + LENGTH_SIZE) {
+            buffer = rotate()
+        }
+        val start = buffer.position()
+        buffer.position(start + LENGTH_SIZE)
+        buffer.putLong(time)
+        buffer.put(level.toByte())
+        if (tagBytes == null) {
+            buffer.putShort(-1)
+        } else {
+            buffer.putShort(tagBytes.size.toShort())
+            buffer.put(tagBytes)
+        }
+        buffer.put(messageBytes)
+        // the space may contain the unpublished record of the previous run
+        buffer.putInt(buffer.position(), 0)
+        // publish the record
+        buffer.putInt(start, recordSize)
+    }
+
+    /**
+     * Read all the journal entries from the oldest to the newest
+     *
+     * @param factory the factory to create the entries from the record values
+     */
+    @Throws(IOException::class)
+    fun <T> read(factory: (time: Long, level: Int, tag: String?, message: String) -> T): List<T> {
+        val result = ArrayList<T>()
+        for (segment in segments()) {
+            readSegment(segment, factory, result)
+        }
+        return result
+    }
+
+    /**
+     * Delete the segments over the limit and the segments of the unknown format
+     */
+    fun cleanUp() {
+        val segments = segments()
+        for ((i, segment) in segments.withIndex()) {
+            if (i < segments.size - maxSegments || !hasValidHeader(segment)) {
+                segment.delete()
+            }
+        }
+    }
+
+    /**
+     * Open the last segment and continue appending after its last record. The next segment is started if there are
+     * no segments yet or the last one is of the different size or format
+     */
+    @Throws(IOException::class)
+    private fun open(): MappedByteBuffer {
+        directory.mkdirs()
+        val last = segments().lastOrNull()
+        activeIndex = last?.let { segmentIndex(it) } ?: -1
+        if (last == null || last.length() != segmentSize.toLong() || !hasValidHeader(last)) {
+            return rotate()
+        }
+        val buffer = map(last)
+        buffer.position(HEADER_SIZE)
+        while (true) {
+            val recordSize = recordSize(buffer)
+            if (recordSize < 0) {
+                break
+            }
+            buffer.position(buffer.position() + LENGTH_SIZE + recordSize)
+        }
+        active = buffer
+        return buffer
+    }
+
+    /**
+     * Start the next segment and delete the oldest ones over the limit
+     */
+    @Throws(IOException::class)
+    private fun rotate(): MappedByteBuffer {
+        activeIndex++
+        val buffer = map(File(directory, String.format(SEGMENT_NAME_FORMAT, activeIndex)))
+        buffer.putInt(MAGIC)
+        active = buffer
+        val segments = segments()
+        for (i in 0 until segments.size - maxSegments) {
+            segments[i].delete()
+        }
+        return buffer
+    }
+
+    @Throws(IOException::class)
+    private fun map(file: File): MappedByteBuffer = RandomAccessFile(file, "rw").use { randomAccessFile ->
+        randomAccessFile.setLength(segmentSize.toLong())
+        // the mapping stays valid after the channel is closed
+        randomAccessFile.channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize.toLong())
+    }
+
+    private fun segments(): List<File> =
+            directory.listFiles { file -> file.name.endsWith(SEGMENT_EXTENSION) && segmentIndex(file) >= 0 }
+                    ?.sortedBy { segmentIndex(it) }
+                    ?: emptyList()
+
+    private fun segmentIndex(file: File): Long =
+            file.name.removeSuffix(SEGMENT_EXTENSION).toLongOrNull() ?: -1
+
+    private fun hasValidHeader(segment: File): Boolean = try {
+        DataInputStream(FileInputStream(segment)).use { it.readInt() == MAGIC }
+    } catch (e: IOException) {
+        false
+    }
+
+    private fun <T> readSegment(segment: File,
+                                factory: (time: Long, level: Int, tag: String?, message: String) -> T,
+                                result: MutableList<T>) {
+        val data = try {
+            segment.readBytes()
+        } catch (e: IOException) {
+            return
+        }
+        val buffer = ByteBuffer.wrap(data)
+        if (data.size < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            return
+        }
+        while (true) {
+            val recordSize = recordSize(buffer)
+            if (recordSize < 0) {
+                break
+            }
+            val end = buffer.position() + LENGTH_SIZE + recordSize
+            buffer.position(buffer.position() + LENGTH_SIZE)
+            val time = buffer.getLong()
+            val level = buffer.get().toInt()
+            val tagSize = buffer.getShort().toInt()
+            val tag = if (tagSize < 0) null else String(data, buffer.position(), tagSize, Charsets.UTF_8)
+            val messageStart = buffer.position() + maxOf(0, tagSize)
+            result.add(factory(time, level, tag, String(data, messageStart, end - messageStart, Charsets.UTF_8)))
+            buffer.position(end)
+        }
+    }
+
+    /**
+     * Get the length of the record at the buffer position without changing the position
+     *
+     * @return the record length excluding the length itself or -1 at the end of the segment or the corrupted record
+     */
+    private fun recordSize(buffer: ByteBuffer): Int {
+        val start = buffer.position()
+        if (buffer.remaining() < LENGTH_SIZE) {
+            return -1
+        }
+        val recordSize = buffer.getInt(start)
+        if (recordSize < MIN_RECORD_SIZE - LENGTH_SIZE || recordSize > buffer.remaining() - LENGTH_SIZE) {
+            return -1
+        }
+        val tagSize = buffer.getShort(start + TAG_SIZE_OFFSET).toInt()
+        if (recordSize - (MIN_RECORD_SIZE - LENGTH_SIZE) - maxOf(0, tagSize) < 0) {
+            return -1
+        }
+        return recordSize
+    }
+
+    companion object {
+        const val DEFAULT_SEGMENT_SIZE = 1024 * 1024
+        const val DEFAULT_MAX_SEGMENTS = 8
+
+        private const val MAGIC = 0x4C4F4731 // LOG1
+        private const val HEADER_SIZE = 4
+        private const val LENGTH_SIZE = 4
+
+        /**
+         * The size of the record with the empty tag and message including the record length
+         */
+        private const val MIN_RECORD_SIZE = LENGTH_SIZE + 8 + 1 + 2
+
+        /**
+         * The offset of the tag length from the record start
+         */
+        private const val TAG_SIZE_OFFSET = LENGTH_SIZE + 8 + 1
+        private const val SEGMENT_EXTENSION = ".seg"
+        private const val SEGMENT_NAME_FORMAT = "%010d$SEGMENT_EXTENSION"
+    }
+}
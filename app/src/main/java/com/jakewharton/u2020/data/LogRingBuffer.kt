@@ -0,0 +1,133 @@
+package com.jakewharton.u2020.data
+
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.math.max
+
+/**
+ * Fixed capacity lock-free multi-producer ring buffer of the log entries. Entry slots are preallocated so adding the
+ * entry doesn't allocate anything. When the buffer is full the oldest entries are overwritten.
+ *
+ * Each entry gets the unique sequence number. Producers claim the sequence and then publish the written slot, readers
+ * skip the slots which are overwritten while being read.
+ *
+ * @param capacity the buffer capacity, rounded up to the power of two
+ */
+class LogRingBuffer(capacity: Int) {
+    private val slots: Array<Slot>
+    private val mask: Long
+
+    init {
+        require(capacity > 0) { "capacity should be positive" }
+        val size = Integer.highestOneBit(capacity - 1).shl(1).coerceAtLeast(1)
+        slots = Array(size) { Slot() }
+        mask = size - 1L
+    }
+
+    /**
+     * The next sequence number to claim
+     */
+    private val sequence = AtomicLong()
+
+    /**
+     * The buffer capacity
+     */
+    val capacity: Int
+        get() = slots.size
+
+    /**
+     * The sequence number the next added entry will get
+     */
+    val nextSequence: Long
+        get() = sequence.get()
+
+    /**
+     * Add the entry to the buffer. May be called from any thread
+     *
+     * @param time    the entry time in milliseconds since epoch
+     * @param level   the entry level
+     * @param tag     the entry tag
+     * @param message the entry message
+     */
+    fun add(time: Long, level: Int, tag: String?, message: String) {
+        val claimed = sequence.getAndIncrement()
+        val slot = slots[(claimed and mask).toInt()]
+        slot.sequence = WRITING
+        slot.time = time
+        slot.level = level
+        slot.tag = tag
+        slot.message = message
+        slot.sequence = claimed
+    }
+
+    /**
+     * Read the entries starting from the specified sequence number. Entries which are already overwritten are
+     * skipped, reading stops at the first entry which is not yet published
+     *
+     * @param fromSequence the sequence number of the first entry to read
+     * @param factory      the factory to create the entries from the slot values
+     * @return the read entries and the sequence number to continue reading from
+     */
+    fun <T> read(fromSequence: Long, factory: (time: Long, level: Int, tag: String?, message: String) -> T): Batch<T> {
+        val end = sequence.get()
+        var current = max(fromSequence, end - slots.size)
+        val entries = ArrayList<T>(max(0L, end - current).toInt())
+        while (current < end) {
+            val slot = slots[(current and mask).toInt()]
+            val published = slot.sequence
+            if (published != current) {
+                if (published < current) {
+                    // the producer has not yet published the entry
+                    break
+                }
+                // overwritten
+                current++
+                continue
+            }
+            val time = slot.time
+            val level = slot.level
+            val tag = slot.tag
+            val message = slot.message
+            if (slot.sequence == current && message != null) {
+                entries.add(factory(time, level, tag, message))
+            }
+            current++
+        }
+        return Batch(entries, current)
+    }
+
+    /**
+     * The result of the [read] operation
+     *
+     * @property entries the read entries in the order of addition
+     * @property nextSequence the sequence number to continue reading from
+     */
+    class Batch<T>(val entries: List<T>, val nextSequence: Long)
+
+    /**
+     * The entry slot. All the fields are volatile so the reader may detect concurrent overwrite by the sequence
+     * number check made after the fields are read
+     */
+    private class Slot {
+        @Volatile
+        var sequence = WRITING
+
+        @Volatile
+        var time = 0L
+
+        @Volatile
+        var level = 0
+
+        @Volatile
+        var tag: String? = null
+
+        @Volatile
+        var message: String? = null
+    }
+
+    companion object {
+        /**
+         * The slot sequence value while the slot is being written
+         */
+        private const val WRITING = -1L
+    }
+}
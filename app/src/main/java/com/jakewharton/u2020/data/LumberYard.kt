@@ -2,13 +2,19 @@ package com.jakewharton.u2020.data
 
 import android.app.Application
 import android.util.Log
+import com.app.missednotificationsreminder.util.logging.Logger
 import kotlinx.coroutines.*
+import kotlinx.coroutines.channels.BufferOverflow
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.collect
 import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.onSubscription
 import okio.buffer
 import okio.sink
+import org.threeten.bp.Instant
 import org.threeten.bp.LocalDateTime
+import org.threeten.bp.ZoneId
 import org.threeten.bp.format.DateTimeFormatter
 import org.threeten.bp.format.DateTimeFormatterBuilder
 import org.threeten.bp.temporal.ChronoField
@@ -16,45 +22,149 @@ import timber.log.Timber
 import timber.log.Timber.DebugTree
 import java.io.File
 import java.io.IOException
-import java.util.*
 import java.util.concurrent.Executors
 import javax.inject.Inject
 import javax.inject.Singleton
 
 @Singleton
 class LumberYard @Inject constructor(private val app: Application) {
-    private val entries: Deque<Entry> = ArrayDeque(BUFFER_SIZE + 1)
-    private val entrySubject = MutableSharedFlow<Entry>()
+    private val buffer = LogRingBuffer(BUFFER_SIZE)
+
+    /**
+     * Signals the entries added to the [buffer]. Signals are conflated so the logging thread never waits for the
+     * readers, which read all the entries added since their previous read anyway
+     */
+    private val added = MutableSharedFlow<Unit>(extraBufferCapacity = 1, onBufferOverflow = BufferOverflow.DROP_OLDEST)
+
+    /**
+     * The scope of the journal writer and the clean up jobs, see [close]
+     */
+    private val scope = CoroutineScope(SupervisorJob())
+
+    /**
+     * The persistent logs journal, accessed on the [journalDispatcher] only
+     */
+    private val journal by lazy { LogJournal(File(app.filesDir, JOURNAL_DIRECTORY)) }
+
+    /**
+     * The single thread the buffered entries are written to the [journal] on
+     */
+    private val journalDispatcher = Executors
+            .newSingleThreadExecutor { runnable -> Thread(runnable, "LogJournal").apply { isDaemon = true } }
+            .asCoroutineDispatcher()
+
+    /**
+     * The sequence number of the next buffered entry to write to the [journal]
+     */
+    private var journalSequence = 0L
+
+    private var journalJob: Job? = null
+
     fun tree(): Timber.Tree {
-        val scope = CoroutineScope(Executors
-                .newSingleThreadExecutor { runnable -> Thread(runnable, "LumberYard") }
-                .asCoroutineDispatcher())
+        startJournal()
         return object : DebugTree() {
+            // gated before the message is formatted
+            override fun isLoggable(tag: String?, priority: Int) = Logger.isLoggable(priority, tag)
+
             override fun log(priority: Int, tag: String?, message: String, t: Throwable?) {
-                scope.launch { addEntry(Entry(LocalDateTime.now(), priority, tag ?: "", message)) }
+                // called on the logging thread, doesn't allocate anything
+                buffer.add(System.currentTimeMillis(), priority, tag, message)
+                added.tryEmit(Unit)
             }
         }
     }
 
+    fun bufferedLogs(): List<Entry> {
+        return readLogs(0).entries
+    }
+
+    /**
+     * Read the buffered logs
+     *
+     * @param fromSequence the sequence number of the first entry to read
+     * @return the read entries and the sequence number to continue reading from
+     */
+    fun readLogs(fromSequence: Long): LogRingBuffer.Batch<Entry> {
+        return buffer.read(fromSequence) { time, level, tag, message -> Entry(time, level, tag ?: "", message) }
+    }
+
+    /**
+     * Get the flow of the new log entries batches. The buffer is read when the entries are added only
+     *
+     * @param fromSequence the sequence number of the first entry to emit
+     */
+    fun logs(fromSequence: Long): Flow<List<Entry>> = flow {
+        var next = fromSequence
+        added
+                // read the entries added before the subscription
+                .onSubscription { emit(Unit) }
+                .collect {
+                    val batch = readLogs(next)
+                    next = batch.nextSequence
+                    if (batch.entries.isNotEmpty()) {
+                        emit(batch.entries)
+                    }
+                }
+    }
+
+    /**
+     * Read the logs persisted in the journal including the ones of the previous application runs
+     *
+     * @return the journal entries and the buffer sequence number to continue reading the new entries from
+     */
+    suspend fun history(): LogRingBuffer.Batch<Entry> = withContext(journalDispatcher) {
+        writeJournal()
+        val entries = try {
+            journal.read { time, level, tag, message -> Entry(time, level, tag ?: "", message) }
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to read the logs journal", e)
+            emptyList<Entry>()
+        }
+        LogRingBuffer.Batch(entries, journalSequence)
+    }
+
+    /**
+     * Start writing the buffered entries to the journal when they are added, so logging itself never waits for the
+     * disk. Entries added while the previous ones are written are written together
+     */
     @Synchronized
-    private suspend fun addEntry(entry: Entry) {
-        entries.addLast(entry)
-        if (entries.size > BUFFER_SIZE) {
-            entries.removeFirst()
+    private fun startJournal() {
+        if (journalJob == null) {
+            journalJob = scope.launch(journalDispatcher) {
+                added
+                        // write the entries added before the subscription
+                        .onSubscription { emit(Unit) }
+                        .collect { writeJournal() }
+            }
         }
-        entrySubject.emit(entry)
     }
 
-    fun bufferedLogs(): List<Entry> {
-        return ArrayList(entries)
+    /**
+     * Stop writing the journal and cancel the pending clean up. Entries logged after are kept in memory only
+     */
+    fun close() {
+        scope.cancel()
     }
 
-    fun logs(): Flow<Entry> {
-        return entrySubject
+    /**
+     * Write the buffered entries which are not yet written to the journal. Should be called on the
+     * [journalDispatcher] only
+     */
+    private fun writeJournal() {
+        val batch = buffer.read(journalSequence) { time, level, tag, message -> Entry(time, level, tag ?: "", message) }
+        try {
+            for (entry in batch.entries) {
+                journal.append(entry.time, entry.level, entry.tag, entry.message)
+            }
+        } catch (e: IOException) {
+            // Timber would log back to the journal
+            Log.w(TAG, "Failed to write the logs journal", e)
+        }
+        journalSequence = batch.nextSequence
     }
 
     /**
-     * Save the current logs to disk.
+     * Save the current logs including the ones of the previous application runs to disk.
      */
     @Suppress("BlockingMethodInNonBlockingContext")
     fun save(): Flow<File> = flow {
@@ -66,7 +176,7 @@ class LumberYard @Inject constructor(private val app: Application) {
         val output = File(folder, fileName)
         output.sink().buffer()
                 .use {
-                    val entries = bufferedLogs()
+                    val entries = history().entries
                     for (entry in entries) {
                         it.writeUtf8(entry.prettyPrint()).writeByte('\n'.toInt())
                     }
@@ -76,11 +186,14 @@ class LumberYard @Inject constructor(private val app: Application) {
     }
 
     /**
-     * Delete all of the log files saved to disk. Be careful not to call this before any intents have
-     * finished using the file reference.
+     * Delete all of the log files saved to disk and the journal segments over the retention limit. Be careful not to
+     * call this before any intents have finished using the file reference.
      */
     fun cleanUp() {
-        GlobalScope.launch(Dispatchers.IO) {
+        scope.launch(journalDispatcher) {
+            journal.cleanUp()
+        }
+        scope.launch(Dispatchers.IO) {
             Timber.d("cleanUp()")
             val folder = app.getExternalFilesDir(null)
             if (folder != null) {
@@ -97,10 +210,21 @@ class LumberYard @Inject constructor(private val app: Application) {
     }
 
     companion object {
-        private const val BUFFER_SIZE = 10000
+        private const val TAG = "LumberYard"
+        private const val BUFFER_SIZE = 16384
+
+        /**
+         * The directory in the application files directory the journal segments are stored in
+         */
+        private const val JOURNAL_DIRECTORY = "logs"
     }
 
-    data class Entry(val time: LocalDateTime, val level: Int, val tag: String, val message: String) {
+    /**
+     * The log entry
+     *
+     * @property time the entry time in milliseconds since epoch
+     */
+    data class Entry(val time: Long, val level: Int, val tag: String, val message: String) {
         fun prettyPrint(): String {
             return String.format("%s %22s %s %s", displayTime(), tag, displayLevel(),  // Indent newlines to match the original indentation.
                     message.replace("\\n".toRegex(), "\n                         "))
@@ -119,7 +243,7 @@ class LumberYard @Inject constructor(private val app: Application) {
         }
 
         fun displayTime(): String {
-            return formatter.format(time)
+            return formatter.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()))
         }
 
         companion object {
@@ -0,0 +1,292 @@
+package com.jakewharton.u2020.ui.logs
+
+import java.util.*
+import java.util.regex.Pattern
+import java.util.regex.PatternSyntaxException
+
+/**
+ * Search index over the log entries. The entry fields are formatted once when the entry is added, the lower case
+ * alphanumeric tokens of the fields are indexed so the query is verified only against the entries which contain all
+ * the query tokens. Query tokens may be any part of the entry tokens, the tokens containing them are found by the
+ * n-grams of up to [GRAM_SIZE] characters, so the search never scans the whole vocabulary.
+ *
+ * The query is the case insensitive regular expression matched against each field separately. Queries without
+ * regular expression special characters except the `.` are narrowed using the index, refined queries containing the
+ * previous one filter only the previous results and the entries added since.
+ *
+ * @param fields the function to get the searchable fields of the entry
+ */
+internal class LogSearchIndex<T>(private val fields: (T) -> Array<String>) {
+    private val entries = ArrayList<T>()
+
+    /**
+     * The formatted fields of the entries
+     */
+    private val entryFields = ArrayList<Array<String>>()
+
+    /**
+     * The distinct tokens of the entries
+     */
+    private val tokens = ArrayList<String>()
+
+    /**
+     * The entry indexes of each token of the [tokens] by the token index
+     */
+    private val postings = ArrayList<IntList>()
+
+    /**
+     * The token indexes by the token
+     */
+    private val tokenIndexes = HashMap<String, Int>()
+
+    /**
+     * The indexes of the [tokens] containing each n-gram of up to [GRAM_SIZE] characters
+     */
+    private val grams = HashMap<String, IntList>()
+
+    private var query = ""
+    private var pattern: Pattern? = Pattern.compile(query)
+
+    /**
+     * The entry indexes matching the current [query]
+     */
+    private var matches = IntList()
+
+    /**
+     * The number of entries the current [matches] are calculated for
+     */
+    private var searched = 0
+
+    /**
+     * The number of the indexed entries
+     */
+    val size: Int
+        @Synchronized get() = entries.size
+
+    /**
+     * Index the new entries
+     *
+     * @param added the entries to add
+     * @return the added entries matching the current query
+     */
+    @Synchronized
+    fun add(added: List<T>): List<T> {
+        for (entry in added) {
+            val index = entries.size
+            val values = fields(entry)
+            entries.add(entry)
+            entryFields.add(values)
+            for (value in values) {
+                forEachToken(value.toLowerCase(Locale.ROOT)) { token ->
+                    val list = postings[tokenIndexes[token] ?: addToken(token)]
+                    // the same token may be present in several fields
+                    if (list.size == 0 || list[list.size - 1] != index) {
+                        list.add(index)
+                    }
+                }
+            }
+        }
+        val start = searched
+        searchNew()
+        return matchesFrom(start)
+    }
+
+    /**
+     * Add the new token to the vocabulary and index its n-grams
+     *
+     * @return the token index
+     */
+    private fun addToken(token: String): Int {
+        val tokenIndex = tokens.size
+        tokens.add(token)
+        postings.add(IntList())
+        tokenIndexes[token] = tokenIndex
+        for (size in 1..minOf(GRAM_SIZE, token.length)) {
+            for (start in 0..token.length - size) {
+                val list = grams.getOrPut(token.substring(start, start + size)) { IntList() }
+                // the same n-gram may be present several times in the token
+                if (list.size == 0 || list[list.size - 1] != tokenIndex) {
+                    list.add(tokenIndex)
+                }
+            }
+        }
+        return tokenIndex
+    }
+
+    /**
+     * Search the entries matching the query
+     *
+     * @param query the case insensitive regular expression, the empty query matches all the entries
+     * @return the matching entries in the order of addition, empty list for the invalid query
+     */
+    @Synchronized
+    fun search(query: String): List<T> {
+        val refined = query.contains(this.query) && isNarrowable(query) && isNarrowable(this.query)
+        val previousMatches = matches
+        val previousSearched = searched
+        this.query = query
+        pattern = try {
+            Pattern.compile(query, Pattern.CASE_INSENSITIVE)
+        } catch (e: PatternSyntaxException) {
+            null
+        }
+        matches = IntList()
+        if (refined) {
+            // matches of the refined query contain the matches of the previous one
+            for (i in 0 until previousMatches.size) {
+                val index = previousMatches[i]
+                if (matches(index)) {
+                    matches.add(index)
+                }
+            }
+            searched = previousSearched
+        } else {
+            searched = 0
+        }
+        searchNew()
+        return matchesFrom(0)
+    }
+
+    /**
+     * Search the entries added since the last search
+     */
+    private fun searchNew() {
+        val from = searched
+        searched = entries.size
+        if (from == searched || pattern == null) {
+            return
+        }
+        val candidates = candidates()
+        var index = if (candidates == null) from else candidates.nextSetBit(from)
+        while (index in 0 until searched) {
+            if (matches(index)) {
+                matches.add(index)
+            }
+            index = if (candidates == null) index + 1 else candidates.nextSetBit(index + 1)
+        }
+    }
+
+    /**
+     * Get the entries containing all the query tokens or null if the index can't be used for the query
+     */
+    private fun candidates(): BitSet? {
+        if (query.isEmpty() || !isNarrowable(query)) {
+            return null
+        }
+        var result: BitSet? = null
+        forEachToken(query.toLowerCase(Locale.ROOT)) { queryToken ->
+            val tokenEntries = BitSet(entries.size)
+            // the query token may be the part of the entry token
+            forEachTokenContaining(queryToken) { tokenIndex ->
+                val list = postings[tokenIndex]
+                for (i in 0 until list.size) {
+                    tokenEntries.set(list[i])
+                }
+            }
+            result = result?.apply { and(tokenEntries) } ?: tokenEntries
+        }
+        return result
+    }
+
+    /**
+     * Call the action with the index of each token containing the query token
+     */
+    private inline fun forEachTokenContaining(queryToken: String, action: (Int) -> Unit) {
+        if (queryToken.length <= GRAM_SIZE) {
+            // the short query token is the n-gram itself
+            val list = grams[queryToken] ?: return
+            for (i in 0 until list.size) {
+                action(list[i])
+            }
+            return
+        }
+        // verify the tokens containing the rarest n-gram of the query token
+        var rarest: IntList? = null
+        for (start in 0..queryToken.length - GRAM_SIZE) {
+            val list = grams[queryToken.substring(start, start + GRAM_SIZE)] ?: return
+            if (rarest == null || list.size < rarest.size) {
+                rarest = list
+            }
+        }
+        for (i in 0 until rarest!!.size) {
+            if (tokens[rarest[i]].contains(queryToken)) {
+                action(rarest[i])
+            }
+        }
+    }
+
+    private fun matches(index: Int): Boolean {
+        val pattern = pattern ?: return false
+        if (query.isEmpty()) {
+            return true
+        }
+        for (value in entryFields[index]) {
+            if (pattern.matcher(value).find()) {
+                return true
+            }
+        }
+        return false
+    }
+
+    private fun matchesFrom(start: Int): List<T> {
+        val result = ArrayList<T>()
+        for (i in 0 until matches.size) {
+            val index = matches[i]
+            if (index >= start) {
+                result.add(entries[index])
+            }
+        }
+        return result
+    }
+
+    /**
+     * Whether each match of the query contains the query tokens literally
+     */
+    private fun isNarrowable(query: String): Boolean = query.none { REGEX_SPECIAL_CHARACTERS.indexOf(it) >= 0 }
+
+    private inline fun forEachToken(value: String, action: (String) -> Unit) {
+        var start = -1
+        for (i in 0..value.length) {
+            if (i < value.length && Character.isLetterOrDigit(value[i])) {
+                if (start < 0) {
+                    start = i
+                }
+            } else if (start >= 0) {
+                action(value.substring(start, i))
+                start = -1
+            }
+        }
+    }
+
+    /**
+     * Growable list of the primitive ints
+     */
+    private class IntList {
+        private var values = IntArray(4)
+
+        var size = 0
+            private set
+
+        operator fun get(index: Int) = values[index]
+
+        fun add(value: Int) {
+            if (size == values.size) {
+                values = values.copyOf(size * 2)
+            }
+            values[size++] = value
+        }
+    }
+
+    companion object {
+        /**
+         * The maximum length of the indexed token n-grams
+         */
+        private const val GRAM_SIZE = 3
+
+        /**
+         * The regular expression characters which make the match not contain the query tokens literally. The `.`
+         * matches only a single character so it can't break the token match
+         */
+        private const val REGEX_SPECIAL_CHARACTERS = "\\^$|?*+()[]{}"
+    }
+}
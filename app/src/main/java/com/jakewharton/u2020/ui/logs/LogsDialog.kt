@@ -2,9 +2,7 @@ package com.jakewharton.u2020.ui.logs
 
 import android.content.Context
 import android.content.DialogInterface
-import android.os.SystemClock
 import android.text.Editable
-import android.text.TextUtils
 import android.text.TextWatcher
 import android.view.LayoutInflater
 import android.view.WindowManager
@@ -16,33 +14,34 @@ import androidx.lifecycle.lifecycleScope
 import com.app.missednotificationsreminder.databinding.DebugLogsBinding
 import com.app.missednotificationsreminder.ui.widget.dialog.LifecycleAlertDialog
 import com.app.missednotificationsreminder.util.ShareUtils
-import com.app.missednotificationsreminder.util.flow.bufferTimeout
 import com.jakewharton.u2020.data.LumberYard
 import kotlinx.coroutines.*
 import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.flow.*
 import timber.log.Timber
-import java.util.*
-import java.util.regex.Pattern
 
 @OptIn(ExperimentalCoroutinesApi::class, FlowPreview::class)
 class LogsDialog(context: Context,
                  private val lumberYard: LumberYard,
                  private val parentLifecycleOwner: LifecycleOwner) : LifecycleAlertDialog(context) {
     private val adapter: LogAdapter = LogAdapter(context)
+    private val index = LogSearchIndex<LumberYard.Entry> {
+        arrayOf(it.displayLevel(), it.displayTime(), it.tag, it.message)
+    }
     private val query: EditText
 
     override fun onAttachedToWindow() {
         super.onAttachedToWindow()
         lifecycleScope.launch {
-            val data = withContext(Dispatchers.IO) {
-                filterData(query.text, lumberYard.bufferedLogs(), false)
+            val history = lumberYard.history()
+            val data = withContext(Dispatchers.Default) {
+                index.add(history.entries)
+                search(query.text.toString())
             }
             adapter.setLogs(data)
-            lumberYard.logs()
-                    .bufferTimeout(duration = 2000)
-                    .filter { it.isNotEmpty() }
-                    .map { filterData(query.text, it, true) }
+            // continue right after the journal entries
+            lumberYard.logs(history.nextSequence)
+                    .map { index.add(it) }
                     .filter { it.isNotEmpty() }
                     .flowOn(Dispatchers.Default)
                     .buffer()
@@ -67,9 +66,9 @@ class LogsDialog(context: Context,
                     query.removeTextChangedListener(listener)
                 }
             }
-                    .debounce(1000)
+                    .debounce(SEARCH_DEBOUNCE)
                     .conflate()
-                    .map { filterData(it, lumberYard.bufferedLogs(), false) }
+                    .map { search(it) }
                     .flowOn(Dispatchers.Default)
                     .onEach { adapter.setLogs(it) }
                     .launchIn(lifecycleScope)
@@ -77,43 +76,11 @@ class LogsDialog(context: Context,
 
     }
 
-    private fun filterData(query: CharSequence, entries: List<LumberYard.Entry>, silent: Boolean): List<LumberYard.Entry> {
-        if (!silent) {
-            Timber.d("filterData() called in thread=${Thread.currentThread().name}")
-        }
-        if (TextUtils.isEmpty(query)) {
-            return entries
-        }
-        if (!silent) {
-            Timber.d("filterData() called with: query = %s;",
-                    query)
-        }
-        val start = SystemClock.elapsedRealtime()
-        val result: MutableList<LumberYard.Entry> = ArrayList()
-        var pattern: Pattern? = null
-        try {
-            pattern = Pattern.compile(query.toString(), Pattern.CASE_INSENSITIVE)
-        } catch (e: Exception) {
-            Timber.e("Invalid pattern: %s", query)
-        }
-        if (pattern != null) {
-            for (entry in entries) {
-                for (value in arrayOf(
-                        entry.displayLevel(),
-                        entry.displayTime(),
-                        entry.tag,
-                        entry.message
-                )) {
-                    if (pattern.matcher(value).find()) {
-                        result.add(entry)
-                        break
-                    }
-                }
-            }
-        }
-        if (!silent) {
-            Timber.d("filterData: duration %d", SystemClock.elapsedRealtime() - start)
-        }
+    private fun search(query: String): List<LumberYard.Entry> {
+        val start = System.nanoTime()
+        val result = index.search(query)
+        Timber.d("search: query = %s, %d of %d entries matched in %d us",
+                query, result.size, index.size, (System.nanoTime() - start) / 1000)
         return result
     }
 
@@ -141,4 +108,11 @@ class LogsDialog(context: Context,
         setButton(DialogInterface.BUTTON_POSITIVE, "Share") { _, _ -> parentLifecycleOwner.lifecycleScope.launch { share() } }
         window!!.setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_ADJUST_PAN)
     }
+
+    companion object {
+        /**
+         * The delay after the last query change to search at in milliseconds
+         */
+        private const val SEARCH_DEBOUNCE = 300L
+    }
 }
\ No newline at end of file
@@ -6,17 +6,35 @@ import android.os.SystemClock
 import android.service.notification.NotificationListenerService
 import android.service.notification.StatusBarNotification
 import androidx.lifecycle.lifecycleScope
+import com.app.missednotificationsreminder.service.ReminderNotificationListenerServiceInterface.Companion.NOTIFICATION_EVENTS_BATCH_WINDOW
+import com.app.missednotificationsreminder.service.data.NotificationsReconciliation
 import com.app.missednotificationsreminder.service.data.model.NotificationData
-import kotlinx.coroutines.launch
+import com.app.missednotificationsreminder.util.coroutines.BatchingEventsQueue
 import timber.log.Timber
-import java.util.*
 
 /**
  * The service to monitor all status bar notifications.
  */
 abstract class AbstractReminderNotificationListenerService : NotificationListenerService(), ReminderNotificationListenerServiceInterface {
+    /**
+     * Queue to coalesce status bar notification events bursts into ordered batches
+     */
+    private val notificationEvents = BatchingEventsQueue<NotificationEvent>(NOTIFICATION_EVENTS_BATCH_WINDOW)
+
     override fun onCreate() {
         super.onCreate()
+        notificationEvents.launchIn(lifecycleScope) { events ->
+            Timber.d("Apply notification events batch of size %d", events.size)
+            applyNotificationsBatch {
+                for (event in events) {
+                    if (event.posted) {
+                        notificationPosted(event.sbn)
+                    } else {
+                        notificationRemoved(event.sbn)
+                    }
+                }
+            }
+        }
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
             // such as onListenerConnected is not called on android prior L call onReady method explicitly
             onReady()
@@ -31,74 +49,63 @@ abstract class AbstractReminderNotificationListenerService : NotificationListene
                     Timber.e(e)
                     emptyArray()
                 }
-        val snapshotNotifications = mutableSetOf<NotificationData>().apply {
-            addAll(notificationsData)
-        }
-        val addedNotifications: MutableList<StatusBarNotification> = ArrayList()
-        for (sbn in activeNotifications) {
-            val notificationData: NotificationData? = findNotificationData(sbn, snapshotNotifications)
-            if (notificationData != null) {
-                snapshotNotifications.remove(notificationData)
-            } else {
+        val reconciliation = NotificationsReconciliation.reconcile(activeNotifications.asList(), notificationsData,
+                activeKey = { sbn -> Triple(notificationKey(sbn), sbn.packageName, sbn.notification.`when`) },
+                knownKey = { notificationData ->
+                    Triple(notificationData.id, notificationData.packageName, (notificationData as ExtendedNotificationData).`when`)
+                })
+        applyNotificationsBatch {
+            for (notificationData in reconciliation.removed) {
+                Timber.w("actualizeNotificationData() found already removed %s", notificationData)
+                onNotificationRemoved(notificationData)
+            }
+            for (sbn in reconciliation.added) {
                 Timber.d("actualizeNotificationData() found new %s", sbn)
-                addedNotifications.add(sbn)
+                notificationPosted(sbn)
             }
         }
-        for (notificationData in snapshotNotifications) {
-            Timber.w("actualizeNotificationData() found already removed %s", notificationData)
-            onNotificationRemoved(notificationData)
-        }
-        for (sbn in addedNotifications) {
-            onNotificationPosted(sbn)
-        }
     }
 
     override fun onNotificationPosted(sbn: StatusBarNotification) {
-        lifecycleScope.launch {
-            if (sbn == null) {
-                // fix weird NPE on some devices
-                return@launch
-            }
-            Timber.d("onNotificationPosted: for package %1\$s, key %2\$s, when %3\$s", sbn.packageName, notificationKey(sbn), sbn.notification.`when`)
-            var notificationData: NotificationData? = findNotificationData(sbn)
-            if (notificationData == null) {
-                notificationData = ExtendedNotificationData(sbn)
-            }
-            onNotificationPosted(notificationData)
+        if (sbn == null) {
+            // fix weird NPE on some devices
+            return
         }
+        notificationEvents.submit(NotificationEvent(sbn, posted = true))
     }
 
     override fun onNotificationRemoved(sbn: StatusBarNotification) {
-        lifecycleScope.launch {
-            if (sbn == null) {
-                // fix weird NPE on some devices
-                return@launch
-            }
-            Timber.d("onNotificationRemoved: for package %1\$s, key %2\$s, when %3\$s", sbn.packageName, notificationKey(sbn), sbn.notification.`when`)
-            val notificationData: NotificationData? = findNotificationData(sbn)
-            if (notificationData == null) {
-                Timber.w("onNotificationRemoved: can't find internal notification data for the status bar notification %s",
-                        notificationKey(sbn))
-            } else {
-                // stop alarm and check whether it should be launched again
-                onNotificationRemoved(notificationData)
-            }
+        if (sbn == null) {
+            // fix weird NPE on some devices
+            return
         }
+        notificationEvents.submit(NotificationEvent(sbn, posted = false))
     }
 
-    private fun findNotificationData(sbn: StatusBarNotification,
-                                     snapshotNotifications: Collection<NotificationData> = notificationsData): ExtendedNotificationData? {
-        var result: ExtendedNotificationData? = null
-        val key = notificationKey(sbn)
-        val `when` = sbn.notification.`when`
-        for (notificationData in snapshotNotifications) {
-            val extendedNotificationData = notificationData as ExtendedNotificationData
-            if (extendedNotificationData.id == key && extendedNotificationData.`when` == `when`) {
-                result = extendedNotificationData
-                break
-            }
+    private suspend fun notificationPosted(sbn: StatusBarNotification) {
+        Timber.d("onNotificationPosted: for package %1\$s, key %2\$s, when %3\$s", sbn.packageName, notificationKey(sbn), sbn.notification.`when`)
+        var notificationData: NotificationData? = findNotificationData(sbn)
+        if (notificationData == null) {
+            notificationData = ExtendedNotificationData(sbn)
+        }
+        onNotificationPosted(notificationData)
+    }
+
+    private suspend fun notificationRemoved(sbn: StatusBarNotification) {
+        Timber.d("onNotificationRemoved: for package %1\$s, key %2\$s, when %3\$s", sbn.packageName, notificationKey(sbn), sbn.notification.`when`)
+        val notificationData: NotificationData? = findNotificationData(sbn)
+        if (notificationData == null) {
+            Timber.w("onNotificationRemoved: can't find internal notification data for the status bar notification %s",
+                    notificationKey(sbn))
+        } else {
+            // stop alarm and check whether it should be launched again
+            onNotificationRemoved(notificationData)
         }
-        return result
+    }
+
+    private fun findNotificationData(sbn: StatusBarNotification): ExtendedNotificationData? {
+        val notificationData = findNotificationData(notificationKey(sbn), sbn.packageName) as ExtendedNotificationData?
+        return notificationData?.takeIf { it.`when` == sbn.notification.`when` }
     }
 
     private fun notificationKey(notification: StatusBarNotification): String {
@@ -120,6 +127,11 @@ abstract class AbstractReminderNotificationListenerService : NotificationListene
         onReady()
     }
 
+    /**
+     * The status bar notification event waiting in the batching queue
+     */
+    private class NotificationEvent(val sbn: StatusBarNotification, val posted: Boolean)
+
     inner class ExtendedNotificationData(id: String?, packageName: String?, foundAtTime: Long, flags: Int, // The following part is not present in the original getKey(),
             // but needed since some IM apps, e.g. Hangouts, re-post the
             // same notification when a new message is received. As a
@@ -150,6 +162,12 @@ abstract class AbstractReminderNotificationListenerService : NotificationListene
             return true
         }
 
+        override fun hashCode(): Int {
+            var result = super.hashCode()
+            result = 31 * result + `when`.hashCode()
+            return result
+        }
+
         override fun fieldsAsString(): String {
             return StringBuilder()
                     .append("when='").append(`when`).append('\'')
@@ -0,0 +1,74 @@
+package com.app.missednotificationsreminder.data
+
+import android.content.SharedPreferences
+
+/**
+ * The in memory shared preferences which count the value reads and writes. The listeners are notified synchronously
+ */
+internal class CountingSharedPreferences : SharedPreferences {
+    private val values = HashMap<String, Any?>()
+    private val listeners = LinkedHashSet<SharedPreferences.OnSharedPreferenceChangeListener>()
+    var reads = 0
+    var writes = 0
+
+    private fun <T> read(key: String?, defValue: T): T {
+        reads++
+        @Suppress("UNCHECKED_CAST")
+        return if (values.containsKey(key)) values[key] as T else defValue
+    }
+
+    override fun getAll(): Map<String, *> = HashMap(values)
+    override fun getString(key: String?, defValue: String?): String? = read(key, defValue)
+    override fun getStringSet(key: String?, defValues: Set<String>?): Set<String>? = read(key, defValues)
+    override fun getInt(key: String?, defValue: Int): Int = read(key, defValue)
+    override fun getLong(key: String?, defValue: Long): Long = read(key, defValue)
+    override fun getFloat(key: String?, defValue: Float): Float = read(key, defValue)
+    override fun getBoolean(key: String?, defValue: Boolean): Boolean = read(key, defValue)
+    override fun contains(key: String?): Boolean = values.containsKey(key)
+    override fun edit(): SharedPreferences.Editor = Editor()
+
+    override fun registerOnSharedPreferenceChangeListener(
+            listener: SharedPreferences.OnSharedPreferenceChangeListener) {
+        listeners.add(listener)
+    }
+
+    override fun unregisterOnSharedPreferenceChangeListener(
+            listener: SharedPreferences.OnSharedPreferenceChangeListener) {
+        listeners.remove(listener)
+    }
+
+    private inner class Editor : SharedPreferences.Editor {
+        private val changes = LinkedHashMap<String, Any?>()
+
+        private fun put(key: String, value: Any?): SharedPreferences.Editor {
+            changes[key] = value
+            return this
+        }
+
+        override fun putString(key: String, value: String?) = put(key, value)
+        override fun putStringSet(key: String, values: Set<String>?) = put(key, values)
+        override fun putInt(key: String, value: Int) = put(key, value)
+        override fun putLong(key: String, value: Long) = put(key, value)
+        override fun putFloat(key: String, value: Float) = put(key, value)
+        override fun putBoolean(key: String, value: Boolean) = put(key, value)
+        override fun remove(key: String) = put(key, null)
+        override fun clear(): SharedPreferences.Editor {
+            values.keys.forEach { changes[it] = null }
+            return this
+        }
+
+        override fun commit(): Boolean {
+            apply()
+            return true
+        }
+
+        override fun apply() {
+            for ((key, value) in changes) {
+                writes++
+                if (value == null) values.remove(key) else values[key] = value
+                listeners.toList().forEach { it.onSharedPreferenceChanged(this@CountingSharedPreferences, key) }
+            }
+            changes.clear()
+        }
+    }
+}
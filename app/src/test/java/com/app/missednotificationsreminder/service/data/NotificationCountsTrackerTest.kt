@@ -0,0 +1,79 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.event.NotificationsUpdatedEvent
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.random.Random
+
+class NotificationCountsTrackerTest {
+    @Test
+    fun `Test deltas are applied on top of the snapshot`() {
+        val store = NotificationDataStore()
+        val first = NotificationData("1", "com.a", 1, 0)
+        store.put(first)
+        store.put(NotificationData("2", "com.b", 2, 0))
+        val tracker = NotificationCountsTracker()
+        assertEquals(mapOf("com.a" to 1, "com.b" to 1), tracker.reset(store.snapshot))
+
+        val fromVersion = store.version
+        val replacement = NotificationData("1", "com.a", 3, 0)
+        val added = NotificationData("3", "com.c", 4, 0)
+        store.put(replacement)
+        store.put(added)
+        val event = NotificationsUpdatedEvent(fromVersion, store.version, listOf(replacement, added), listOf(first))
+        assertEquals(mapOf("com.c" to 1), tracker.apply(event))
+        // the same event again is ignored
+        assertEquals(emptyMap<String, Int>(), tracker.apply(event))
+
+        val removed = NotificationData("2", "com.b", 2, 0)
+        val removedFromVersion = store.version
+        store.remove(removed)
+        assertEquals(mapOf("com.b" to 0),
+                tracker.apply(NotificationsUpdatedEvent(removedFromVersion, store.version, emptyList(), listOf(removed))))
+    }
+
+    @Test
+    fun `Test missed delta requires reset`() {
+        val store = NotificationDataStore()
+        val tracker = NotificationCountsTracker()
+        tracker.reset(store.snapshot)
+        store.put(NotificationData("1", "com.a", 1, 0))
+        val fromVersion = store.version
+        val data = NotificationData("2", "com.a", 2, 0)
+        store.put(data)
+        assertNull(tracker.apply(NotificationsUpdatedEvent(fromVersion, store.version, listOf(data), emptyList())))
+        assertEquals(mapOf("com.a" to 2), tracker.reset(store.snapshot))
+    }
+
+    @Test
+    fun `Test deltas match recount for random operations`() {
+        val packages = listOf("com.a", "com.b", "com.c")
+        repeat(50) { seed ->
+            val random = Random(seed)
+            val store = NotificationDataStore()
+            val tracker = NotificationCountsTracker()
+            val counts = HashMap(tracker.reset(store.snapshot))
+            repeat(200) {
+                val fromVersion = store.version
+                val added = mutableListOf<NotificationData>()
+                val removed = mutableListOf<NotificationData>()
+                repeat(random.nextInt(1, 5)) {
+                    val existing = store.notifications.randomOrNull(random)
+                    if (existing != null && random.nextBoolean()) {
+                        store.remove(existing)
+                        removed.add(existing)
+                    } else {
+                        val data = NotificationData(random.nextInt(6).toString(), packages.random(random), random.nextLong(), 0)
+                        store.put(data)?.let { removed.add(it) }
+                        added.add(data)
+                    }
+                }
+                val changes = tracker.apply(NotificationsUpdatedEvent(fromVersion, store.version, added, removed))!!
+                changes.forEach { (packageName, count) -> counts[packageName] = count }
+                val expected = store.notifications.groupingBy { it.packageName }.eachCount()
+                assertEquals("seed $seed", expected, counts.filterValues { it > 0 })
+            }
+        }
+    }
+}
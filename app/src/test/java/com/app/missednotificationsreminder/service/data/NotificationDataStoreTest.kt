@@ -0,0 +1,183 @@
+package com.app.missednotificationsreminder.service.data
+
+import android.app.Notification
+import com.app.missednotificationsreminder.service.data.model.NotificationData
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.random.Random
+
+class NotificationDataStoreTest {
+    @Test
+    fun `Test post replaces entry with the same id and package`() {
+        val store = NotificationDataStore()
+        val first = NotificationData("1", "com.a", 1, 0)
+        val second = NotificationData("1", "com.a", 2, 0)
+        val other = NotificationData("1", "com.b", 3, 0)
+        assertNull(store.put(first))
+        assertEquals(first, store.put(second))
+        assertNull(store.put(other))
+        assertEquals(listOf(second, other), store.notifications)
+        assertEquals(second, store.find("1", "com.a"))
+        assertEquals(listOf(second), store.forPackage("com.a"))
+    }
+
+    @Test
+    fun `Test remove ignores stale entries`() {
+        val store = NotificationDataStore()
+        val first = NotificationData("1", "com.a", 1, 0)
+        val second = NotificationData("1", "com.a", 2, 0)
+        store.put(first)
+        store.put(second)
+        assertFalse(store.remove(first))
+        assertTrue(second in store)
+        assertTrue(store.remove(second))
+        assertEquals(0, store.size)
+        assertTrue(store.forPackage("com.a").isEmpty())
+    }
+
+    @Test
+    fun `Test ignored state is kept for re-posted and dropped for replaced and removed entries`() {
+        val store = NotificationDataStore()
+        val first = NotificationData("1", "com.a", 1, 0)
+        val second = NotificationData("2", "com.a", 2, 0)
+        store.updateEligibilityFilter(setOf("com.a"), false)
+        store.put(first)
+        store.put(second)
+        store.ignoreAll()
+        assertEquals(listOf(first, second), store.ignoredNotifications)
+        assertFalse(store.hasEligibleNotifications)
+
+        store.put(first)
+        assertTrue(store.isIgnored(first))
+        assertEquals(listOf(second, first), store.ignoredNotifications)
+
+        val reposted = NotificationData("1", "com.a", 3, 0)
+        store.put(reposted)
+        assertFalse(store.isIgnored(reposted))
+        assertTrue(store.isIgnored(second))
+        assertEquals(1, store.eligibleCount("com.a"))
+
+        store.remove(second)
+        assertTrue(store.ignoredNotifications.isEmpty())
+    }
+
+    @Test
+    fun `Test snapshot is shared until the store is modified`() {
+        val store = NotificationDataStore()
+        val first = NotificationData("1", "com.a", 1, 0)
+        store.put(first)
+        val snapshot = store.snapshot
+        assertSame(snapshot, store.snapshot)
+        assertSame(snapshot.notifications, store.notifications)
+
+        store.put(NotificationData("2", "com.a", 2, 0))
+        val updated = store.snapshot
+        assertNotSame(snapshot, updated)
+        assertTrue(updated.version > snapshot.version)
+        // previous snapshot is not affected
+        assertEquals(listOf(first), snapshot.notifications)
+
+        assertFalse(store.remove(NotificationData("3", "com.a", 3, 0)))
+        assertSame(updated, store.snapshot)
+        store.ignoreAll()
+        assertTrue(store.snapshot.version > updated.version)
+        assertEquals(2, store.snapshot.ignoredNotifications.size)
+    }
+
+    @Test
+    fun `Test snapshot is built only when read`() {
+        val store = NotificationDataStore()
+        repeat(1_000) { store.put(NotificationData(it.toString(), "com.a", it.toLong(), 0)) }
+        store.remove(NotificationData("0", "com.a", 0, 0))
+        store.ignoreAll()
+        assertEquals(0, store.snapshotsBuilt)
+        assertEquals(999, store.snapshot.notifications.size)
+        assertEquals(999, store.ignoredNotifications.size)
+        assertEquals(1, store.snapshotsBuilt)
+    }
+
+    @Test
+    fun `Test eligible counters match brute force check for random operations`() {
+        val packages = listOf("com.a", "com.b", "com.c", "com.d")
+        repeat(200) { seed ->
+            val random = Random(seed)
+            val store = NotificationDataStore()
+            val model = BruteForceModel()
+            repeat(300) {
+                when (random.nextInt(10)) {
+                    in 0..4 -> {
+                        val data = NotificationData(random.nextInt(8).toString(),
+                                packages.random(random),
+                                random.nextLong(3),
+                                if (random.nextBoolean()) Notification.FLAG_ONGOING_EVENT else 0)
+                        store.put(data)
+                        model.put(data)
+                    }
+                    in 5..6 -> {
+                        val data = model.available.randomOrNull(random) ?: return@repeat
+                        assertTrue(store.remove(data))
+                        model.available.remove(data)
+                    }
+                    7 -> {
+                        store.ignoreAll()
+                        model.ignored.clear()
+                        model.ignored.addAll(model.available)
+                    }
+                    else -> {
+                        val selected = packages.filter { random.nextBoolean() }
+                        val ignoreOngoing = random.nextBoolean()
+                        store.updateEligibilityFilter(selected, ignoreOngoing)
+                        model.selected = selected
+                        model.ignoreOngoing = ignoreOngoing
+                    }
+                }
+                assertEquals("seed $seed", model.checkAtLeastOnePackageExists(), store.hasEligibleNotifications)
+                for (packageName in packages) {
+                    assertEquals("seed $seed", model.eligibleCount(packageName), store.eligibleCount(packageName))
+                }
+                assertEquals("seed $seed", model.available, store.notifications)
+            }
+        }
+    }
+
+    @Test
+    fun `Test re-posting keeps the store size and package index`() {
+        val store = NotificationDataStore()
+        val data = Array(10_000) { NotificationData(it.toString(), "com.package${it % 20}", it.toLong(), 0) }
+        data.forEach { store.put(it) }
+        data.forEach { assertEquals(it, store.put(it)) }
+        assertEquals(data.size, store.size)
+        assertEquals(data.size / 20, store.forPackage("com.package0").size)
+        data.filter { it.packageName == "com.package0" }.forEach { assertTrue(store.remove(it)) }
+        assertNull(store.find("0", "com.package0"))
+        assertTrue(store.forPackage("com.package0").isEmpty())
+        assertEquals(data.size - data.size / 20, store.size)
+    }
+
+    /**
+     * Brute force implementation of the previous reminder service logic based on the notifications lists
+     */
+    private class BruteForceModel {
+        val available = mutableListOf<NotificationData>()
+        val ignored = mutableListOf<NotificationData>()
+        var selected: Collection<String> = emptyList()
+        var ignoreOngoing = false
+
+        fun put(data: NotificationData) {
+            available.firstOrNull { it.id == data.id && it.packageName == data.packageName }
+                    ?.let { available.remove(it) }
+            available.add(data)
+        }
+
+        fun checkAtLeastOnePackageExists(): Boolean {
+            ignored.retainAll { available.contains(it) }
+            return available.any { isEligible(it) }
+        }
+
+        fun eligibleCount(packageName: String) = available.count { it.packageName == packageName && isEligible(it) }
+
+        private fun isEligible(data: NotificationData) = selected.contains(data.packageName) &&
+                !(ignoreOngoing && data.flags and Notification.FLAG_ONGOING_EVENT == Notification.FLAG_ONGOING_EVENT) &&
+                !ignored.contains(data)
+    }
+}
@@ -0,0 +1,61 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.service.data.model.NotificationData
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class NotificationsReconciliationTest {
+    @Test
+    fun `Test reconciliation finds added and removed notifications`() {
+        val known = listOf(
+                NotificationData("1", "com.a", 1, 0),
+                NotificationData("2", "com.a", 2, 0),
+                NotificationData("3", "com.b", 3, 0))
+        val active = listOf(ActiveNotification("1", "com.a"), ActiveNotification("4", "com.b"))
+
+        val reconciliation = reconcile(active, known)
+
+        assertEquals(listOf(ActiveNotification("4", "com.b")), reconciliation.added)
+        assertEquals(listOf(known[1], known[2]), reconciliation.removed)
+    }
+
+    @Test
+    fun `Test equal notifications data have equal hash codes`() {
+        val first = NotificationData("1", "com.a", 1, 2)
+        val second = NotificationData("1", "com.a", 1, 2)
+        assertEquals(first, second)
+        assertEquals(first.hashCode(), second.hashCode())
+        assertEquals(1, hashSetOf(first, second).size)
+    }
+
+    @Test
+    fun `Test reconciliation of 2000 active notifications keeps the order`() {
+        val size = 2_000
+        val known = List(size) { NotificationData(it.toString(), "com.package${it % 50}", it.toLong(), 0) }
+        // half of the active notifications are new ones
+        val active = List(size) { ActiveNotification((it + size / 2).toString(), "com.package${(it + size / 2) % 50}") }
+
+        val reconciliation = reconcile(active, known)
+
+        assertEquals(active.subList(size / 2, size), reconciliation.added)
+        assertEquals(known.subList(0, size / 2), reconciliation.removed)
+    }
+
+    @Test
+    fun `Test same id in different packages is not matched`() {
+        val known = listOf(NotificationData("1", "com.a", 1, 0))
+        val active = listOf(ActiveNotification("1", "com.b"))
+
+        val reconciliation = reconcile(active, known)
+
+        assertEquals(active, reconciliation.added)
+        assertEquals(known, reconciliation.removed)
+    }
+
+    private fun reconcile(active: List<ActiveNotification>, known: List<NotificationData>) =
+            NotificationsReconciliation.reconcile(active, known,
+                    activeKey = { Pair(it.key, it.packageName) },
+                    knownKey = { Pair(it.id, it.packageName) })
+
+    private data class ActiveNotification(val key: String, val packageName: String)
+}
@@ -0,0 +1,109 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.data.CountingSharedPreferences
+import com.app.missednotificationsreminder.data.PreferenceChangeDispatcher
+import com.app.missednotificationsreminder.service.data.model.NotificationData
+import com.app.missednotificationsreminder.service.engine.ReminderEngine
+import com.app.missednotificationsreminder.service.engine.model.DeviceState
+import com.app.missednotificationsreminder.service.engine.model.ReminderCommand
+import com.app.missednotificationsreminder.service.engine.model.ReminderEvent
+import com.app.missednotificationsreminder.service.engine.model.RingerMode
+import com.tfcporciuncula.flow.FlowSharedPreferences
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+
+class ReminderConfigProviderTest {
+    private lateinit var sharedPreferences: CountingSharedPreferences
+    private lateinit var dispatcher: PreferenceChangeDispatcher
+    private lateinit var provider: ReminderConfigProvider
+
+    @Before
+    fun setUp() {
+        sharedPreferences = CountingSharedPreferences()
+        val preferences = FlowSharedPreferences(sharedPreferences)
+        dispatcher = PreferenceChangeDispatcher(sharedPreferences)
+        provider = ReminderConfigProvider(dispatcher,
+                preferences.getBoolean("reminderEnabled", true),
+                preferences.getInt("reminderInterval", 300),
+                preferences.getBoolean("limitReminderRepeats", false),
+                preferences.getInt("reminderRepeats", 10),
+                preferences.getBoolean("createDismissNotification", true),
+                preferences.getBoolean("createDismissNotificationImmediately", false),
+                preferences.getBoolean("forceWakeLock", false),
+                preferences.getBoolean("adaptiveWake", false),
+                preferences.getStringSet("selectedApplications", emptySet()),
+                preferences.getBoolean("ignorePersistentNotifications", true),
+                preferences.getBoolean("respectPhoneCalls", true),
+                preferences.getBoolean("respectRingerMode", true),
+                preferences.getBoolean("remindWhenScreenIsOn", true),
+                preferences.getBoolean("schedulerEnabled", false),
+                preferences.getBoolean("schedulerMode", true),
+                preferences.getInt("schedulerRangeBegin", 540),
+                preferences.getInt("schedulerRangeEnd", 1020),
+                preferences.getString("reminderRingtone", ""),
+                preferences.getBoolean("vibrate", false),
+                preferences.getString("vibrationPattern", "0,100"))
+    }
+
+    @Test
+    fun `Test service hot path does not touch shared preferences`() {
+        sharedPreferences.edit().putStringSet("selectedApplications", setOf("com.a")).apply()
+        val store = NotificationDataStore()
+        val commands = mutableListOf<ReminderCommand>()
+        // wired the same way as in the listener service
+        val engine = ReminderEngine(provider.config.value, DeviceState(RingerMode.NORMAL, false),
+                clock = { 0L },
+                hasEligibleNotifications = { store.hasEligibleNotifications },
+                commands = { commands += it })
+        with(provider.config.value) { store.updateEligibilityFilter(selectedApplications, ignorePersistentNotifications) }
+        engine.handle(ReminderEvent.Ready)
+        val reads = sharedPreferences.reads
+        repeat(1_000) {
+            val notification = NotificationData("$it", if (it % 2 == 0) "com.a" else "com.b", it.toLong(), 0)
+            store.put(notification)
+            engine.handle(ReminderEvent.NotificationsChanged(removed = false,
+                    monitoredPosted = provider.config.value.selectedApplications.contains(notification.packageName)))
+            engine.handle(ReminderEvent.Tick(screenOn = false, callActive = false))
+            engine.handle(ReminderEvent.ReminderCompleted)
+            store.remove(notification)
+            engine.handle(ReminderEvent.NotificationsChanged(removed = true, monitoredPosted = false))
+        }
+        assertEquals(reads, sharedPreferences.reads)
+        // only the notifications of the selected application are reminded about
+        assertEquals(500, commands.count { it is ReminderCommand.PlayReminder })
+    }
+
+    @Test
+    fun `Test only changed preference is read`() {
+        val initial = provider.config.value
+        var reads = sharedPreferences.reads
+        sharedPreferences.edit().putInt("reminderInterval", 60).apply()
+        val changed = provider.config.value
+        assertEquals(60, changed.reminderInterval)
+        assertTrue(changed.requiresRestart(initial))
+        assertFalse(changed.schedulerChanged(initial))
+        assertEquals(1, sharedPreferences.reads - reads)
+        assertEquals(1, dispatcher.dispatched)
+
+        reads = sharedPreferences.reads
+        sharedPreferences.edit().putString("unrelated", "value").apply()
+        assertSame(changed, provider.config.value)
+        assertEquals(reads, sharedPreferences.reads)
+        assertEquals(1, dispatcher.dispatched)
+    }
+
+    @Test
+    fun `Test ringtone and enabled changes do not require restart`() {
+        val initial = provider.config.value
+        sharedPreferences.edit()
+                .putString("reminderRingtone", "content://ringtone")
+                .putBoolean("reminderEnabled", false)
+                .apply()
+        val changed = provider.config.value
+        assertFalse(changed.reminderEnabled)
+        assertFalse(changed.requiresRestart(initial))
+        sharedPreferences.edit().putStringSet("selectedApplications", setOf("com.a")).apply()
+        assertTrue(provider.config.value.eligibilityChanged(changed))
+    }
+}
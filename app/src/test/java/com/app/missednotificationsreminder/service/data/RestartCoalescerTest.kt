@@ -0,0 +1,93 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.service.data.model.ReminderConfig
+import com.app.missednotificationsreminder.service.engine.ReminderEngine
+import com.app.missednotificationsreminder.service.engine.model.DeviceState
+import com.app.missednotificationsreminder.service.engine.model.ReminderCommand
+import com.app.missednotificationsreminder.service.engine.model.ReminderEvent.*
+import com.app.missednotificationsreminder.service.engine.model.RingerMode
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class RestartCoalescerTest {
+    @Test
+    fun `Test burst of config changes causes single restart`() = runBlockingTest {
+        val coalescer = RestartCoalescer()
+        val engine = ReminderEngine(config(300), DeviceState(RingerMode.NORMAL, false),
+                clock = { currentTime }, hasEligibleNotifications = { true },
+                commands = { if (it is ReminderCommand.RequestRestart) coalescer.request() })
+        engine.handle(Ready)
+        var restarts = 0
+        val restartsJob = coalescer.restarts(DELAY)
+                .onEach {
+                    restarts++
+                    engine.handle(Restart)
+                }
+                .launchIn(this)
+        // the user drags the interval slider
+        repeat(10) {
+            engine.handle(ConfigChanged(config(301 + it)))
+            advanceTimeBy(DELAY / 2)
+        }
+        advanceTimeBy(DELAY)
+        assertEquals(1, restarts)
+        assertEquals(10, coalescer.requested)
+        assertEquals(1, coalescer.performed)
+        assertEquals(9, coalescer.avoided)
+
+        // the separate change restarts again
+        engine.handle(ConfigChanged(config(600)))
+        advanceTimeBy(DELAY)
+        assertEquals(2, restarts)
+        assertEquals(9, coalescer.avoided)
+        restartsJob.cancel()
+    }
+
+    @Test
+    fun `Test restarts skipped while not allowed are not performed`() = runBlockingTest {
+        val coalescer = RestartCoalescer()
+        var allowed = false
+        var restarts = 0
+        val restartsJob = coalescer.restarts(DELAY) { allowed }
+                .onEach { restarts++ }
+                .launchIn(this)
+        coalescer.request()
+        advanceTimeBy(DELAY)
+        allowed = true
+        coalescer.request()
+        advanceTimeBy(DELAY)
+        assertEquals(1, restarts)
+        assertEquals(2, coalescer.requested)
+        assertEquals(1, coalescer.performed)
+        restartsJob.cancel()
+    }
+
+    companion object {
+        private const val DELAY = 500L
+
+        private fun config(reminderInterval: Int) = ReminderConfig(
+                reminderEnabled = true,
+                reminderInterval = reminderInterval,
+                limitReminderRepeats = false,
+                reminderRepeats = 10,
+                createDismissNotification = true,
+                createDismissNotificationImmediately = false,
+                forceWakeLock = false,
+                adaptiveWake = false,
+                selectedApplications = setOf("app"),
+                ignorePersistentNotifications = true,
+                respectPhoneCalls = true,
+                respectRingerMode = true,
+                remindWhenScreenIsOn = true,
+                schedulerEnabled = false,
+                schedulerWorkingPeriod = true,
+                schedulerRangeBegin = 540,
+                schedulerRangeEnd = 1020,
+                reminderRingtone = "ringtone",
+                vibrate = false,
+                vibrationWaveform = null)
+    }
+}
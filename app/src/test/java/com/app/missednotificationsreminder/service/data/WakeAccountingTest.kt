@@ -0,0 +1,62 @@
+package com.app.missednotificationsreminder.service.data
+
+import com.app.missednotificationsreminder.service.data.model.WakeStrategy
+import org.junit.Assert.*
+import org.junit.Test
+
+class WakeAccountingTest {
+    private val accounting = WakeAccounting()
+
+    @Test
+    fun `Test wake lock hold time includes the currently held lock`() {
+        accounting.wakeLockAcquired(1_000)
+        accounting.wakeLockReleased(3_000)
+        accounting.wakeLockAcquired(10_000)
+        // repeated acquisition of the held lock is ignored
+        accounting.wakeLockAcquired(11_000)
+        val snapshot = accounting.snapshot(15_000)
+        assertEquals(7_000, snapshot.wakeLockHeld)
+        assertEquals(2, snapshot.wakeLockAcquisitions)
+        accounting.wakeLockReleased(16_000)
+        accounting.wakeLockReleased(20_000)
+        assertEquals(8_000, accounting.snapshot(30_000).wakeLockHeld)
+    }
+
+    @Test
+    fun `Test drift is recorded per strategy`() {
+        accounting.scheduled(WakeStrategy.WAKE_LOCK, 1_000)
+        assertEquals(10L, accounting.fired(1_010))
+        accounting.scheduled(WakeStrategy.SYSTEM, 2_000)
+        assertEquals(0L, accounting.fired(1_990))
+        accounting.scheduled(WakeStrategy.SYSTEM, 3_000)
+        assertEquals(8_000L, accounting.fired(11_000))
+        // the cancelled and never scheduled ticks are not counted
+        accounting.scheduled(WakeStrategy.SYSTEM, 12_000)
+        accounting.cancelled()
+        assertNull(accounting.fired(13_000))
+
+        val strategies = accounting.snapshot(0).strategies
+        assertEquals(WakeAccounting.StrategySnapshot(1, 10, 10), strategies[WakeStrategy.WAKE_LOCK])
+        assertEquals(WakeAccounting.StrategySnapshot(2, 1_000, 8_000), strategies[WakeStrategy.SYSTEM])
+    }
+
+    @Test
+    fun `Test adaptive strategy follows the system drift`() {
+        assertEquals(WakeStrategy.WAKE_LOCK, accounting.adaptiveStrategy(WakeAccounting.DEFAULT_WAKE_LOCK_INTERVAL))
+        assertEquals(WakeStrategy.SYSTEM, accounting.adaptiveStrategy(WakeAccounting.DEFAULT_WAKE_LOCK_INTERVAL + 1))
+        // the late system ticks extend the wake lock interval
+        repeat(WakeAccounting.MIN_SAMPLES) {
+            accounting.scheduled(WakeStrategy.SYSTEM, 0)
+            accounting.fired(20_000)
+        }
+        assertEquals(200_000, accounting.wakeLockIntervalThreshold())
+        assertEquals(WakeStrategy.WAKE_LOCK, accounting.adaptiveStrategy(120_000))
+        assertEquals(WakeStrategy.SYSTEM, accounting.adaptiveStrategy(300_000))
+        // but never beyond the maximum
+        repeat(WakeAccounting.MIN_SAMPLES * 10) {
+            accounting.scheduled(WakeStrategy.SYSTEM, 0)
+            accounting.fired(600_000)
+        }
+        assertEquals(WakeAccounting.MAX_WAKE_LOCK_INTERVAL, accounting.wakeLockIntervalThreshold())
+    }
+}
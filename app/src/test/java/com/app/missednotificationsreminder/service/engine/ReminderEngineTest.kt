@@ -0,0 +1,201 @@
+package com.app.missednotificationsreminder.service.engine
+
+import com.app.missednotificationsreminder.service.data.model.ReminderConfig
+import com.app.missednotificationsreminder.service.engine.model.*
+import com.app.missednotificationsreminder.service.engine.model.ReminderCommand.*
+import com.app.missednotificationsreminder.service.engine.model.ReminderEvent.*
+import com.app.missednotificationsreminder.util.vibration.VibrationWaveform
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestCoroutineScope
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+class ReminderEngineTest {
+    private val commands = mutableListOf<ReminderCommand>()
+    private var eligible = true
+    private val engine = ReminderEngine(config(), DeviceState(RingerMode.NORMAL, false),
+            clock = { 0L }, hasEligibleNotifications = { eligible }, commands = { commands += it })
+
+    @Test
+    fun `Test session starts when ready and plays on tick`() {
+        engine.handle(Ready)
+        assertTrue(engine.active)
+        assertEquals(listOf(ScheduleTick(300_000, interval = true, firstInSession = true)), commands)
+        commands.clear()
+        engine.handle(Tick(screenOn = false, callActive = false))
+        assertEquals(listOf(PlayReminder(ReminderSound("ringtone", alarmStream = false, muted = false), null)), commands)
+        commands.clear()
+        engine.handle(ReminderCompleted)
+        assertEquals(listOf(
+                ReminderFinished(played = true, sessionReminder = true),
+                ShowDismissNotification(firstInSession = false, postponed = false),
+                ScheduleTick(300_000, interval = true, firstInSession = false)), commands)
+    }
+
+    @Test
+    fun `Test tick is skipped when the screen is on`() {
+        engine.handle(ConfigChanged(config().copy(remindWhenScreenIsOn = false)))
+        engine.handle(Ready)
+        commands.clear()
+        engine.handle(Tick(screenOn = true, callActive = false))
+        assertEquals(listOf(
+                ReminderFinished(played = false, sessionReminder = false),
+                ShowDismissNotification(firstInSession = false, postponed = false),
+                ScheduleTick(300_000, interval = true, firstInSession = false)), commands)
+    }
+
+    @Test
+    fun `Test session stops when repeats run out or notifications are removed`() {
+        engine.handle(ConfigChanged(config().copy(limitReminderRepeats = true, reminderRepeats = 1)))
+        engine.handle(Ready)
+        engine.handle(Tick(screenOn = false, callActive = false))
+        commands.clear()
+        engine.handle(ReminderCompleted)
+        assertFalse(engine.active)
+        assertEquals(listOf(ReminderFinished(played = true, sessionReminder = true), CancelTick, HideDismissNotification),
+                commands)
+
+        engine.handle(NotificationsChanged(removed = false, monitoredPosted = true))
+        assertTrue(engine.active)
+        commands.clear()
+        eligible = false
+        engine.handle(NotificationsChanged(removed = true, monitoredPosted = false))
+        assertFalse(engine.active)
+        assertEquals(listOf(CancelTick, HideDismissNotification), commands)
+    }
+
+    @Test
+    fun `Test ringer mode is respected`() {
+        engine.handle(ConfigChanged(config().copy(vibrate = true, vibrationWaveform = VibrationWaveform.parse("0,100"))))
+        engine.handle(DeviceStateChanged(DeviceState(RingerMode.SILENT, false)))
+        assertEquals(emptyList<ReminderCommand>(), commands)
+        engine.handle(Ready)
+        assertFalse(engine.active)
+
+        // the device state change restarts the reminder immediately
+        engine.handle(DeviceStateChanged(DeviceState(RingerMode.VIBRATE, false)))
+        assertTrue(engine.active)
+        assertTrue(commands.none { it is RequestRestart })
+        commands.clear()
+        engine.handle(Tick(screenOn = false, callActive = false))
+        assertEquals(listOf(PlayReminder(ReminderSound("ringtone", alarmStream = false, muted = true),
+                VibrationWaveform.parse("0,100"))), commands)
+    }
+
+    @Test
+    fun `Test settings changes request coalesced restart`() {
+        engine.handle(Ready)
+        commands.clear()
+        engine.handle(ConfigChanged(config().copy(reminderInterval = 60)))
+        assertEquals(listOf(RequestRestart("config")), commands)
+    }
+
+    @Test
+    fun `Test day of traffic replays in virtual time`() = runBlockingTest {
+        val day = TimeUnit.DAYS.toMillis(1)
+        val reminder = VirtualReminder(this, config().copy(limitReminderRepeats = true, reminderRepeats = 20))
+        val random = Random(42)
+        // a notification arrives every 10 minutes on average and is read within an hour
+        var time = 0L
+        while (true) {
+            time += random.nextLong(TimeUnit.MINUTES.toMillis(20))
+            if (time >= day) {
+                break
+            }
+            val read = time + random.nextLong(TimeUnit.HOURS.toMillis(1))
+            reminder.post(time)
+            reminder.read(read.coerceAtMost(day - 1))
+        }
+        advanceTimeBy(day)
+        reminder.engine.handle(Destroyed)
+
+        assertEquals(day, currentTime)
+        assertTrue(reminder.plays > 0)
+        assertEquals(0, reminder.notifications)
+        assertFalse(reminder.engine.active)
+    }
+
+    /**
+     * The reminder which executes the engine commands in the virtual time
+     */
+    private class VirtualReminder(private val scope: TestCoroutineScope, config: ReminderConfig) {
+        var notifications = 0
+        var plays = 0
+        private var tickJob: Job? = null
+        private var playJob: Job? = null
+
+        val engine = ReminderEngine(config, DeviceState(RingerMode.NORMAL, false),
+                clock = { scope.currentTime }, hasEligibleNotifications = { notifications > 0 }, commands = ::execute)
+                .apply { handle(Ready) }
+
+        fun post(time: Long) = at(time) {
+            notifications++
+            engine.handle(NotificationsChanged(removed = false, monitoredPosted = true))
+        }
+
+        fun read(time: Long) = at(time) {
+            notifications--
+            engine.handle(NotificationsChanged(removed = true, monitoredPosted = false))
+        }
+
+        private fun at(time: Long, block: () -> Unit) {
+            scope.launch {
+                delay(time - scope.currentTime)
+                block()
+            }
+        }
+
+        private fun execute(command: ReminderCommand) {
+            when (command) {
+                is ScheduleTick -> tickJob = scope.launch {
+                    delay(command.offset)
+                    engine.handle(Tick(screenOn = false, callActive = false))
+                }
+                CancelTick -> {
+                    tickJob?.cancel()
+                    playJob?.cancel()
+                }
+                is PlayReminder -> {
+                    assertTrue("reminder without notifications", notifications > 0)
+                    plays++
+                    playJob = scope.launch {
+                        delay(SOUND_DURATION)
+                        engine.handle(ReminderCompleted)
+                    }
+                }
+                else -> Unit
+            }
+        }
+    }
+
+    companion object {
+        private const val SOUND_DURATION = 3_000L
+
+        private fun config() = ReminderConfig(
+                reminderEnabled = true,
+                reminderInterval = 300,
+                limitReminderRepeats = false,
+                reminderRepeats = 10,
+                createDismissNotification = true,
+                createDismissNotificationImmediately = false,
+                forceWakeLock = false,
+                adaptiveWake = false,
+                selectedApplications = setOf("app"),
+                ignorePersistentNotifications = true,
+                respectPhoneCalls = true,
+                respectRingerMode = true,
+                remindWhenScreenIsOn = true,
+                schedulerEnabled = false,
+                schedulerWorkingPeriod = true,
+                schedulerRangeBegin = 540,
+                schedulerRangeEnd = 1020,
+                reminderRingtone = "ringtone",
+                vibrate = false,
+                vibrationWaveform = null)
+    }
+}
@@ -0,0 +1,69 @@
+package com.app.missednotificationsreminder.service.scheduler
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+
+class ReminderCheckpointTest {
+    @Test
+    fun `Test deadline survives write and read`() {
+        val directory = Files.createTempDirectory("checkpoint").toFile()
+        try {
+            val bootTime = 1_600_000_000_000
+            val checkpoint = ReminderCheckpoint(File(directory, "checkpoint"))
+            assertNull(checkpoint.read(bootTime))
+            checkpoint.write(600_000, bootTime)
+            checkpoint.write(900_000, bootTime)
+            // the fresh instance reads what the previous process has written
+            assertEquals(900_000L, ReminderCheckpoint(File(directory, "checkpoint")).read(bootTime + 1_000))
+            // no temporary files are left
+            assertEquals(listOf("checkpoint"), directory.list()!!.toList())
+            checkpoint.clear()
+            assertNull(checkpoint.read(bootTime))
+        } finally {
+            directory.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun `Test foreign files are not read`() {
+        val directory = Files.createTempDirectory("checkpoint").toFile()
+        try {
+            val file = File(directory, "checkpoint")
+            file.writeText("not a checkpoint")
+            assertNull(ReminderCheckpoint(file).read(0))
+            file.writeBytes(ByteArray(20))
+            assertNull(ReminderCheckpoint(file).read(0))
+        } finally {
+            directory.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun `Test checkpoint of the previous boot is not read`() {
+        val directory = Files.createTempDirectory("checkpoint").toFile()
+        try {
+            val bootTime = 1_600_000_000_000
+            val checkpoint = ReminderCheckpoint(File(directory, "checkpoint"))
+            checkpoint.write(600_000, bootTime)
+            assertNull(checkpoint.read(bootTime + 3_600_000))
+        } finally {
+            directory.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun `Test remaining time of the interrupted interval`() {
+        val interval = 300_000L
+        val minimum = 5_000L
+        assertEquals(120_000L, ReminderCheckpoint.remaining(1_120_000, 1_000_000, interval, minimum))
+        assertEquals(interval, ReminderCheckpoint.remaining(1_300_000, 1_000_000, interval, minimum))
+        // the deadline which is due or recently missed fires after the minimum interval
+        assertEquals(minimum, ReminderCheckpoint.remaining(1_001_000, 1_000_000, interval, minimum))
+        assertEquals(minimum, ReminderCheckpoint.remaining(900_000, 1_000_000, interval, minimum))
+        // the deadline of the longer interval or missed long ago is not continued
+        assertNull(ReminderCheckpoint.remaining(1_300_001, 1_000_000, interval, minimum))
+        assertNull(ReminderCheckpoint.remaining(700_000, 1_000_000, interval, minimum))
+    }
+}
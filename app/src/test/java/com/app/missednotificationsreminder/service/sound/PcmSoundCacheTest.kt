@@ -0,0 +1,56 @@
+package com.app.missednotificationsreminder.service.sound
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+import kotlin.random.Random
+
+class PcmSoundCacheTest {
+    @Test
+    fun `Test sound is cached by source`() = withDirectory { directory ->
+        val cache = PcmSoundCache(directory)
+        val sound = sound(1)
+        cache.put(SOURCE, sound)
+        assertArrayEquals(sound.data, cache.get(SOURCE)!!.data)
+        assertNull(cache.get("content://media/internal/audio/media/43#1000"))
+    }
+
+    @Test
+    fun `Test changed source invalidates cached sound`() = withDirectory { directory ->
+        val cache = PcmSoundCache(directory)
+        cache.put(SOURCE, sound(1))
+        // the same URI with the replaced file
+        val replaced = "content://media/internal/audio/media/42#2000"
+        assertNull(cache.get(replaced))
+        val sound = sound(2)
+        cache.put(replaced, sound)
+        assertArrayEquals(sound.data, cache.get(replaced)!!.data)
+        // only the latest sound is kept
+        assertNull(cache.get(SOURCE))
+        assertEquals(1, directory.list()!!.size)
+    }
+
+    @Test
+    fun `Test corrupted sound is not read`() = withDirectory { directory ->
+        val cache = PcmSoundCache(directory)
+        cache.put(SOURCE, sound(1))
+        directory.listFiles()!!.single().writeBytes(ByteArray(64) { 1 })
+        assertNull(cache.get(SOURCE))
+    }
+
+    private fun sound(seed: Int) = PcmSound(8_000, 1, Random(seed).nextBytes(1_600))
+
+    private fun withDirectory(block: (File) -> Unit) {
+        val directory = Files.createTempDirectory("sound").toFile()
+        try {
+            block(directory)
+        } finally {
+            directory.deleteRecursively()
+        }
+    }
+
+    companion object {
+        private const val SOURCE = "content://media/internal/audio/media/42#1000"
+    }
+}
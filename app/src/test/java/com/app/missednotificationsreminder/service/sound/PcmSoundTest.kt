@@ -0,0 +1,49 @@
+package com.app.missednotificationsreminder.service.sound
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+import kotlin.random.Random
+
+class PcmSoundTest {
+    @Test
+    fun `Test sound survives write and read`() {
+        val directory = Files.createTempDirectory("sound").toFile()
+        try {
+            val sound = PcmSound(44_100, 2, Random(1).nextBytes(44_100 * 4))
+            val file = File(directory, "sound")
+            sound.writeTo(file)
+            val read = PcmSound.readFrom(file)!!
+            assertEquals(44_100, read.sampleRate)
+            assertEquals(2, read.channelCount)
+            assertArrayEquals(sound.data, read.data)
+            assertEquals(1000, read.duration)
+            assertEquals(44_100, read.frames)
+            // no temporary files are left
+            assertEquals(listOf("sound"), directory.list()!!.toList())
+        } finally {
+            directory.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun `Test truncated and foreign files are not read`() {
+        val directory = Files.createTempDirectory("sound").toFile()
+        try {
+            val file = File(directory, "sound")
+            PcmSound(8_000, 1, ByteArray(1_000)).writeTo(file)
+            file.writeBytes(file.readBytes().copyOf(file.length().toInt() - 1))
+            assertNull(PcmSound.readFrom(file))
+            file.writeText("not a sound file")
+            assertNull(PcmSound.readFrom(file))
+        } finally {
+            directory.deleteRecursively()
+        }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun `Test incomplete frame is rejected`() {
+        PcmSound(8_000, 2, ByteArray(6))
+    }
+}
@@ -0,0 +1,104 @@
+package com.app.missednotificationsreminder.settings.applicationselection
+
+import android.net.Uri
+import androidx.recyclerview.widget.ListUpdateCallback
+import com.app.missednotificationsreminder.service.data.model.NotificationCountsUpdate
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito.mock
+
+class ApplicationItemsTest {
+    private val iconUri = mock(Uri::class.java)
+    private val callback = RecordingCallback()
+    private val items = ApplicationItems(callback)
+
+    @Before
+    fun setUp() {
+        items.setData(listOf("e", "d", "c", "b", "a").map { item(it) })
+        callback.events.clear()
+    }
+
+    @Test
+    fun `Test count update is dispatched once for affected packages`() {
+        items.updateNotificationCounts(NotificationCountsUpdate(mapOf("a" to 1, "b" to 1), full = false))
+        // both changes are merged into the single dispatch
+        assertEquals(listOf("changed 0 2"), callback.events)
+        assertEquals(listOf("a" to 1, "b" to 1, "c" to 0, "d" to 0, "e" to 0), contents())
+
+        callback.events.clear()
+        items.updateNotificationCounts(NotificationCountsUpdate(mapOf("a" to 1, "e" to 0), full = false))
+        // nothing changed
+        assertEquals(emptyList<String>(), callback.events)
+    }
+
+    @Test
+    fun `Test updates find items reordered by previous updates`() {
+        items.updateNotificationCounts(NotificationCountsUpdate(mapOf("d" to 3), full = false))
+        assertEquals(listOf("changed 3 1", "moved 3 0"), callback.events)
+        items.updateNotificationCounts(NotificationCountsUpdate(mapOf("d" to 1, "e" to 2), full = false))
+        assertEquals(listOf("e" to 2, "d" to 1, "a" to 0, "b" to 0, "c" to 0), contents())
+        // the checked state change keeps the latest active notifications number
+        items.update(items["d"]!!.copy(checked = true))
+        items.update(items["b"]!!.copy(checked = true))
+        assertEquals(listOf("e" to 2, "d" to 1, "b" to 0, "a" to 0, "c" to 0), contents())
+        assertEquals(listOf(true, true), listOf(items["d"]!!.checked, items["b"]!!.checked))
+    }
+
+    @Test
+    fun `Test update finds item among items with equal order`() {
+        items.setData(listOf("p1", "p2", "p3").map { item(it, name = "Same") })
+        callback.events.clear()
+        val updated = items["p2"]!!.copy(iconUri = mock(Uri::class.java))
+        items.update(updated)
+        assertEquals(1, callback.events.size)
+        val position = callback.events.single().removePrefix("changed ").substringBefore(' ').toInt()
+        assertEquals(updated, items[position])
+        assertEquals(updated, items["p2"])
+        assertEquals(3, items.size)
+    }
+
+    @Test
+    fun `Test data set later keeps the known counts`() {
+        items.updateNotificationCounts(NotificationCountsUpdate(mapOf("b" to 2), full = true))
+        // the data prepared before the update
+        items.setData(listOf("a", "b", "c", "f").map { item(it) })
+        assertEquals(listOf("b" to 2, "a" to 0, "c" to 0, "f" to 0), contents())
+
+        // packages absent in the full update have no active notifications
+        items.updateNotificationCounts(NotificationCountsUpdate(mapOf("f" to 1), full = true))
+        assertEquals(listOf("f" to 1, "a" to 0, "b" to 0, "c" to 0), contents())
+        items.updateNotificationCounts(NotificationCountsUpdate(mapOf("a" to 3), full = false))
+        items.setData(listOf("a", "b", "c", "f").map { item(it) })
+        assertEquals(listOf("a" to 3, "f" to 1, "b" to 0, "c" to 0), contents())
+    }
+
+    private fun item(packageName: String, name: String = packageName) =
+            ApplicationItemViewState(checked = false, applicationName = name, packageName = packageName,
+                    iconUri = iconUri, activeNotifications = 0)
+
+    private fun contents() = (0 until items.size).map { items[it].packageName to items[it].activeNotifications }
+
+    /**
+     * The callback which records the dispatched changes
+     */
+    private class RecordingCallback : ListUpdateCallback {
+        val events = ArrayList<String>()
+
+        override fun onInserted(position: Int, count: Int) {
+            events += "inserted $position $count"
+        }
+
+        override fun onRemoved(position: Int, count: Int) {
+            events += "removed $position $count"
+        }
+
+        override fun onMoved(fromPosition: Int, toPosition: Int) {
+            events += "moved $fromPosition $toPosition"
+        }
+
+        override fun onChanged(position: Int, count: Int, payload: Any?) {
+            events += "changed $position $count"
+        }
+    }
+}
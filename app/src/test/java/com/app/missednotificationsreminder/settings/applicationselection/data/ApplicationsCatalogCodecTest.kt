@@ -0,0 +1,38 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data
+
+import com.app.missednotificationsreminder.settings.applicationselection.data.model.InstalledApplication
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+class ApplicationsCatalogCodecTest {
+    @Test
+    fun `Test catalog content is restored`() {
+        val content = ApplicationsCatalogCodec.Content("en_US", (0 until 500).map {
+            InstalledApplication("com.package$it", "Application ✓ $it", it * 1000L, System.currentTimeMillis() - it)
+        })
+        val output = ByteArrayOutputStream()
+        ApplicationsCatalogCodec.write(output, content)
+        assertEquals(content, ApplicationsCatalogCodec.read(ByteArrayInputStream(output.toByteArray())))
+    }
+
+    @Test
+    fun `Test unsupported format version is ignored`() {
+        val output = ByteArrayOutputStream()
+        DataOutputStream(output).writeInt(Int.MAX_VALUE)
+        assertNull(ApplicationsCatalogCodec.read(ByteArrayInputStream(output.toByteArray())))
+    }
+
+    @Test(expected = IOException::class)
+    fun `Test truncated content fails`() {
+        val output = ByteArrayOutputStream()
+        ApplicationsCatalogCodec.write(output, ApplicationsCatalogCodec.Content("en_US",
+                listOf(InstalledApplication("com.package", "Application", 1, 1))))
+        val data = output.toByteArray()
+        ApplicationsCatalogCodec.read(ByteArrayInputStream(data.copyOf(data.size - 4)))
+    }
+}
@@ -0,0 +1,68 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data.model.util
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class ApplicationIconDiskIndexTest {
+    @Test
+    fun `Test previous package versions are evicted`() {
+        val index = ApplicationIconDiskIndex(1_000)
+        val first = name("com.a", "1.100", 48)
+        val second = name("com.a", "1.100", 96)
+        val other = name("com.b", "1.100", 48)
+        assertTrue(index.add(first, 10).isEmpty())
+        assertTrue(index.add(second, 20).isEmpty())
+        assertTrue(index.add(other, 30).isEmpty())
+
+        val updated = name("com.a", "2.200", 48)
+        assertEquals(listOf(first, second), index.add(updated, 40))
+        assertFalse(index.touch(first))
+        assertTrue(index.touch(updated))
+        assertTrue(index.touch(other))
+        assertEquals(70, index.size)
+        assertEquals(2, index.count)
+    }
+
+    @Test
+    fun `Test least recently used entries are evicted over the size limit`() {
+        val index = ApplicationIconDiskIndex(100)
+        val first = name("com.a", "1.1", 48)
+        val second = name("com.b", "1.1", 48)
+        val third = name("com.c", "1.1", 48)
+        index.add(first, 40)
+        index.add(second, 40)
+        // first is used recently so the second one is evicted
+        assertTrue(index.touch(first))
+        assertEquals(listOf(second), index.add(third, 40))
+        assertEquals(80, index.size)
+
+        // the replaced entry is not counted twice
+        assertTrue(index.add(third, 50).isEmpty())
+        assertEquals(90, index.size)
+    }
+
+    @Test
+    fun `Test entry larger than the limit is kept alone`() {
+        val index = ApplicationIconDiskIndex(100)
+        val small = name("com.a", "1.1", 48)
+        val large = name("com.b", "1.1", 480)
+        index.add(small, 40)
+        assertEquals(listOf(small), index.add(large, 200))
+        assertTrue(index.touch(large))
+        assertEquals(200, index.size)
+
+        index.remove(large)
+        assertEquals(0, index.size)
+        assertEquals(0, index.count)
+    }
+
+    @Test
+    fun `Test unknown files are evicted`() {
+        val index = ApplicationIconDiskIndex(100)
+        assertEquals(listOf("-garbage.png"), index.add("-garbage.png", 10))
+        assertEquals(0, index.size)
+    }
+
+    private fun name(packageName: String, version: String, size: Int) =
+            ApplicationIconDiskIndex.name(packageName, version, size, size, ".png")
+}
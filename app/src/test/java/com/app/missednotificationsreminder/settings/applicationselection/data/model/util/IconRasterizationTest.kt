@@ -0,0 +1,34 @@
+package com.app.missednotificationsreminder.settings.applicationselection.data.model.util
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class IconRasterizationTest {
+    @Test
+    fun `Test icon is downsampled to the target size keeping aspect ratio`() {
+        assertEquals(IconRasterization.Size(120, 120), IconRasterization.renderSize(192, 192, 120, 120))
+        assertEquals(IconRasterization.Size(120, 60), IconRasterization.renderSize(192, 96, 120, 120))
+        assertEquals(IconRasterization.Size(60, 120), IconRasterization.renderSize(96, 192, 0, 120))
+    }
+
+    @Test
+    fun `Test icon is never upscaled`() {
+        assertEquals(IconRasterization.Size(48, 48), IconRasterization.renderSize(48, 48, 120, 120))
+        assertEquals(IconRasterization.Size(192, 192), IconRasterization.renderSize(192, 192, 0, 0))
+    }
+
+    @Test
+    fun `Test icon without intrinsic size fills the target`() {
+        assertEquals(IconRasterization.Size(120, 80), IconRasterization.renderSize(-1, -1, 120, 80))
+        assertEquals(IconRasterization.Size(80, 80), IconRasterization.renderSize(-1, -1, 0, 80))
+        assertEquals(IconRasterization.Size(1, 1), IconRasterization.renderSize(-1, -1, 0, 0))
+    }
+
+    @Test
+    fun `Test opacity check`() {
+        val pixels = intArrayOf(0xFF000000.toInt(), 0xFFFFFFFF.toInt(), 0x80FFFFFF.toInt())
+        assertTrue(IconRasterization.isOpaque(pixels, 2))
+        assertFalse(IconRasterization.isOpaque(pixels, 3))
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.app.missednotificationsreminder.util.coroutines
+
+import kotlinx.coroutines.*
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CopyOnWriteArrayList
+
+class BatchingEventsQueueTest {
+    @Test
+    fun `Test events burst is coalesced into a single batch`() = runBlocking {
+        val queue = BatchingEventsQueue<Int>(200)
+        val batches = CopyOnWriteArrayList<List<Int>>()
+        val job = queue.launchIn(this) { batches.add(it) }
+        repeat(50) { queue.submit(it) }
+        delay(500)
+        queue.submit(50)
+        queue.close()
+        job.join()
+        assertEquals(listOf((0 until 50).toList(), listOf(50)), batches)
+    }
+
+    @Test
+    fun `Test events order is preserved across batches for concurrent senders`() = runBlocking {
+        val queue = BatchingEventsQueue<Pair<Int, Int>>(10, maxBatchSize = 16)
+        val received = CopyOnWriteArrayList<Pair<Int, Int>>()
+        val job = queue.launchIn(this) { batch ->
+            assertTrue(batch.size <= 16)
+            // slow handler should not break the order
+            delay(1)
+            received.addAll(batch)
+        }
+        val senders = 4
+        val eventsPerSender = 500
+        withContext(Dispatchers.Default) {
+            repeat(senders) { sender ->
+                launch {
+                    repeat(eventsPerSender) { queue.submit(sender to it) }
+                }
+            }
+        }
+        queue.close()
+        job.join()
+        assertEquals(senders * eventsPerSender, received.size)
+        for (sender in 0 until senders) {
+            assertEquals((0 until eventsPerSender).toList(), received.filter { it.first == sender }.map { it.second })
+        }
+    }
+
+    @Test
+    fun `Test handler receives batch copy`() = runBlocking {
+        val queue = BatchingEventsQueue<Int>(50)
+        val batches = mutableListOf<List<Int>>()
+        val job = queue.launchIn(this) { batches.add(it) }
+        queue.submit(1)
+        delay(200)
+        queue.submit(2)
+        queue.close()
+        job.join()
+        assertEquals(listOf(listOf(1), listOf(2)), batches)
+    }
+
+    @Test
+    fun `Test batch window starts with the first event`() = runBlockingTest {
+        val queue = BatchingEventsQueue<Int>(200)
+        val batches = mutableListOf<Pair<Long, List<Int>>>()
+        val job = queue.launchIn(this) { batches.add(currentTime to it) }
+        // nothing is scheduled while the queue is idle
+        assertEquals(0, advanceUntilIdle())
+        advanceTimeBy(1_100)
+        queue.submit(1)
+        advanceTimeBy(150)
+        queue.submit(2)
+        advanceTimeBy(100)
+        assertEquals(listOf(1_300L to listOf(1, 2)), batches)
+        queue.close()
+        job.join()
+    }
+}
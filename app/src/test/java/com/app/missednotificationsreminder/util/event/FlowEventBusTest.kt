@@ -0,0 +1,173 @@
+package com.app.missednotificationsreminder.util.event
+
+import kotlinx.coroutines.*
+import kotlinx.coroutines.flow.*
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class FlowEventBusTest {
+    @Test
+    fun `Test control events are not lost with concurrent senders`() = runBlocking {
+        val bus = FlowEventBus(defaultCapacity = 4)
+        val senders = 8
+        val eventsPerSender = 1_000
+        val subscribers = (0 until 3).map {
+            async(start = CoroutineStart.UNDISPATCHED) {
+                bus.toFlow<ControlEvent>()
+                        // slow subscriber
+                        .onEach { if (it.index % 100 == 0) delay(1) }
+                        .take(senders * eventsPerSender)
+                        .toList()
+            }
+        }
+        withContext(Dispatchers.Default) {
+            repeat(senders) { sender ->
+                launch {
+                    repeat(eventsPerSender) { bus.emit(ControlEvent(sender, it)) }
+                }
+            }
+        }
+        for (subscriber in subscribers) {
+            val received = subscriber.await()
+            for (sender in 0 until senders) {
+                assertEquals((0 until eventsPerSender).toList(), received.filter { it.sender == sender }.map { it.index })
+            }
+        }
+        assertEquals(0, bus.droppedCount)
+        assertEquals(3L * senders * eventsPerSender, bus.deliveredCount(ControlEvent::class.java))
+    }
+
+    @Test
+    fun `Test subscribers receive only events of the requested type`() = runBlocking {
+        val bus = FlowEventBus()
+        val controlEvents = async(start = CoroutineStart.UNDISPATCHED) { bus.toFlow<ControlEvent>().take(2).toList() }
+        val enumEvents = async(start = CoroutineStart.UNDISPATCHED) { bus.toFlow<EnumEvent>().take(2).toList() }
+        bus.emit(ControlEvent(0, 0))
+        bus.emit(EnumEvent.FIRST)
+        bus.emit(StateEvent(0))
+        bus.emit(EnumEvent.SECOND)
+        bus.emit(ControlEvent(0, 1))
+        assertEquals(listOf(ControlEvent(0, 0), ControlEvent(0, 1)), controlEvents.await())
+        assertEquals(listOf(EnumEvent.FIRST, EnumEvent.SECOND), enumEvents.await())
+    }
+
+    @Test
+    fun `Test emit suspends when buffer is full`() = runBlocking {
+        val bus = FlowEventBus(defaultCapacity = 2)
+        val gate = CompletableDeferred<Unit>()
+        val received = async(start = CoroutineStart.UNDISPATCHED) {
+            bus.toFlow<ControlEvent>()
+                    .onEach { gate.await() }
+                    .take(5)
+                    .toList()
+        }
+        bus.emit(ControlEvent(0, 0))
+        // let the subscriber take the first event and block
+        yield()
+        bus.emit(ControlEvent(0, 1))
+        bus.emit(ControlEvent(0, 2))
+        val blocked = launch(start = CoroutineStart.UNDISPATCHED) {
+            bus.emit(ControlEvent(0, 3))
+            bus.emit(ControlEvent(0, 4))
+        }
+        yield()
+        assertTrue(blocked.isActive)
+        gate.complete(Unit)
+        blocked.join()
+        assertEquals(listOf(0, 1, 2, 3, 4), received.await().map { it.index })
+        assertEquals(0, bus.droppedCount)
+    }
+
+    @Test
+    fun `Test drop oldest topic counts events lost with concurrent senders`() = runBlocking {
+        val bus = FlowEventBus(defaultCapacity = 4, defaultPolicy = FlowEventBus.OverflowPolicy.DROP_OLDEST)
+        val senders = 4
+        val eventsPerSender = 1_000
+        val subscriber = async(Dispatchers.Default, start = CoroutineStart.UNDISPATCHED) {
+            bus.toFlow<ControlEvent>()
+                    // slow subscriber
+                    .onEach { if (it.index % 10 == 0) delay(1) }
+                    .takeWhile { it.sender >= 0 }
+                    .toList()
+        }
+        withContext(Dispatchers.Default) {
+            repeat(senders) { sender ->
+                launch {
+                    repeat(eventsPerSender) { bus.emit(ControlEvent(sender, it)) }
+                }
+            }
+        }
+        // the last event is never dropped
+        bus.emit(ControlEvent(-1, 0))
+        val received = subscriber.await()
+        for (sender in 0 until senders) {
+            val indexes = received.filter { it.sender == sender }.map { it.index }
+            assertEquals(indexes.sorted(), indexes)
+        }
+        assertEquals(senders * eventsPerSender + 1L, received.size + 1 + bus.droppedCount)
+    }
+
+    @Test
+    fun `Test conflated topic delivers only latest event while suspending topic loses nothing`() = runBlocking {
+        val bus = FlowEventBus(defaultCapacity = 4,
+                policies = mapOf(StateEvent::class.java to FlowEventBus.OverflowPolicy.CONFLATE))
+        val gate = CompletableDeferred<Unit>()
+        val states = async(start = CoroutineStart.UNDISPATCHED) {
+            val received = ArrayList<StateEvent>()
+            bus.toFlow<StateEvent>()
+                    // slow subscriber
+                    .onEach { gate.await() }
+                    .onEach { received.add(it) }
+                    .first { it.value == 99 }
+            received
+        }
+        val controls = async(start = CoroutineStart.UNDISPATCHED) {
+            bus.toFlow<ControlEvent>()
+                    // slow subscriber
+                    .onEach { gate.await() }
+                    .take(100)
+                    .toList()
+        }
+        bus.emit(StateEvent(0))
+        bus.emit(ControlEvent(0, 0))
+        // let the subscribers take the first events and block
+        yield()
+        val blocked = launch(start = CoroutineStart.UNDISPATCHED) {
+            for (index in 1 until 100) {
+                bus.emit(ControlEvent(0, index))
+            }
+        }
+        // the conflated emission never suspends
+        for (value in 1 until 100) {
+            bus.emit(StateEvent(value))
+        }
+        assertTrue(blocked.isActive)
+        gate.complete(Unit)
+        blocked.join()
+        assertEquals(listOf(0, 99), states.await().map { it.value })
+        assertEquals(98, bus.droppedCount(StateEvent::class.java))
+        assertEquals((0 until 100).toList(), controls.await().map { it.index })
+        assertEquals(0, bus.droppedCount(ControlEvent::class.java))
+    }
+
+    @Test
+    fun `Test events sent from subscription action are received`() = runBlocking {
+        val bus = FlowEventBus()
+        val received = bus.toFlow<ControlEvent> { bus.emit(ControlEvent(0, 0)) }
+                .take(1)
+                .toList()
+        assertEquals(listOf(ControlEvent(0, 0)), received)
+    }
+
+    private data class ControlEvent(val sender: Int, val index: Int) : Event
+
+    private data class StateEvent(val value: Int) : Event
+
+    private enum class EnumEvent : Event {
+        FIRST,
+        SECOND {
+            override fun toString() = "second"
+        }
+    }
+}
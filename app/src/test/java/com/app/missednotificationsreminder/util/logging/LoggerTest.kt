@@ -0,0 +1,84 @@
+package com.app.missednotificationsreminder.util.logging
+
+import android.util.Log
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import timber.log.Timber
+import java.lang.management.ManagementFactory
+
+class LoggerTest {
+    private val logged = mutableListOf<Pair<String?, String>>()
+
+    private val tree = object : Timber.Tree() {
+        override fun log(priority: Int, tag: String?, message: String, t: Throwable?) {
+            logged.add(tag to message)
+        }
+    }
+
+    @Before
+    fun setUp() {
+        Logger.configure(Log.VERBOSE)
+        Timber.plant(tree)
+    }
+
+    @After
+    fun tearDown() {
+        Timber.uproot(tree)
+    }
+
+    @Test
+    fun `Test trees receive caller class tag`() {
+        Logger.d { "untagged" }
+        Logger.w(tag = "Custom") { "tagged 100%" }
+        assertEquals(listOf("LoggerTest" to "untagged", "Custom" to "tagged 100%"), logged)
+    }
+
+    @Test
+    fun `Test messages below minimum level are not evaluated`() {
+        Logger.configure(Log.WARN)
+        var evaluated = 0
+        Logger.d { "debug ${++evaluated}" }
+        Logger.i { "info ${++evaluated}" }
+        assertEquals(0, evaluated)
+        Logger.w { "warn ${++evaluated}" }
+        Logger.e { "error ${++evaluated}" }
+        assertEquals(2, evaluated)
+    }
+
+    @Test
+    fun `Test tag level overrides minimum level`() {
+        Logger.configure(Log.WARN, mapOf("Verbose" to Log.VERBOSE, "Silent" to Log.ASSERT))
+        assertTrue(Logger.isLoggable(Log.DEBUG, "Verbose"))
+        assertFalse(Logger.isLoggable(Log.DEBUG, "Other"))
+        assertFalse(Logger.isLoggable(Log.DEBUG))
+        assertTrue(Logger.isLoggable(Log.WARN))
+        assertFalse(Logger.isLoggable(Log.ERROR, "Silent"))
+    }
+
+    @Test
+    fun `Test gated calls do not allocate`() {
+        Logger.configure(Log.WARN, mapOf("Verbose" to Log.VERBOSE))
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val thread = Thread.currentThread().id
+        val value = Any()
+        // warm up so the class loading and compilation are not counted
+        repeat(CALLS) { gatedCalls(it, value) }
+        val before = threads.getThreadAllocatedBytes(thread)
+        repeat(CALLS) { gatedCalls(it, value) }
+        val allocated = threads.getThreadAllocatedBytes(thread) - before
+        // allow the fixed cost of the measurement itself
+        assertTrue("allocated $allocated bytes for $CALLS calls", allocated < 1024)
+    }
+
+    private fun gatedCalls(index: Int, value: Any) {
+        Logger.v { "verbose $index $value" }
+        Logger.d(tag = "Other") { "debug $index $value" }
+        Logger.i { "info ${index.toLong() * 2} ${value.hashCode()}" }
+    }
+
+    companion object {
+        private const val CALLS = 100_000
+    }
+}
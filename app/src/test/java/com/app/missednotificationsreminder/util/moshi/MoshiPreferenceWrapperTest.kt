@@ -0,0 +1,103 @@
+package com.app.missednotificationsreminder.util.moshi
+
+import com.app.missednotificationsreminder.data.CountingSharedPreferences
+import com.app.missednotificationsreminder.data.PreferenceChangeDispatcher
+import com.squareup.moshi.JsonAdapter
+import com.squareup.moshi.JsonReader
+import com.squareup.moshi.JsonWriter
+import com.squareup.moshi.Moshi
+import com.squareup.moshi.Types
+import com.tfcporciuncula.flow.FlowSharedPreferences
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+
+class MoshiPreferenceWrapperTest {
+    private lateinit var sharedPreferences: CountingSharedPreferences
+    private lateinit var adapter: CountingAdapter<List<String>>
+
+    @Before
+    fun setUp() {
+        sharedPreferences = CountingSharedPreferences()
+        adapter = CountingAdapter(Moshi.Builder().build()
+                .adapter(Types.newParameterizedType(List::class.java, String::class.java)))
+        sharedPreferences.edit().putString(KEY, adapter.toJson(listOf("a", "b"))).apply()
+    }
+
+    @Test
+    fun `Test repeated reads decode once`() {
+        val preference = wrapper()
+        repeat(1_000) { assertEquals(listOf("a", "b"), preference.get()) }
+        assertEquals(1, adapter.decodes)
+    }
+
+    @Test
+    fun `Test own key change invalidates decoded value`() {
+        val preference = wrapper()
+        assertEquals(listOf("a", "b"), preference.get())
+        sharedPreferences.edit().putString("other", "value").apply()
+        assertEquals(listOf("a", "b"), preference.get())
+        assertEquals(1, adapter.decodes)
+
+        sharedPreferences.edit().putString(KEY, adapter.toJson(listOf("c"))).apply()
+        assertEquals(listOf("c"), preference.get())
+        assertEquals(listOf("c"), preference.get())
+        assertEquals(2, adapter.decodes)
+    }
+
+    @Test
+    fun `Test sets are written immediately and keep decoded value`() {
+        val preference = wrapper()
+        val writes = sharedPreferences.writes
+        preference.set(preference.get() + "c")
+        assertEquals(writes + 1, sharedPreferences.writes)
+        assertEquals(listOf("a", "b", "c"), adapter.fromJson(sharedPreferences.getString(KEY, null)!!))
+        val decodes = adapter.decodes
+        // the change notification of the own write doesn't invalidate the decoded value
+        assertEquals(listOf("a", "b", "c"), preference.get())
+        assertEquals(decodes, adapter.decodes)
+
+        sharedPreferences.edit().putString(KEY, adapter.toJson(listOf("d"))).apply()
+        assertEquals(listOf("d"), preference.get())
+        assertEquals(decodes + 1, adapter.decodes)
+    }
+
+    @Test
+    fun `Test foreign write restoring own value invalidates decoded value`() {
+        val preference = wrapper()
+        preference.set(listOf("w"))
+        // the foreign write is decoded and cached
+        sharedPreferences.edit().putString(KEY, adapter.toJson(listOf("x"))).apply()
+        assertEquals(listOf("x"), preference.get())
+        // the foreign write restores the JSON written by the preference
+        sharedPreferences.edit().putString(KEY, adapter.toJson(listOf("w"))).apply()
+        assertEquals(listOf("w"), preference.get())
+    }
+
+    private fun wrapper() = MoshiPreferenceWrapper(
+            FlowSharedPreferences(sharedPreferences),
+            KEY,
+            emptyList(),
+            adapter,
+            PreferenceChangeDispatcher(sharedPreferences))
+
+    /**
+     * The adapter which counts the decoded values
+     */
+    private class CountingAdapter<T>(private val delegate: JsonAdapter<T>) : JsonAdapter<T>() {
+        var decodes = 0
+
+        override fun fromJson(reader: JsonReader): T? {
+            decodes++
+            return delegate.fromJson(reader)
+        }
+
+        override fun toJson(writer: JsonWriter, value: T?) {
+            delegate.toJson(writer, value)
+        }
+    }
+
+    companion object {
+        private const val KEY = "PURCHASES"
+    }
+}
@@ -0,0 +1,165 @@
+package com.app.missednotificationsreminder.util.schedule
+
+import com.app.missednotificationsreminder.util.TimeUtils
+import com.app.missednotificationsreminder.util.TimeUtils.SchedulerMode
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import java.util.*
+
+class WeeklyScheduleTest {
+    @Test
+    fun `Test daily schedule matches legacy scheduled time`() {
+        for (zone in ZONES) {
+            withDefaultTimeZone(zone) {
+                for (begin in 0..MINUTES_IN_DAY step 90) {
+                    for (end in begin..MINUTES_IN_DAY step 90) {
+                        for (mode in SchedulerMode.values()) {
+                            if (begin == MINUTES_IN_DAY ||
+                                    mode == SchedulerMode.NON_WORKING_PERIOD && begin == 0 && end == MINUTES_IN_DAY) {
+                                // the whole day non working period is checked separately
+                                continue
+                            }
+                            val schedule = WeeklySchedule.daily(mode, begin, end)
+                            for (time in times()) {
+                                assertEquals("$zone $mode $begin-$end ${Date(time)}",
+                                        legacyScheduledTime(mode, begin, end, time),
+                                        schedule.getScheduledTime(time))
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    fun `Test multiple ranges per day of week`() {
+        val zone = TimeZone.getTimeZone("Europe/Berlin")
+        val schedule = WeeklySchedule(mapOf(
+                Calendar.MONDAY to listOf(WeeklySchedule.DailyRange(9 * 60, 12 * 60),
+                        WeeklySchedule.DailyRange(13 * 60, 17 * 60)),
+                // overnight range continues on Saturday
+                Calendar.FRIDAY to listOf(WeeklySchedule.DailyRange(22 * 60, 2 * 60))),
+                timeZone = zone)
+        // Monday 2021-03-01
+        assertEquals(time(zone, 2021, Calendar.MARCH, 1, 9, 0),
+                schedule.nextAllowedTime(time(zone, 2021, Calendar.MARCH, 1, 7, 30)))
+        assertEquals(time(zone, 2021, Calendar.MARCH, 1, 10, 15),
+                schedule.nextAllowedTime(time(zone, 2021, Calendar.MARCH, 1, 10, 15)))
+        assertEquals(time(zone, 2021, Calendar.MARCH, 1, 13, 0),
+                schedule.nextAllowedTime(time(zone, 2021, Calendar.MARCH, 1, 12, 0)))
+        assertEquals(time(zone, 2021, Calendar.MARCH, 5, 22, 0),
+                schedule.nextAllowedTime(time(zone, 2021, Calendar.MARCH, 1, 17, 0)))
+        assertEquals(time(zone, 2021, Calendar.MARCH, 6, 1, 59),
+                schedule.nextAllowedTime(time(zone, 2021, Calendar.MARCH, 6, 1, 59)))
+        assertEquals(time(zone, 2021, Calendar.MARCH, 8, 9, 0),
+                schedule.nextAllowedTime(time(zone, 2021, Calendar.MARCH, 6, 2, 0)))
+        // far from the compiled period
+        assertEquals(time(zone, 2022, Calendar.JANUARY, 3, 9, 0),
+                schedule.nextAllowedTime(time(zone, 2022, Calendar.JANUARY, 1, 3, 0)))
+    }
+
+    @Test
+    fun `Test ranges follow local time across daylight saving time changes`() {
+        val zone = TimeZone.getTimeZone("America/New_York")
+        val schedule = WeeklySchedule.daily(SchedulerMode.WORKING_PERIOD, 7 * 60, 21 * 60, zone)
+        // 2021-03-14 clocks go forward, 2021-11-07 clocks go back
+        assertEquals(time(zone, 2021, Calendar.MARCH, 14, 7, 0),
+                schedule.nextAllowedTime(time(zone, 2021, Calendar.MARCH, 13, 22, 0)))
+        assertEquals(time(zone, 2021, Calendar.NOVEMBER, 7, 7, 0),
+                schedule.nextAllowedTime(time(zone, 2021, Calendar.NOVEMBER, 6, 22, 0)))
+        // range beginning in the gap starts at the shifted time
+        val gap = WeeklySchedule.daily(SchedulerMode.WORKING_PERIOD, 2 * 60 + 30, 4 * 60, zone)
+        assertEquals(time(zone, 2021, Calendar.MARCH, 14, 3, 30),
+                gap.nextAllowedTime(time(zone, 2021, Calendar.MARCH, 14, 1, 0)))
+    }
+
+    @Test
+    fun `Test empty schedule has no allowed time`() {
+        val time = System.currentTimeMillis()
+        assertEquals(WeeklySchedule.NO_TIME, WeeklySchedule(emptyMap()).nextAllowedTime(time))
+        assertEquals(WeeklySchedule.NO_TIME,
+                WeeklySchedule.daily(SchedulerMode.NON_WORKING_PERIOD, 0, MINUTES_IN_DAY).getScheduledTime(time))
+        assertEquals(0, WeeklySchedule.daily(SchedulerMode.NON_WORKING_PERIOD, 0, 0).getScheduledTime(time))
+    }
+
+    @Test
+    fun `Test lookups do not allocate`() {
+        val schedule = WeeklySchedule.daily(SchedulerMode.NON_WORKING_PERIOD, 22 * 60, 7 * 60)
+        val start = System.currentTimeMillis()
+        var sum = 0L
+        repeat(LOOKUPS) { sum += schedule.nextAllowedTime(start + it * 7_000L) }
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val thread = Thread.currentThread().id
+        val before = threads.getThreadAllocatedBytes(thread)
+        repeat(LOOKUPS) { sum += schedule.nextAllowedTime(start + it * 7_000L) }
+        val allocated = threads.getThreadAllocatedBytes(thread) - before
+        assertTrue("allocated $allocated bytes for $LOOKUPS lookups", allocated < 1024)
+        assertTrue(sum > 0)
+    }
+
+    /**
+     * The times to check around the daylight saving time changes and the regular days
+     */
+    private fun times(): List<Long> {
+        val zone = TimeZone.getDefault()
+        return listOf(
+                time(zone, 2021, Calendar.MARCH, 13, 0, 0),
+                time(zone, 2021, Calendar.MARCH, 27, 0, 0),
+                time(zone, 2021, Calendar.APRIL, 3, 0, 0),
+                time(zone, 2021, Calendar.OCTOBER, 30, 0, 0),
+                time(zone, 2021, Calendar.NOVEMBER, 6, 0, 0),
+                time(zone, 2021, Calendar.JULY, 1, 0, 0))
+                .flatMap { day -> (0 until 3 * MINUTES_IN_DAY step 11).map { day + it * 60_000L + it % 3 * 20_000L } }
+    }
+
+    private fun time(zone: TimeZone, year: Int, month: Int, day: Int, hour: Int, minute: Int): Long =
+            GregorianCalendar(zone).apply {
+                clear()
+                set(year, month, day, hour, minute)
+            }.timeInMillis
+
+    private fun withDefaultTimeZone(zone: String, block: () -> Unit) {
+        val default = TimeZone.getDefault()
+        TimeZone.setDefault(TimeZone.getTimeZone(zone))
+        try {
+            block()
+        } finally {
+            TimeZone.setDefault(default)
+        }
+    }
+
+    /**
+     * The reference implementation of the single range scheduler replaced by the [WeeklySchedule]
+     */
+    private fun legacyScheduledTime(schedulerMode: SchedulerMode,
+                                    schedulerRangeBeginMinutes: Int,
+                                    schedulerRangeEndMinutes: Int,
+                                    nextWakeupTime: Long): Long {
+        var scheduledTime: Long = 0
+        val todayRangeBegin = TimeUtils.getDayTime(schedulerRangeBeginMinutes, nextWakeupTime)
+        val todayRangeEnd = TimeUtils.getDayTime(schedulerRangeEndMinutes, nextWakeupTime)
+        when (schedulerMode) {
+            SchedulerMode.WORKING_PERIOD -> if (nextWakeupTime < todayRangeBegin) {
+                scheduledTime = todayRangeBegin
+            } else if (todayRangeEnd < nextWakeupTime) {
+                scheduledTime = TimeUtils.getNearestFutureTime(schedulerRangeBeginMinutes, nextWakeupTime)
+                if (scheduledTime < nextWakeupTime) {
+                    scheduledTime = 0
+                }
+            }
+            SchedulerMode.NON_WORKING_PERIOD -> if (todayRangeBegin <= nextWakeupTime && nextWakeupTime < todayRangeEnd) {
+                scheduledTime = todayRangeEnd
+            }
+        }
+        return scheduledTime
+    }
+
+    companion object {
+        private const val MINUTES_IN_DAY = WeeklySchedule.MINUTES_IN_DAY
+        private const val LOOKUPS = 100_000
+        private val ZONES = listOf("UTC", "America/New_York", "Europe/Berlin", "Australia/Lord_Howe", "Asia/Kolkata")
+    }
+}
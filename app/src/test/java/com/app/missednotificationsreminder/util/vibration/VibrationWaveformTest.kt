@@ -0,0 +1,37 @@
+package com.app.missednotificationsreminder.util.vibration
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class VibrationWaveformTest {
+    @Test
+    fun `Test valid patterns are parsed`() {
+        val waveform = VibrationWaveform.parse(" 0, 100,50 ,100,\t50, 100, 200 ")!!
+        assertEquals("0, 100,50 ,100,\t50, 100, 200", waveform.pattern)
+        assertEquals(600, waveform.duration)
+        assertEquals(100, VibrationWaveform.parse("0,100")!!.duration)
+        assertEquals(VibrationWaveform.parse("0,100"), VibrationWaveform.parse(" 0,100 "))
+        assertNotEquals(VibrationWaveform.parse("0,100"), VibrationWaveform.parse("0,101"))
+    }
+
+    @Test
+    fun `Test malformed patterns are rejected`() {
+        listOf("", " ", ",", "0,", ",100", "0,,100", "0;100", "0 100", "a,100", "0,-100", "0,+100", "0,1.5",
+                "0,0x10", "0,１００", "0,99999999999999999999")
+                .forEach { assertNull("'$it' should be rejected", VibrationWaveform.parse(it)) }
+    }
+
+    @Test
+    fun `Test patterns without vibration are rejected`() {
+        assertNull(VibrationWaveform.parse("100"))
+        assertNull(VibrationWaveform.parse("0,0,100,0"))
+        assertNotNull(VibrationWaveform.parse("100,0,100,1"))
+    }
+
+    @Test
+    fun `Test too long patterns are rejected`() {
+        assertNotNull(VibrationWaveform.parse("0,${VibrationWaveform.MAX_DURATION}"))
+        assertNull(VibrationWaveform.parse("1,${VibrationWaveform.MAX_DURATION}"))
+        assertNull(VibrationWaveform.parse("0,${Long.MAX_VALUE}"))
+    }
+}
@@ -0,0 +1,119 @@
+package com.jakewharton.u2020.data
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.file.Files
+
+class LogJournalTest {
+    @Test
+    fun `Test entries are read in the order of addition`() = withDirectory { directory ->
+        val journal = LogJournal(directory)
+        journal.append(1, 3, "tag", "first")
+        journal.append(2, 6, null, "second\nline")
+        journal.append(3, 4, "тег", "")
+        assertEquals(listOf(
+                TestEntry(1, 3, "tag", "first"),
+                TestEntry(2, 6, null, "second\nline"),
+                TestEntry(3, 4, "тег", "")),
+                journal.read(::TestEntry))
+    }
+
+    @Test
+    fun `Test entries of previous runs are kept`() = withDirectory { directory ->
+        LogJournal(directory).append(1, 3, "tag", "previous")
+        val journal = LogJournal(directory)
+        journal.append(2, 3, "tag", "current")
+        assertEquals(listOf("previous", "current"), journal.read(::TestEntry).map { it.message })
+        // the last segment has room so it is continued
+        assertEquals(1, segments(directory).size)
+    }
+
+    @Test
+    fun `Test next segment is started when last one is full`() = withDirectory { directory ->
+        val previous = LogJournal(directory, segmentSize = 64)
+        previous.append(1, 3, "tag", "x".repeat(30))
+        val journal = LogJournal(directory, segmentSize = 64)
+        journal.append(2, 3, "tag", "current")
+        assertEquals(2, segments(directory).size)
+        assertEquals(listOf("x".repeat(30), "current"), journal.read(::TestEntry).map { it.message })
+    }
+
+    @Test
+    fun `Test unpublished record of previous run is overwritten`() = withDirectory { directory ->
+        val previous = LogJournal(directory)
+        previous.append(1, 3, "tag", "first")
+        previous.append(2, 3, "tag", "the long second message")
+        // the process is killed before the length of the second record is written
+        val secondRecordOffset = 4L + 4 + 8 + 1 + 2 + 3 + 5
+        RandomAccessFile(segments(directory).single(), "rw").use {
+            it.seek(secondRecordOffset)
+            it.writeInt(0)
+        }
+        val journal = LogJournal(directory)
+        journal.append(3, 3, "tag", "x")
+        journal.append(4, 3, null, "y")
+        assertEquals(listOf(
+                TestEntry(1, 3, "tag", "first"),
+                TestEntry(3, 3, "tag", "x"),
+                TestEntry(4, 3, null, "y")),
+                journal.read(::TestEntry))
+        assertEquals(1, segments(directory).size)
+    }
+
+    @Test
+    fun `Test segments are rotated and oldest ones are deleted`() = withDirectory { directory ->
+        val journal = LogJournal(directory, segmentSize = 256, maxSegments = 3)
+        repeat(100) { journal.append(it.toLong(), 3, "tag", "message $it") }
+        val segments = segments(directory)
+        assertEquals(3, segments.size)
+        assertTrue(segments.all { it.length() == 256L })
+        val entries = journal.read(::TestEntry)
+        assertTrue(entries.size in 1 until 100)
+        // the newest entries are kept without gaps
+        assertEquals((100 - entries.size until 100).map { "message $it" }, entries.map { it.message })
+    }
+
+    @Test
+    fun `Test long messages are truncated to fit the segment`() = withDirectory { directory ->
+        val journal = LogJournal(directory, segmentSize = 64)
+        journal.append(1, 3, "tag", "x".repeat(1000))
+        journal.append(2, 3, "tag", "short")
+        val entries = journal.read(::TestEntry)
+        assertEquals(2, entries.size)
+        assertTrue(entries[0].message.length in 1 until 64)
+        assertEquals("short", entries[1].message)
+    }
+
+    @Test
+    fun `Test unpublished records and corrupted segments are ignored`() = withDirectory { directory ->
+        val journal = LogJournal(directory)
+        journal.append(1, 3, "tag", "first")
+        journal.append(2, 3, "tag", "second")
+        val segment = segments(directory).single()
+        // the length of the second record is not yet written
+        val secondRecordOffset = 4L + 4 + 8 + 1 + 2 + 3 + 5
+        RandomAccessFile(segment, "rw").use {
+            it.seek(secondRecordOffset)
+            it.writeInt(0)
+        }
+        File(directory, "9999999999.seg").writeBytes(ByteArray(16) { 1 })
+        assertEquals(listOf("first"), journal.read(::TestEntry).map { it.message })
+        journal.cleanUp()
+        assertEquals(listOf(segment), segments(directory))
+    }
+
+    private fun segments(directory: File) = directory.listFiles()!!.sortedBy { it.name }
+
+    private fun withDirectory(block: (File) -> Unit) {
+        val directory = Files.createTempDirectory("journal").toFile()
+        try {
+            block(directory)
+        } finally {
+            directory.deleteRecursively()
+        }
+    }
+
+    private data class TestEntry(val time: Long, val level: Int, val tag: String?, val message: String)
+}
@@ -0,0 +1,78 @@
+package com.jakewharton.u2020.data
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import kotlin.concurrent.thread
+
+class LogRingBufferTest {
+    @Test
+    fun `Test capacity is rounded up to power of two`() {
+        assertEquals(1, LogRingBuffer(1).capacity)
+        assertEquals(16384, LogRingBuffer(10000).capacity)
+        assertEquals(16, LogRingBuffer(16).capacity)
+    }
+
+    @Test
+    fun `Test oldest entries are overwritten`() {
+        val buffer = LogRingBuffer(4)
+        repeat(6) { buffer.add(it.toLong(), it, "tag", "message $it") }
+        val batch = buffer.read(0, ::TestEntry)
+        assertEquals((2L until 6L).toList(), batch.entries.map { it.time })
+        assertEquals(6, batch.nextSequence)
+        buffer.add(6, 6, null, "message 6")
+        val next = buffer.read(batch.nextSequence, ::TestEntry)
+        assertEquals(listOf(TestEntry(6, 6, null, "message 6")), next.entries)
+        assertEquals(7, next.nextSequence)
+    }
+
+    @Test
+    fun `Test concurrent producers do not lose entries`() {
+        val producers = 8
+        val entriesPerProducer = 10_000
+        val buffer = LogRingBuffer(producers * entriesPerProducer)
+        val start = CountDownLatch(1)
+        (0 until producers).map { producer ->
+            thread {
+                start.await()
+                repeat(entriesPerProducer) { buffer.add(it.toLong(), producer, null, "$producer:$it") }
+            }
+        }.also { start.countDown() }.forEach { it.join() }
+        val entries = buffer.read(0, ::TestEntry).entries
+        assertEquals(producers * entriesPerProducer, entries.size)
+        for (producer in 0 until producers) {
+            val produced = entries.filter { it.level == producer }
+            // the order of the single producer entries is preserved
+            assertEquals((0L until entriesPerProducer).toList(), produced.map { it.time })
+            produced.forEach { assertEquals("$producer:${it.time}", it.message) }
+        }
+    }
+
+    @Test
+    fun `Test concurrent reader never sees torn entries`() {
+        val buffer = LogRingBuffer(64)
+        val producers = 4
+        val entriesPerProducer = 200_000
+        val threads = (0 until producers).map { producer ->
+            thread {
+                repeat(entriesPerProducer) { buffer.add(it.toLong(), producer, "$producer", "$producer:$it") }
+            }
+        }
+        var next = 0L
+        var read = 0
+        while (threads.any { it.isAlive }) {
+            val batch = buffer.read(next, ::TestEntry)
+            for (entry in batch.entries) {
+                assertEquals("${entry.level}", entry.tag)
+                assertEquals("${entry.level}:${entry.time}", entry.message)
+            }
+            read += batch.entries.size
+            assertTrue(batch.nextSequence >= next)
+            next = batch.nextSequence
+        }
+        threads.forEach { it.join() }
+        assertTrue(read > 0)
+    }
+
+    private data class TestEntry(val time: Long, val level: Int, val tag: String?, val message: String)
+}
@@ -0,0 +1,87 @@
+package com.jakewharton.u2020.ui.logs
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.regex.Pattern
+
+class LogSearchIndexTest {
+    @Test
+    fun `Test empty query matches all entries`() {
+        val index = index()
+        assertEquals(entries, index.search(""))
+    }
+
+    @Test
+    fun `Test results are the same as the regular expression scan`() {
+        val index = index()
+        for (query in listOf("d", "D", "Reminder", "remind", "service.start", "12:0", "ed 1", "1[05]",
+                "^W$", "no such entry", "(", "a|b", "x.*y", "")) {
+            assertEquals(query, scan(query), index.search(query))
+        }
+    }
+
+    @Test
+    fun `Test refined query filters previous results`() {
+        val index = index()
+        var query = ""
+        for (c in "reminder started") {
+            query += c
+            assertEquals(query, scan(query), index.search(query))
+        }
+        for (i in query.indices.reversed()) {
+            assertEquals(query, scan(query.substring(0, i)), index.search(query.substring(0, i)))
+        }
+    }
+
+    @Test
+    fun `Test added entries are matched against current query`() {
+        val index = LogSearchIndex(TestEntry::fields)
+        index.add(entries.subList(0, 500))
+        assertEquals(scan("reminder", entries.subList(0, 500)), index.search("reminder"))
+        val added = index.add(entries.subList(500, entries.size))
+        assertEquals(scan("reminder", entries.subList(500, entries.size)), added)
+        assertEquals(scan("reminder started"), index.search("reminder started"))
+        assertEquals(scan("W"), index.search("W"))
+    }
+
+    @Test
+    fun `Test query tokens match any part of entry tokens`() {
+        val entries = generate(10_000)
+        val index = LogSearchIndex(TestEntry::fields)
+        index.add(entries)
+        for (query in listOf("r", "re", "rem", "remi", "minder", "inder st", "rvice", "12:3", "scheduled 42",
+                "com.app", "ackage99", "notificationlistener", "no match", "zzzz")) {
+            assertEquals(query, scan(query, entries), index.search(query))
+        }
+    }
+
+    private val entries = generate(1_000)
+
+    private fun index() = LogSearchIndex(TestEntry::fields).apply { add(entries) }
+
+    private fun scan(query: String, entries: List<TestEntry> = this.entries): List<TestEntry> {
+        val pattern = try {
+            Pattern.compile(query, Pattern.CASE_INSENSITIVE)
+        } catch (e: Exception) {
+            return emptyList()
+        }
+        return entries.filter { entry -> entry.fields().any { pattern.matcher(it).find() } }
+    }
+
+    private fun generate(count: Int) = (0 until count).map {
+        TestEntry(
+                level = "VDIWE"[it % 5].toString(),
+                time = String.format("12:%02d:%02d.%03d", it / 60 % 60, it % 60, it % 1000),
+                tag = listOf("ReminderService", "NotificationListener", "SettingsFragment")[it % 3],
+                message = when (it % 4) {
+                    0 -> "Reminder started for com.app.package$it"
+                    1 -> "Notification removed $it"
+                    2 -> "scheduled ${it % 100} alarms"
+                    else -> "service.start() called with: intent = Intent { act=$it }"
+                })
+    }
+
+    private data class TestEntry(val level: String, val time: String, val tag: String, val message: String) {
+        fun fields() = arrayOf(level, time, tag, message)
+    }
+}